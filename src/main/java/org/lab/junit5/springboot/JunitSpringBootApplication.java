@@ -2,8 +2,10 @@ package org.lab.junit5.springboot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class JunitSpringBootApplication {
 
   public static void main(String[] args) {
@@ -0,0 +1,9 @@
+package org.lab.junit5.springboot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// POST /api/accounts/balances: maximo de ids por peticion y cuantos van en cada consulta IN
+@ConfigurationProperties(prefix = "accounts.balances")
+public record AccountBalanceProperties(
+    @DefaultValue("10000") int maxIds, @DefaultValue("1000") int chunkSize) {}
@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// POST /api/accounts/bulk: maximo de cuentas por peticion y cada cuantas se hace flush y se vacia
+// el contexto de persistencia
+@ConfigurationProperties(prefix = "accounts.bulk")
+public record AccountBulkProperties(
+    @DefaultValue("100000") int maxSize, @DefaultValue("1000") int flushSize) {}
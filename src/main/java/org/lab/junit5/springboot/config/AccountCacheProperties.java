@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Cache en memoria de cuentas por id y por numero de cuenta: maximo de entradas y tiempo de vida
+@ConfigurationProperties(prefix = "accounts.cache")
+public record AccountCacheProperties(
+    @DefaultValue("10000") long maxSize, @DefaultValue("30s") Duration ttl) {}
@@ -0,0 +1,16 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// POST /api/accounts/close y /delete: maximo de ids por peticion y ids por sentencia. Las cuentas
+// cerradas se borran pasado purgeAfter, como mucho purgeBatchSize filas por transaccion, cada
+// purgeInterval
+@ConfigurationProperties(prefix = "accounts.closing")
+public record AccountClosingProperties(
+    @DefaultValue("10000") int maxIds,
+    @DefaultValue("1000") int chunkSize,
+    @DefaultValue("30d") Duration purgeAfter,
+    @DefaultValue("500") int purgeBatchSize,
+    @DefaultValue("1m") Duration purgeInterval) {}
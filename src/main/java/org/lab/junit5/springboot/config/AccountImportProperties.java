@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Importacion de cuentas desde CSV: filas por transaccion (y en memoria a la vez) y cuantos errores
+// de fila se devuelven con detalle; el resto solo se cuentan
+@ConfigurationProperties(prefix = "accounts.import")
+public record AccountImportProperties(
+    @DefaultValue("1000") int chunkSize, @DefaultValue("100") int maxReportedErrors) {}
@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// POST /api/accounts/lookup: maximo de numeros de cuenta por peticion y cuantos van en cada
+// consulta IN
+@ConfigurationProperties(prefix = "accounts.lookup")
+public record AccountLookupProperties(
+    @DefaultValue("10000") int maxNumbers, @DefaultValue("1000") int chunkSize) {}
@@ -0,0 +1,18 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Filtro de Bloom de numeros de cuenta (ver AccountNumberFilter). La memoria depende de
+// expectedNumbers y falsePositiveRate; cada reconstruccion recorre toda la tabla accounts. Un
+// numero que el filtro no conoce solo se da por inexistente si el filtro se puso al dia con la base
+// de datos hace menos de maxStaleness
+@ConfigurationProperties(prefix = "accounts.number-filter")
+public record AccountNumberFilterProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("1000000") long expectedNumbers,
+    @DefaultValue("0.01") double falsePositiveRate,
+    @DefaultValue("6h") Duration rebuildInterval,
+    @DefaultValue("10s") Duration rebuildWriteTimeout,
+    @DefaultValue("1s") Duration maxStaleness) {}
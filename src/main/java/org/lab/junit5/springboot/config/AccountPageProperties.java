@@ -0,0 +1,9 @@
+package org.lab.junit5.springboot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// GET /api/accounts: cuentas por pagina si no se indica limit y maximo permitido
+@ConfigurationProperties(prefix = "accounts.page")
+public record AccountPageProperties(
+    @DefaultValue("100") int defaultSize, @DefaultValue("1000") int maxSize) {}
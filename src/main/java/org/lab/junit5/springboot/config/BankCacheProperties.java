@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Cache en memoria de bancos por id: maximo de entradas y tiempo de vida
+@ConfigurationProperties(prefix = "banks.cache")
+public record BankCacheProperties(
+    @DefaultValue("1000") long maxSize, @DefaultValue("10m") Duration ttl) {}
@@ -0,0 +1,15 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Idempotency-Key: cuanto se recuerda una respuesta, cuantas claves caben en la cache en memoria,
+// cada cuanto se borran de la base de datos las claves caducadas y cuanto puede estar una clave en
+// curso antes de darla por abandonada (p. ej. la instancia que la procesaba se cayo)
+@ConfigurationProperties(prefix = "accounts.idempotency")
+public record IdempotencyProperties(
+    @DefaultValue("24h") Duration ttl,
+    @DefaultValue("10000") long cacheMaxSize,
+    @DefaultValue("10m") Duration cleanupInterval,
+    @DefaultValue("1m") Duration inProgressTimeout) {}
@@ -0,0 +1,11 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "banks.transaction-counter")
+public record TransactionCounterProperties(
+    @DefaultValue("16") int slots,
+    @DefaultValue("10s") Duration compactionInterval,
+    @DefaultValue("1m") Duration reconcileInterval) {}
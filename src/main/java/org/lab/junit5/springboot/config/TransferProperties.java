@@ -0,0 +1,50 @@
+package org.lab.junit5.springboot.config;
+
+import java.time.Duration;
+import org.lab.junit5.springboot.services.TransferEngineType;
+import org.lab.junit5.springboot.services.TransferMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "accounts.transfer")
+public record TransferProperties(
+    @DefaultValue("entity") TransferMode mode,
+    @DefaultValue Retry retry,
+    @DefaultValue Batch batch,
+    @DefaultValue("direct") TransferEngineType engine,
+    @DefaultValue Sharded sharded,
+    @DefaultValue Ledger ledger,
+    @DefaultValue Coalescing coalescing) {
+
+  // Reintentos ante conflictos de version, timeouts de bloqueo, deadlocks y fallos de serializacion
+  public record Retry(
+      @DefaultValue("5") int maxAttempts,
+      @DefaultValue("10ms") Duration initialBackoff,
+      @DefaultValue("200ms") Duration maxBackoff) {}
+
+  // Transferencias en lote: cada chunk se aplica en una transaccion con un solo commit
+  public record Batch(@DefaultValue("500") int chunkSize, @DefaultValue("50000") int maxSize) {}
+
+  // Motor con un escritor por shard: numero de shards, transferencias por commit y tamano de cola
+  public record Sharded(
+      @DefaultValue("8") int shards,
+      @DefaultValue("500") int groupSize,
+      @DefaultValue("10000") int queueCapacity) {}
+
+  // Modo ledger: cada cuanto se consolidan los asientos en accounts.balance, cuanto tiempo se deja
+  // pasar antes de consolidar un asiento y el timeout de las transacciones que los escriben. El
+  // margen tiene que ser mayor que el timeout: asi no queda ningun asiento sin confirmar por debajo
+  // del ultimo consolidado (ver LedgerServiceImpl)
+  public record Ledger(
+      @DefaultValue("5s") Duration snapshotInterval,
+      @DefaultValue("30s") Duration settleWindow,
+      @DefaultValue("10s") Duration transactionTimeout) {}
+
+  // Motor que agrupa las transferencias que llegan dentro de una ventana: duracion de la ventana,
+  // transferencias por commit, commits en paralelo y tamano de cola
+  public record Coalescing(
+      @DefaultValue("2ms") Duration window,
+      @DefaultValue("500") int maxBatchSize,
+      @DefaultValue("2") int flushThreads,
+      @DefaultValue("10000") int queueCapacity) {}
+}
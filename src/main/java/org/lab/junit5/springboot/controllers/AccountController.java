@@ -1,50 +1,288 @@
 package org.lab.junit5.springboot.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
 import org.lab.junit5.springboot.exceptions.AccountNotFoundByNumberException;
 import org.lab.junit5.springboot.exceptions.BankException;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.models.dtos.AccountPatchDTO;
 import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.dtos.TransferResultDTO;
 import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.AccountImport;
+import org.lab.junit5.springboot.services.AccountETags;
+import org.lab.junit5.springboot.services.AccountImportService;
 import org.lab.junit5.springboot.services.AccountService;
+import org.lab.junit5.springboot.services.IdempotencyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/accounts")
 public class AccountController {
 
+  private static final int IDEMPOTENCY_KEY_MAX_LENGTH = 100;
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  static final String NEXT_SINCE_HEADER = "X-Next-Since";
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String VERSION_FIELD = "version";
+
   private final AccountService accountService;
+  private final AccountImportService accountImportService;
+  private final IdempotencyService idempotencyService;
+  private final ObjectMapper objectMapper;
 
   @Autowired
-  public AccountController(AccountService accountService) {
+  public AccountController(
+      AccountService accountService,
+      AccountImportService accountImportService,
+      IdempotencyService idempotencyService,
+      ObjectMapper objectMapper) {
     this.accountService = accountService;
+    this.accountImportService = accountImportService;
+    this.idempotencyService = idempotencyService;
+    this.objectMapper = objectMapper;
   }
 
+  // Paginado por id: si hay mas cuentas, el cursor de la siguiente pagina va en X-Next-Cursor y se
+  // pasa como ?after=. Con If-None-Match se compara antes la ETag de la pagina, calculada solo con
+  // id y version de sus cuentas
   @GetMapping
-  public ResponseEntity<List<Account>> getAllAccounts() {
-    return ResponseEntity.ok(accountService.findAllAccounts());
+  public ResponseEntity<List<Account>> getAllAccounts(
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String after,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    try {
+      if (ifNoneMatch != null) {
+        String eTag = accountService.findAccountsETag(after, limit);
+        if (AccountETags.matches(ifNoneMatch, eTag)) {
+          return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+      }
+      AccountPageDTO page = accountService.findAccounts(after, limit);
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(AccountETags.of(page));
+      if (page.hasNext()) {
+        response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+      }
+      return response.body(page.accounts());
+    } catch (AccountException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  // Cuentas cuyo titular empieza por owner, sin distinguir mayusculas ni acentos, ordenadas por
+  // titular. Paginado como GET /api/accounts: cursor de la siguiente pagina en X-Next-Cursor
+  @GetMapping("/search")
+  public ResponseEntity<List<Account>> searchAccountsByOwner(
+      @RequestParam String owner,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String after) {
+    try {
+      AccountPageDTO page = accountService.findAccountsByOwner(owner, after, limit);
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+      if (page.hasNext()) {
+        response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+      }
+      return response.body(page.accounts());
+    } catch (AccountException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  // Cuentas creadas o modificadas despues de since (0 la primera vez), en orden de cambio. El
+  // valor para la siguiente peticion va en X-Next-Since; con menos de limit cuentas no hay mas
+  // cambios por ahora. Las cuentas borradas no aparecen
+  @GetMapping("/changes")
+  public ResponseEntity<List<Account>> getAccountChanges(
+      @RequestParam(defaultValue = "0") long since,
+      @RequestParam(required = false) Integer limit) {
+    try {
+      List<Account> accounts = accountService.findChanges(since, limit);
+      long nextSince = accounts.isEmpty() ? since : accounts.getLast().getChangeSeq();
+      return ResponseEntity.ok()
+          .header(NEXT_SINCE_HEADER, String.valueOf(nextSince))
+          .body(accounts);
+    } catch (AccountException e) {
+      return ResponseEntity.badRequest().build();
+    }
   }
 
+  // Todas las cuentas en NDJSON (una por linea), escritas en la respuesta a medida que se leen de
+  // la base de datos: la memoria usada no depende del numero de cuentas
+  @GetMapping(value = "/export", produces = NDJSON)
+  public ResponseEntity<StreamingResponseBody> exportAccounts() {
+    StreamingResponseBody body =
+        outputStream -> {
+          try (JsonGenerator generator =
+              objectMapper
+                  .getFactory()
+                  .createGenerator(outputStream)
+                  .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                  .setRootValueSeparator(null)) {
+            // Sin flush por cuenta: el buffer de la respuesta se vacia cuando se llena
+            ObjectWriter writer =
+                objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            accountService.exportAccounts(
+                account -> {
+                  try {
+                    writer.writeValue(generator, account);
+                    generator.writeRaw('\n');
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+          }
+        };
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+  }
+
+  // Con If-None-Match se compara antes la ETag, que sale de la cache o de leer solo id, version y
+  // saldo
   @GetMapping("/{accountNumber}")
-  public ResponseEntity<Account> getAccountByAccountNumber(@PathVariable String accountNumber) {
+  public ResponseEntity<Account> getAccountByAccountNumber(
+      @PathVariable String accountNumber,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     try {
-      return ResponseEntity.ok(accountService.findAccountByAccountNumber(accountNumber));
+      if (ifNoneMatch != null) {
+        Optional<String> eTag = accountService.findAccountETag(accountNumber);
+        if (eTag.isEmpty()) {
+          return ResponseEntity.notFound().build();
+        }
+        if (AccountETags.matches(ifNoneMatch, eTag.get())) {
+          return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+        }
+      }
+      Account account = accountService.findAccountByAccountNumber(accountNumber);
+      return ResponseEntity.ok().eTag(AccountETags.of(account)).body(account);
     } catch (AccountNotFoundByNumberException e) {
       return ResponseEntity.notFound().build();
     }
   }
 
+  // Varias cuentas por numero: data son las cuentas encontradas, en el orden pedido, y notFound los
+  // numeros que no existen
+  @PostMapping("/lookup")
+  public ResponseEntity<Map<String, Object>> lookupAccounts(
+      @RequestBody List<String> accountNumbers) {
+    Map<String, Object> response = new HashMap<>();
+
+    if (accountNumbers == null || accountNumbers.isEmpty()) {
+      response.put("status", "error");
+      response.put("message", "Account numbers are required");
+      return ResponseEntity.badRequest().body(response);
+    }
+
+    try {
+      List<Account> accounts = accountService.findAccountsByAccountNumbers(accountNumbers);
+      Set<String> found =
+          accounts.stream().map(Account::getAccountNumber).collect(Collectors.toSet());
+      response.put("status", "ok");
+      response.put("data", accounts);
+      response.put(
+          "notFound",
+          accountNumbers.stream()
+              .filter(accountNumber -> !found.contains(accountNumber))
+              .distinct()
+              .toList());
+      return ResponseEntity.ok(response);
+    } catch (AccountException e) {
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
+  }
+
+  @GetMapping("/{accountId}/balance")
+  public ResponseEntity<Map<String, Object>> getBalance(@PathVariable Long accountId) {
+    try {
+      Map<String, Object> response = new HashMap<>();
+      response.put("accountId", accountId);
+      response.put("balance", accountService.getBalance(accountId));
+      return ResponseEntity.ok(response);
+    } catch (AccountNotFoundByIdException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  // Saldos de varias cuentas: data es un objeto id -> saldo y notFound los ids que no existen
+  @PostMapping("/balances")
+  public ResponseEntity<Map<String, Object>> getBalances(@RequestBody List<Long> accountIds) {
+    Map<String, Object> response = new HashMap<>();
+
+    if (accountIds == null || accountIds.isEmpty()) {
+      response.put("status", "error");
+      response.put("message", "Account ids are required");
+      return ResponseEntity.badRequest().body(response);
+    }
+
+    try {
+      Map<Long, BigDecimal> balances = accountService.getBalances(accountIds);
+      response.put("status", "ok");
+      response.put("data", balances);
+      response.put(
+          "notFound",
+          accountIds.stream()
+              .filter(accountId -> !balances.containsKey(accountId))
+              .distinct()
+              .toList());
+      return ResponseEntity.ok(response);
+    } catch (AccountException e) {
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
+  }
+
   @PostMapping("/transfer")
   public ResponseEntity<Map<String, Object>> transfer(
+      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
       @RequestBody TransferDetailDTO transferDetailDTO) {
+    if (idempotencyKey == null || idempotencyKey.isBlank()) {
+      return doTransfer(transferDetailDTO);
+    }
+    if (idempotencyKey.length() > IDEMPOTENCY_KEY_MAX_LENGTH) {
+      Map<String, Object> response = new HashMap<>();
+      response.put("status", "error");
+      response.put(
+          "message",
+          "Idempotency-Key must have at most %d characters".formatted(IDEMPOTENCY_KEY_MAX_LENGTH));
+      return ResponseEntity.badRequest().body(response);
+    }
+    return idempotencyService.execute(
+        idempotencyKey, transferDetailDTO, () -> doTransfer(transferDetailDTO));
+  }
+
+  private ResponseEntity<Map<String, Object>> doTransfer(TransferDetailDTO transferDetailDTO) {
     Map<String, Object> response = new HashMap<>();
 
     if (transferDetailDTO.isNotValid()) {
@@ -73,6 +311,33 @@ public class AccountController {
     }
   }
 
+  @PostMapping("/transfers/batch")
+  public ResponseEntity<Map<String, Object>> transferBatch(
+      @RequestBody List<TransferDetailDTO> transfers) {
+    Map<String, Object> response = new HashMap<>();
+
+    if (transfers == null || transfers.isEmpty()) {
+      response.put("status", "error");
+      response.put("message", "Transfer details are required");
+      return ResponseEntity.badRequest().body(response);
+    }
+
+    try {
+      List<TransferResultDTO> results = accountService.transferAll(transfers);
+      long successful = results.stream().filter(TransferResultDTO::isSuccessful).count();
+      response.put("status", "ok");
+      response.put("date", LocalDate.now());
+      response.put("successful", successful);
+      response.put("failed", results.size() - successful);
+      response.put("data", results);
+      return ResponseEntity.ok(response);
+    } catch (AccountException e) {
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
+  }
+
   @PostMapping("/create")
   public ResponseEntity<Account> createAccount(@RequestBody Account account) {
     return Optional.of(account)
@@ -89,12 +354,128 @@ public class AccountController {
         .orElse(ResponseEntity.badRequest().build());
   }
 
-  @PutMapping("/update")
-  public ResponseEntity<Account> updateAccount(@RequestBody Account account) {
-    return Optional.of(account)
-        .map(accountService::save)
+  // Alta de muchas cuentas (migraciones): todas en una transaccion, sin id. Devuelve solo cuantas
+  // se crearon; un numero de cuenta repetido o ya existente hace fallar la peticion entera
+  @PostMapping("/bulk")
+  public ResponseEntity<Map<String, Object>> createAccounts(@RequestBody List<Account> accounts) {
+    Map<String, Object> response = new HashMap<>();
+
+    if (accounts == null || accounts.isEmpty()) {
+      response.put("status", "error");
+      response.put("message", "Accounts are required");
+      return ResponseEntity.badRequest().body(response);
+    }
+
+    try {
+      int created = accountService.createAccounts(accounts);
+      response.put("status", "ok");
+      response.put("date", LocalDate.now());
+      response.put("created", created);
+      return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    } catch (AccountException e) {
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    } catch (DataIntegrityViolationException e) {
+      response.put("status", "error");
+      response.put("message", "Duplicate or invalid accounts, none were created");
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+  }
+
+  // Importacion desde CSV (text/csv, UTF-8) leida del cuerpo de la peticion mientras se escribe,
+  // sin guardarlo entero en memoria ni en disco. Si se detiene (FAILED), se reenvia el mismo
+  // fichero con ?importId= y continua despues del ultimo chunk confirmado
+  @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+  public ResponseEntity<Map<String, Object>> importAccounts(
+      InputStream csv, @RequestParam(required = false) Long importId) {
+    Map<String, Object> response = new HashMap<>();
+
+    try {
+      AccountImportResultDTO result =
+          accountImportService.importAccounts(
+              new InputStreamReader(csv, StandardCharsets.UTF_8), importId);
+      response.put("date", LocalDate.now());
+      response.put("data", result);
+      if (result.status() == AccountImport.Status.FAILED) {
+        response.put("status", "error");
+        response.put("message", result.failure());
+        return ResponseEntity.internalServerError().body(response);
+      }
+      response.put("status", "ok");
+      return ResponseEntity.ok(response);
+    } catch (AccountException e) {
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
+  }
+
+  @GetMapping("/import/{importId}")
+  public ResponseEntity<AccountImportResultDTO> getImport(@PathVariable Long importId) {
+    return accountImportService
+        .findImport(importId)
         .map(ResponseEntity::ok)
-        .orElse(ResponseEntity.badRequest().build());
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  // Cambia solo los campos enviados (de momento owner) con un UPDATE directo. El saldo no se puede
+  // cambiar aqui: los campos desconocidos, balance incluido, se ignoran
+  @PatchMapping("/{accountId}")
+  public ResponseEntity<Map<String, Object>> patchAccount(
+      @PathVariable Long accountId, @RequestBody AccountPatchDTO patch) {
+    try {
+      accountService.updateAccount(accountId, patch);
+      return ResponseEntity.noContent().build();
+    } catch (AccountNotFoundByIdException e) {
+      return ResponseEntity.notFound().build();
+    } catch (AccountException e) {
+      Map<String, Object> response = new HashMap<>();
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
+  }
+
+  // Reemplaza la cuenta entera. version es obligatorio (el de la ultima lectura): sin el la cuenta
+  // llegaria con version 0 y, en cuanto la cuenta cambia una vez, cada PUT acabaria en 409. En modo
+  // ledger el saldo enviado se ignora: solo cambia con transferencias (ver AccountService.save)
+  // El cuerpo llega como texto: un JsonNode guarda los decimales como double y perderia la escala
+  // del saldo (375.50 pasaria a 375.5)
+  @PutMapping(value = "/update", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> updateAccount(@RequestBody String body) {
+    JsonNode fields;
+    try {
+      fields = objectMapper.readTree(body);
+    } catch (JsonProcessingException e) {
+      return invalidAccountBody(e);
+    }
+    if (!fields.hasNonNull(VERSION_FIELD)) {
+      Map<String, Object> response = new HashMap<>();
+      response.put("status", "error");
+      response.put(
+          "message",
+          "Field '%s' is required: send the version returned by the last read"
+              .formatted(VERSION_FIELD));
+      return ResponseEntity.badRequest().body(response);
+    }
+    try {
+      Account account = objectMapper.readValue(body, Account.class);
+      return ResponseEntity.ok(accountService.save(account));
+    } catch (JsonProcessingException e) {
+      return invalidAccountBody(e);
+    } catch (OptimisticLockingFailureException e) {
+      // La version enviada ya no es la actual: otra transaccion modifico la cuenta
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+  }
+
+  private static ResponseEntity<Map<String, Object>> invalidAccountBody(
+      JsonProcessingException e) {
+    Map<String, Object> response = new HashMap<>();
+    response.put("status", "error");
+    response.put("message", e.getOriginalMessage());
+    return ResponseEntity.badRequest().body(response);
   }
 
   @DeleteMapping("/{accountId}")
@@ -102,4 +483,40 @@ public class AccountController {
     accountService.delete(accountId);
     return ResponseEntity.noContent().build();
   }
+
+  // Cierre (baja logica) de varias cuentas: dejan de verse en todas las lecturas y se borran mas
+  // tarde (accounts.closing.purge-after). closed cuenta solo las que estaban abiertas
+  @PostMapping("/close")
+  public ResponseEntity<Map<String, Object>> closeAccounts(@RequestBody List<Long> accountIds) {
+    return updateAccounts(accountIds, "closed", accountService::closeAccounts);
+  }
+
+  // Borrado inmediato de varias cuentas, abiertas o cerradas
+  @PostMapping("/delete")
+  public ResponseEntity<Map<String, Object>> deleteAccounts(@RequestBody List<Long> accountIds) {
+    return updateAccounts(accountIds, "deleted", accountService::deleteAccounts);
+  }
+
+  private ResponseEntity<Map<String, Object>> updateAccounts(
+      List<Long> accountIds, String countName, Function<List<Long>, Integer> update) {
+    Map<String, Object> response = new HashMap<>();
+
+    if (accountIds == null || accountIds.isEmpty()) {
+      response.put("status", "error");
+      response.put("message", "Account ids are required");
+      return ResponseEntity.badRequest().body(response);
+    }
+
+    try {
+      int updated = update.apply(accountIds);
+      response.put("status", "ok");
+      response.put("date", LocalDate.now());
+      response.put(countName, updated);
+      return ResponseEntity.ok(response);
+    } catch (AccountException e) {
+      response.put("status", "error");
+      response.put("message", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
+  }
 }
@@ -2,6 +2,7 @@ package org.lab.junit5.springboot.exceptions;
 
 import java.math.BigDecimal;
 import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.money.Money;
 
 public class AccountInsufficientMoneyException extends AccountException {
 
@@ -12,6 +13,11 @@ public class AccountInsufficientMoneyException extends AccountException {
     super(createErrorMessage(account, amount));
   }
 
+  // El importe en centimos solo se pasa a BigDecimal aqui, fuera del camino habitual
+  public AccountInsufficientMoneyException(Account account, long amountInMinorUnits) {
+    this(account, Money.toBigDecimal(amountInMinorUnits));
+  }
+
   private static String createErrorMessage(Account account, BigDecimal amount) {
     return message.formatted(account.getAccountNumber(), account.getBalance(), amount);
   }
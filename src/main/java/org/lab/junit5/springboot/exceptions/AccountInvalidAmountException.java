@@ -0,0 +1,16 @@
+package org.lab.junit5.springboot.exceptions;
+
+import java.math.BigDecimal;
+
+public class AccountInvalidAmountException extends AccountException {
+
+  private static final String message = "Invalid amount '%s'. %s.";
+
+  public AccountInvalidAmountException(BigDecimal amount) {
+    this(amount, "Amounts can have at most 2 decimals");
+  }
+
+  public AccountInvalidAmountException(BigDecimal amount, String rule) {
+    super(message.formatted(amount, rule));
+  }
+}
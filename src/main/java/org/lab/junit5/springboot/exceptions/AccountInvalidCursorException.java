@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.exceptions;
+
+public class AccountInvalidCursorException extends AccountException {
+
+  private static final String message = "Invalid cursor '%s'";
+
+  public AccountInvalidCursorException(String cursor) {
+    super(message.formatted(cursor));
+  }
+}
@@ -0,0 +1,4 @@
+package org.lab.junit5.springboot.models.dtos;
+
+// Fila del CSV que no se importo: line es el numero de linea en el fichero (la cabecera es la 1)
+public record AccountImportErrorDTO(long line, String message) {}
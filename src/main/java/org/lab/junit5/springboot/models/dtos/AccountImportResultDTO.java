@@ -0,0 +1,30 @@
+package org.lab.junit5.springboot.models.dtos;
+
+import java.util.List;
+import org.lab.junit5.springboot.models.entitites.AccountImport;
+
+// errors solo trae los primeros errores de fila (accounts.import.max-reported-errors); failedRows
+// los cuenta todos
+public record AccountImportResultDTO(
+    Long importId,
+    AccountImport.Status status,
+    long lastCommittedLine,
+    int chunksCommitted,
+    long importedRows,
+    long failedRows,
+    String failure,
+    List<AccountImportErrorDTO> errors) {
+
+  public static AccountImportResultDTO of(
+      AccountImport accountImport, List<AccountImportErrorDTO> errors) {
+    return new AccountImportResultDTO(
+        accountImport.getId(),
+        accountImport.getStatus(),
+        accountImport.getLastCommittedLine(),
+        accountImport.getChunksCommitted(),
+        accountImport.getImportedRows(),
+        accountImport.getFailedRows(),
+        accountImport.getFailure(),
+        errors);
+  }
+}
@@ -0,0 +1,12 @@
+package org.lab.junit5.springboot.models.dtos;
+
+import java.util.List;
+import org.lab.junit5.springboot.models.entitites.Account;
+
+// nextCursor es null en la ultima pagina
+public record AccountPageDTO(List<Account> accounts, String nextCursor) {
+
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+}
@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.models.dtos;
+
+// PATCH /api/accounts/{id}: solo se cambian los campos no nulos. El saldo no se puede modificar
+// aqui, solo con transferencias
+public record AccountPatchDTO(String owner) {
+
+  public boolean isEmpty() {
+    return owner == null;
+  }
+}
@@ -5,7 +5,12 @@ import java.math.BigDecimal;
 public record TransferDetailDTO(
     Long sourceAccountId, Long targetAccountId, Long bankId, BigDecimal amount) {
 
+  // Un importe cero o negativo tampoco es valido
   public boolean isNotValid() {
-    return sourceAccountId == null || targetAccountId == null || bankId == null || amount == null;
+    return sourceAccountId == null
+        || targetAccountId == null
+        || bankId == null
+        || amount == null
+        || amount.signum() <= 0;
   }
 }
@@ -0,0 +1,19 @@
+package org.lab.junit5.springboot.models.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public record TransferResultDTO(int index, String status, String message) {
+
+  public static TransferResultDTO ok(int index) {
+    return new TransferResultDTO(index, "ok", "Transfer successful");
+  }
+
+  public static TransferResultDTO error(int index, String message) {
+    return new TransferResultDTO(index, "error", message);
+  }
+
+  @JsonIgnore
+  public boolean isSuccessful() {
+    return "ok".equals(status);
+  }
+}
@@ -1,19 +1,46 @@
 package org.lab.junit5.springboot.models.entitites;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.models.money.Money;
+import org.lab.junit5.springboot.models.money.MoneyConverter;
 
 @Data
 @Accessors(chain = true)
 @Entity
-@Table(name = "accounts")
+@Table(
+    name = "accounts",
+    indexes = {
+      @Index(name = "accounts_change_seq_idx", columnList = "change_seq"),
+      @Index(name = "accounts_owner_normalized_idx", columnList = "owner_normalized, id"),
+      @Index(name = "accounts_closed_at_idx", columnList = "closed_at")
+    })
+// Las cuentas cerradas no aparecen en ninguna consulta JPA; las consultas SQL nativas tienen que
+// filtrarlas ellas mismas
+@SQLRestriction("closed = false")
 public class Account {
 
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+  // Ids de una secuencia con el optimizador pooled-lo (ver application.properties): cada instancia
+  // reserva allocationSize ids con un solo nextval y los INSERT se agrupan en batches JDBC, cosa
+  // que con IDENTITY no se puede. Los ids dejan de ser consecutivos entre instancias
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+  @SequenceGenerator(name = "accounts_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false, unique = true)
@@ -22,22 +49,129 @@ public class Account {
   @Column(nullable = false)
   private String owner;
 
-  @Column(
-      nullable = false,
-      precision = 10,
-      scale = 2,
-      columnDefinition = "DECIMAL(20,2) DEFAULT 0.00")
-  private BigDecimal balance;
+  // Titular sin acentos y en minusculas (ver normalizeOwner) para la busqueda por prefijo. Se
+  // calcula al guardar; los INSERT y UPDATE en SQL tienen que rellenarlo
+  @JsonIgnore
+  @Column(nullable = false)
+  @Setter(AccessLevel.NONE)
+  private String ownerNormalized;
+
+  // El DEFAULT va en @ColumnDefault: un columnDefinition completo termina usandose como tipo del
+  // cast de los parametros en los UPDATE con aritmetica (a.balance - :amount).
+  // En memoria el saldo son centimos (ver Money); getBalance/setBalance siguen usando BigDecimal
+  // para el JSON y el resto de la API.
+  @Column(nullable = false, precision = 20, scale = 2)
+  @ColumnDefault("0.00")
+  @Convert(converter = MoneyConverter.class)
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long balance;
+
+  // Escala del ultimo saldo asignado con setBalance, para devolverlo tal cual se recibio. Los
+  // saldos leidos de la base de datos tienen escala 2
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient int balanceScale = Money.SCALE;
+
+  // Control de concurrencia optimista: un UPDATE con una version vieja falla en vez de pisar los
+  // cambios de otra transaccion
+  @Version
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long version;
+
+  // Modo ledger: ultimo asiento de ledger_entries ya sumado a balance. El saldo real es balance mas
+  // los asientos posteriores (ver LedgerService)
+  @JsonIgnore
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long ledgerSeq;
+
+  // GET /api/accounts/changes: cada escritura lo deja en 0 (pendiente) y AccountChangeStamper le
+  // asigna despues un valor mayor que todos los ya asignados
+  @JsonIgnore
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long changeSeq;
+
+  // Baja logica (POST /api/accounts/close): la fila sigue en la tabla, con su numero de cuenta
+  // ocupado, hasta que AccountPurger la borra pasado accounts.closing.purge-after
+  @JsonIgnore
+  @Column(nullable = false)
+  @ColumnDefault("false")
+  private boolean closed;
+
+  @JsonIgnore private Instant closedAt;
+
+  @PrePersist
+  @PreUpdate
+  void beforeWrite() {
+    ownerNormalized = normalizeOwner(owner);
+    changeSeq = 0;
+  }
+
+  // "Sra. María Núñez" -> "sra. maria nunez"
+  public static String normalizeOwner(String owner) {
+    if (owner == null) {
+      return null;
+    }
+    String withoutAccents =
+        COMBINING_MARKS
+            .matcher(Normalizer.normalize(owner.strip(), Normalizer.Form.NFD))
+            .replaceAll("");
+    return withoutAccents.toLowerCase(Locale.ROOT);
+  }
+
+  // Copia fuera del contexto de persistencia, con el mismo id y version: cambiarla no afecta al
+  // original (ver AccountCache)
+  public Account copy() {
+    Account copy = new Account();
+    copy.id = id;
+    copy.accountNumber = accountNumber;
+    copy.owner = owner;
+    copy.ownerNormalized = ownerNormalized;
+    copy.balance = balance;
+    copy.balanceScale = balanceScale;
+    copy.version = version;
+    copy.ledgerSeq = ledgerSeq;
+    copy.changeSeq = changeSeq;
+    copy.closed = closed;
+    copy.closedAt = closedAt;
+    return copy;
+  }
+
+  public BigDecimal getBalance() {
+    return Money.toBigDecimal(balance, balanceScale);
+  }
+
+  public Account setBalance(BigDecimal balance) {
+    this.balance = balance == null ? 0 : Money.toMinorUnits(balance);
+    this.balanceScale = balance == null ? Money.SCALE : Money.scaleOf(balance);
+    return this;
+  }
+
+  @JsonIgnore
+  public long getBalanceInMinorUnits() {
+    return balance;
+  }
 
   public void deposit(BigDecimal amount) {
-    balance = balance.add(amount);
+    deposit(Money.toMinorUnits(amount));
+  }
+
+  public void deposit(long amountInMinorUnits) {
+    balance = Money.add(balance, amountInMinorUnits);
   }
 
   public void withdraw(BigDecimal amount) {
-    BigDecimal newBalance = balance.subtract(amount);
-    if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-      throw new AccountInsufficientMoneyException(this, amount);
+    withdraw(Money.toMinorUnits(amount));
+  }
+
+  public void withdraw(long amountInMinorUnits) {
+    long newBalance = Money.subtract(balance, amountInMinorUnits);
+    if (newBalance < 0) {
+      throw new AccountInsufficientMoneyException(this, amountInMinorUnits);
     }
-    balance = balance.subtract(amount);
+    balance = newBalance;
   }
 }
@@ -0,0 +1,22 @@
+package org.lab.junit5.springboot.models.entitites;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+// Fila unica con el ultimo change_seq asignado a las cuentas. Se bloquea mientras se asignan, asi
+// las asignaciones de distintas instancias se confirman una detras de otra (ver
+// AccountService.stampChanges)
+@Data
+@Accessors(chain = true)
+@Entity
+@Table(name = "account_change_sequence")
+public class AccountChangeSequence {
+
+  public static final int ID = 1;
+
+  @Id private int id = ID;
+
+  @Column(nullable = false)
+  private long lastValue;
+}
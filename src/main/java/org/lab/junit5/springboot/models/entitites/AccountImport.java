@@ -0,0 +1,58 @@
+package org.lab.junit5.springboot.models.entitites;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+// Progreso de una importacion de cuentas desde CSV. Se actualiza en la misma transaccion que cada
+// chunk de cuentas: lastCommittedLine es la ultima linea del fichero ya procesada, y una
+// importacion interrumpida se retoma enviando el mismo fichero con su id.
+@Data
+@Accessors(chain = true)
+@Entity
+@Table(name = "account_imports")
+public class AccountImport {
+
+  public enum Status {
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_imports_seq")
+  @SequenceGenerator(name = "account_imports_seq", allocationSize = 1)
+  private Long id;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private Status status;
+
+  @Column(nullable = false)
+  private long lastCommittedLine;
+
+  @Column(nullable = false)
+  private int chunksCommitted;
+
+  @Column(nullable = false)
+  private long importedRows;
+
+  @Column(nullable = false)
+  private long failedRows;
+
+  // Motivo por el que se detuvo, con status FAILED
+  @Column(length = 1000)
+  private String failure;
+
+  @Column(nullable = false)
+  private Instant createdAt;
+
+  @Column(nullable = false)
+  private Instant updatedAt;
+
+  // Dos ejecuciones de la misma importacion a la vez: la segunda en confirmar un chunk falla
+  @Version
+  @Column(nullable = false)
+  private long version;
+}
@@ -3,6 +3,8 @@ package org.lab.junit5.springboot.models.entitites;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OptimisticLock;
 
 @Data
 @Accessors(chain = true)
@@ -10,13 +12,24 @@ import lombok.experimental.Accessors;
 @Table(name = "banks")
 public class Bank {
 
+  // Misma asignacion de ids que Account
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "banks_seq")
+  @SequenceGenerator(name = "banks_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false)
   private String name;
 
-  @Column(nullable = false, columnDefinition = "INTEGER DEFAULT 0")
+  // Cambia en cada transferencia: si incrementara la version, todas las transferencias del banco
+  // chocarian entre si
+  @OptimisticLock(excluded = true)
+  @Column(nullable = false)
+  @ColumnDefault("0")
   private int totalOfTransactions;
+
+  @Version
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long version;
 }
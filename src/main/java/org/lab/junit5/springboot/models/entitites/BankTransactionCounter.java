@@ -0,0 +1,49 @@
+package org.lab.junit5.springboot.models.entitites;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Contador de transferencias repartido en varias filas (slots) por banco: cada transferencia
+// incrementa un slot al azar, asi las transferencias del mismo banco no compiten por una sola fila.
+// El total es banks.total_of_transactions mas la suma de los slots. Los slots se borran con su banco
+// (ON DELETE CASCADE): un incremento posterior no encuentra fila y BankService comprueba el banco.
+@Data
+@Accessors(chain = true)
+@Entity
+@Table(name = "bank_transaction_counters")
+@IdClass(BankTransactionCounter.Key.class)
+public class BankTransactionCounter {
+
+  @Id
+  @Column(name = "bank_id")
+  private Long bankId;
+
+  // Solo para la clave foranea con ON DELETE CASCADE; la columna se escribe a traves de bankId
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "bank_id", insertable = false, updatable = false)
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private Bank bank;
+
+  @Id private int slot;
+
+  @Column(nullable = false)
+  private long transactions;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private Long bankId;
+    private int slot;
+  }
+}
@@ -0,0 +1,35 @@
+package org.lab.junit5.springboot.models.entitites;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+// Respuesta guardada de una peticion con Idempotency-Key. Mientras la peticion se esta procesando
+// responseStatus es null y startedAt marca el inicio de la ejecucion en curso.
+@Data
+@Accessors(chain = true)
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+  @Id
+  @Column(length = 100)
+  private String idempotencyKey;
+
+  // SHA-256 del cuerpo de la peticion: la misma clave con otro cuerpo es un error del cliente
+  @Column(nullable = false, length = 64)
+  private String requestHash;
+
+  private Integer responseStatus;
+
+  @Column(length = 4000)
+  private String responseBody;
+
+  @Column(nullable = false)
+  private Instant createdAt;
+
+  // Si pasa inProgressTimeout sin respuesta, la clave se da por abandonada y se cierra con un 409
+  @Column(nullable = false)
+  private Instant startedAt;
+}
@@ -0,0 +1,43 @@
+package org.lab.junit5.springboot.models.entitites;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.lab.junit5.springboot.models.money.MoneyConverter;
+
+// Asiento del libro mayor: cada transferencia escribe un debito (importe negativo) en la cuenta de
+// origen y un credito en la de destino. Los asientos nunca se modifican ni se borran.
+@Data
+@Accessors(chain = true)
+@Entity
+@Table(
+    name = "ledger_entries",
+    indexes = {
+      @Index(name = "ledger_entries_account_seq_idx", columnList = "account_id, seq"),
+      @Index(name = "ledger_entries_created_at_idx", columnList = "created_at")
+    })
+public class LedgerEntry {
+
+  // Con allocationSize = 1 cada seq sale de la secuencia de la base de datos en el momento de crear
+  // el asiento, de modo que el orden de seq es el orden de creacion tambien entre instancias. Los
+  // INSERT se siguen agrupando en batches JDBC (con IDENTITY no se podria)
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+  @SequenceGenerator(name = "ledger_entries_seq", allocationSize = 1)
+  private Long seq;
+
+  @Column(nullable = false)
+  private Long accountId;
+
+  @Column(nullable = false)
+  private Long counterpartyAccountId;
+
+  // Centimos, con signo: negativo para los debitos
+  @Column(nullable = false, precision = 20, scale = 2)
+  @Convert(converter = MoneyConverter.class)
+  private long amount;
+
+  @Column(nullable = false)
+  private Instant createdAt;
+}
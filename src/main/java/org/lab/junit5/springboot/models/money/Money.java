@@ -0,0 +1,58 @@
+package org.lab.junit5.springboot.models.money;
+
+import java.math.BigDecimal;
+import org.lab.junit5.springboot.exceptions.AccountInvalidAmountException;
+
+// Importes en punto fijo como long de unidades menores (centimos). Toda la aritmetica de saldos se
+// hace sobre long sin crear objetos; BigDecimal solo aparece en los bordes (JSON, base de datos y
+// mensajes de error). Las conversiones son exactas y la aritmetica falla con ArithmeticException
+// ante un overflow en vez de dar la vuelta.
+public final class Money {
+
+  public static final int SCALE = 2;
+
+  private Money() {}
+
+  // Un importe con mas de 2 decimales no se redondea: se rechaza
+  public static long toMinorUnits(BigDecimal amount) {
+    try {
+      return amount.movePointRight(SCALE).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new AccountInvalidAmountException(amount);
+    }
+  }
+
+  // Importe de una transferencia: ademas tiene que ser mayor que cero. Uno negativo invertiria la
+  // transferencia sin validar el saldo de la cuenta que en realidad pierde el dinero
+  public static long toTransferAmount(BigDecimal amount) {
+    long minorUnits = toMinorUnits(amount);
+    if (minorUnits <= 0) {
+      throw new AccountInvalidAmountException(amount, "Transfer amounts must be greater than 0");
+    }
+    return minorUnits;
+  }
+
+  public static BigDecimal toBigDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+
+  // Con la escala pedida siempre que no se pierdan decimales (1000 con escala 0, 12.50 con 2...)
+  public static BigDecimal toBigDecimal(long minorUnits, int scale) {
+    int requiredScale = minorUnits % 100 == 0 ? 0 : minorUnits % 10 == 0 ? 1 : SCALE;
+    return BigDecimal.valueOf(minorUnits, SCALE).setScale(Math.max(scale, requiredScale));
+  }
+
+  // Escala con la que se devuelve un importe recibido, entre 0 y 2
+  public static int scaleOf(BigDecimal amount) {
+    return Math.clamp(amount.scale(), 0, SCALE);
+  }
+
+  // Cualquier long cabe en las columnas DECIMAL(20, 2), basta con detectar el overflow del long
+  public static long add(long minorUnits, long amount) {
+    return Math.addExact(minorUnits, amount);
+  }
+
+  public static long subtract(long minorUnits, long amount) {
+    return Math.subtractExact(minorUnits, amount);
+  }
+}
@@ -0,0 +1,20 @@
+package org.lab.junit5.springboot.models.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+
+// Columnas DECIMAL(x, 2) <-> long de unidades menores
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+  @Override
+  public BigDecimal convertToDatabaseColumn(Long minorUnits) {
+    return minorUnits == null ? null : Money.toBigDecimal(minorUnits);
+  }
+
+  @Override
+  public Long convertToEntityAttribute(BigDecimal amount) {
+    return amount == null ? null : amount.movePointRight(Money.SCALE).longValueExact();
+  }
+}
@@ -0,0 +1,17 @@
+package org.lab.junit5.springboot.repositories;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.lab.junit5.springboot.models.entitites.AccountChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+public interface AccountChangeSequenceRepository
+    extends JpaRepository<AccountChangeSequence, Integer> {
+
+  // SELECT ... FOR UPDATE
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select s from AccountChangeSequence s where s.id = :id")
+  Optional<AccountChangeSequence> findByIdForUpdate(int id);
+}
@@ -0,0 +1,6 @@
+package org.lab.junit5.springboot.repositories;
+
+import org.lab.junit5.springboot.models.entitites.AccountImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AccountImportRepository extends JpaRepository<AccountImport, Long> {}
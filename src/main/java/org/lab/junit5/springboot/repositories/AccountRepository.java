@@ -1,10 +1,189 @@
 package org.lab.junit5.springboot.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.lab.junit5.springboot.models.entitites.Account;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
+
+  int EXPORT_FETCH_SIZE = 500;
+
+  // Proyeccion para las ETags (ver AccountETags): no carga la entidad
+  interface AccountVersion {
+    Long getId();
+
+    long getVersion();
+
+    // En centimos (ver Money)
+    long getBalance();
+  }
+
   Optional<Account> findByAccountNumber(String accountNumber);
+
+  // Usa el indice unico de account_number
+  List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+  // Paginacion por clave: recorre el indice de la PK desde afterId, sin OFFSET ni COUNT(*)
+  List<Account> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  // Busqueda por prefijo del titular, paginada por clave (ownerNormalized, id) desde la ultima
+  // cuenta devuelta. El LIKE 'x%' y el orden salen del indice accounts_owner_normalized_idx; en
+  // Postgres con una collation distinta de C el indice necesita text_pattern_ops para el LIKE
+  @Query(
+      "select a from Account a where a.ownerNormalized like :pattern escape '\\'"
+          + " and (a.ownerNormalized, a.id) > (:afterOwner, :afterId)"
+          + " order by a.ownerNormalized, a.id")
+  List<Account> findByOwnerPrefix(String pattern, String afterOwner, Long afterId, Limit limit);
+
+  // Solo el saldo, en centimos (ver Money): no se carga la entidad en el contexto de persistencia
+  @Query("select a.balance from Account a where a.id = :accountId")
+  Optional<Long> findBalanceById(Long accountId);
+
+  // Filas [id, saldo en centimos]
+  @Query("select a.id, a.balance from Account a where a.id in :accountIds")
+  List<Object[]> findBalancesByIdIn(Collection<Long> accountIds);
+
+  // Cambios confirmados despues de changeSeq, por el indice de change_seq. Las pendientes (0) no
+  // aparecen hasta que se les asigna un valor
+  List<Account> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Limit limit);
+
+  @Query("select max(a.id) from Account a where a.changeSeq = 0")
+  Optional<Long> findMaxIdWithPendingChange();
+
+  // Las cuentas pendientes hasta maxId pasan a base + id: valores unicos y mayores que base, con
+  // huecos. No toca version, las ETags no cambian
+  @Modifying
+  @Query(
+      "update Account a set a.changeSeq = :base + a.id"
+          + " where a.changeSeq = 0 and a.id <= :maxId")
+  int stampChanges(long base, long maxId);
+
+  // AccountNumberFilter: filas [numero, changeSeq] de las cuentas escritas despues de changeSeq o
+  // todavia sin numerar, por el indice de change_seq
+  @Query(
+      "select a.accountNumber, a.changeSeq from Account a"
+          + " where a.changeSeq = 0 or a.changeSeq > :changeSeq")
+  List<Object[]> findNumbersChangedAfter(long changeSeq);
+
+  @Query("select coalesce(max(a.changeSeq), 0) from Account a")
+  long findMaxChangeSeq();
+
+  Optional<AccountVersion> findVersionByAccountNumber(String accountNumber);
+
+  List<AccountVersion> findVersionsByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  // SELECT ... FOR UPDATE
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select a from Account a where a.id = :accountId")
+  Optional<Account> findByIdForUpdate(Long accountId);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select a from Account a where a.id in :accountIds order by a.id")
+  List<Account> findAllByIdForUpdate(Collection<Long> accountIds);
+
+  // Las entidades no se revisan al hacer flush: los cambios en memoria no se escriben
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+  @Query("select a from Account a where a.id in :accountIds")
+  List<Account> findAllByIdReadOnly(Collection<Long> accountIds);
+
+  // Exportacion: las filas se leen del cursor JDBC de FETCH_SIZE en FETCH_SIZE (en Postgres solo
+  // dentro de una transaccion) y las entidades no se revisan al hacer flush
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("select a from Account a order by a.id")
+  Stream<Account> streamAllOrderById();
+
+  // Solo los numeros, para construir AccountNumberFilter sin cargar entidades
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+  @Query("select a.accountNumber from Account a")
+  Stream<String> streamAllAccountNumbers();
+
+  // Modo ledger: bloquea las cuentas sin escribirlas, el saldo en memoria solo sirve para validar
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+  @Query("select a from Account a where a.id in :accountIds order by a.id")
+  List<Account> findAllByIdForUpdateReadOnly(Collection<Long> accountIds);
+
+  // Importes en centimos (ver Money). Solo descuenta si el saldo alcanza, devuelve 0 filas si no
+  // existe o no tiene saldo suficiente
+  @Modifying
+  @Query(
+      "update Account a set a.balance = a.balance - :amount, a.version = a.version + 1,"
+          + " a.changeSeq = 0"
+          + " where a.id = :accountId and a.balance >= :amount")
+  int withdraw(Long accountId, long amount);
+
+  @Modifying
+  @Query(
+      "update Account a set a.balance = a.balance + :amount, a.version = a.version + 1,"
+          + " a.changeSeq = 0"
+          + " where a.id = :accountId")
+  int deposit(Long accountId, long amount);
+
+  // Cambia el titular sin leer antes la cuenta ni tocar el saldo
+  @Modifying
+  @Query(
+      "update Account a set a.owner = :owner, a.ownerNormalized = :ownerNormalized,"
+          + " a.version = a.version + 1, a.changeSeq = 0"
+          + " where a.id = :accountId")
+  int updateOwner(Long accountId, String owner, String ownerNormalized);
+
+  // Baja logica de varias cuentas a la vez, sin cargarlas
+  @Modifying
+  @Query(
+      "update Account a set a.closed = true, a.closedAt = :closedAt, a.version = a.version + 1,"
+          + " a.changeSeq = 0"
+          + " where a.id in :accountIds and a.closed = false")
+  int closeByIdIn(Collection<Long> accountIds, Instant closedAt);
+
+  // Borrado de varias cuentas, abiertas o cerradas, sin cargarlas (deleteById hace un select antes)
+  @Modifying
+  @Query(value = "delete from accounts where id in :accountIds", nativeQuery = true)
+  int deleteByIdIn(Collection<Long> accountIds);
+
+  // Borra como mucho batchSize cuentas cerradas antes de closedBefore. En su propia transaccion:
+  // se llama en bucle y cada llamada bloquea solo las filas que borra
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "delete from accounts where id in (select id from accounts"
+              + " where closed = true and closed_at <= :closedBefore"
+              + " order by closed_at limit :batchSize)",
+      nativeQuery = true)
+  int purgeClosed(Instant closedBefore, int batchSize);
+
+  // Numeros de cuenta ya usados, tambien por cuentas cerradas que aun no se han purgado
+  @Query(
+      value = "select account_number from accounts where account_number in :accountNumbers",
+      nativeQuery = true)
+  List<String> findUsedAccountNumbers(Collection<String> accountNumbers);
+
+  // Suma al saldo los asientos de ledger_entries hasta maxSeq que todavia no estaban incluidos
+  @Modifying
+  @Query(
+      value =
+          "update accounts set balance = balance + coalesce((select sum(e.amount)"
+              + " from ledger_entries e where e.account_id = accounts.id"
+              + " and e.seq > accounts.ledger_seq and e.seq <= :maxSeq), 0),"
+              + " ledger_seq = :maxSeq, version = version + 1, change_seq = 0"
+              + " where id = :accountId and ledger_seq < :maxSeq",
+      nativeQuery = true)
+  int snapshotLedger(Long accountId, long maxSeq);
 }
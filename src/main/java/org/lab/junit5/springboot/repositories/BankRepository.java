@@ -1,6 +1,28 @@
 package org.lab.junit5.springboot.repositories;
 
+import java.util.List;
+import java.util.Optional;
 import org.lab.junit5.springboot.models.entitites.Bank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
-public interface BankRepository extends JpaRepository<Bank, Long> {}
+public interface BankRepository extends JpaRepository<Bank, Long> {
+
+  // Una sola consulta, para no leer el banco y los slots en momentos distintos mientras la
+  // compactacion mueve transacciones de los slots al banco
+  @Query(
+      "select b.totalOfTransactions + coalesce((select sum(c.transactions)"
+          + " from BankTransactionCounter c where c.bankId = b.id), 0)"
+          + " from Bank b where b.id = :bankId")
+  Optional<Long> findTotalOfTransactionsById(Long bankId);
+
+  @Query("select b.id from Bank b")
+  List<Long> findAllIds();
+
+  @Modifying
+  @Query(
+      "update Bank b set b.totalOfTransactions = b.totalOfTransactions + :transactions"
+          + " where b.id = :bankId")
+  int addToTotalOfTransactions(Long bankId, int transactions);
+}
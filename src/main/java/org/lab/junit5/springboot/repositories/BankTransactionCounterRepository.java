@@ -0,0 +1,34 @@
+package org.lab.junit5.springboot.repositories;
+
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import org.lab.junit5.springboot.models.entitites.BankTransactionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface BankTransactionCounterRepository
+    extends JpaRepository<BankTransactionCounter, BankTransactionCounter.Key> {
+
+  @Modifying
+  @Query(
+      "update BankTransactionCounter c set c.transactions = c.transactions + :transactions"
+          + " where c.bankId = :bankId and c.slot = :slot")
+  int increment(Long bankId, int slot, long transactions);
+
+  @Modifying
+  @Query(
+      value =
+          "insert into bank_transaction_counters (bank_id, slot, transactions)"
+              + " values (:bankId, :slot, :transactions)",
+      nativeQuery = true)
+  int insert(Long bankId, int slot, long transactions);
+
+  @Query("select distinct c.bankId from BankTransactionCounter c where c.transactions > 0")
+  List<Long> findBankIdsWithPendingTransactions();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select c from BankTransactionCounter c where c.bankId = :bankId and c.transactions > 0")
+  List<BankTransactionCounter> findPendingByBankIdForUpdate(Long bankId);
+}
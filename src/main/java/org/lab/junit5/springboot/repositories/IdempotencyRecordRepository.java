@@ -0,0 +1,55 @@
+package org.lab.junit5.springboot.repositories;
+
+import java.time.Instant;
+import org.lab.junit5.springboot.models.entitites.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+  // INSERT directo (save haria un merge): si la clave ya existe falla con una violacion de PK
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "insert into idempotency_keys (idempotency_key, request_hash, created_at, started_at)"
+              + " values (:idempotencyKey, :requestHash, :createdAt, :createdAt)",
+      nativeQuery = true)
+  int insertInProgress(String idempotencyKey, String requestHash, Instant createdAt);
+
+  // Cierra con una respuesta final una clave en curso cuya ejecucion empezo antes de
+  // abandonedBefore. No cambia startedAt: si la ejecucion original termina despues, complete no
+  // encuentra la fila en curso y no pisa esta respuesta
+  @Transactional
+  @Modifying
+  @Query(
+      "update IdempotencyRecord r set r.responseStatus = :responseStatus,"
+          + " r.responseBody = :responseBody where r.idempotencyKey = :idempotencyKey"
+          + " and r.responseStatus is null and r.startedAt < :abandonedBefore")
+  int abandon(
+      String idempotencyKey, int responseStatus, String responseBody, Instant abandonedBefore);
+
+  // Solo la ejecucion que empezo en startedAt guarda la respuesta, y solo si la clave no se dio por
+  // abandonada entre medias
+  @Transactional
+  @Modifying
+  @Query(
+      "update IdempotencyRecord r set r.responseStatus = :responseStatus,"
+          + " r.responseBody = :responseBody where r.idempotencyKey = :idempotencyKey"
+          + " and r.responseStatus is null and r.startedAt = :startedAt")
+  int complete(String idempotencyKey, Instant startedAt, int responseStatus, String responseBody);
+
+  @Transactional
+  @Modifying
+  @Query(
+      "delete from IdempotencyRecord r where r.idempotencyKey = :idempotencyKey"
+          + " and r.responseStatus is null and r.startedAt = :startedAt")
+  int deleteInProgress(String idempotencyKey, Instant startedAt);
+
+  @Transactional
+  @Modifying
+  @Query("delete from IdempotencyRecord r where r.createdAt < :createdBefore")
+  int deleteCreatedBefore(Instant createdBefore);
+}
@@ -0,0 +1,50 @@
+package org.lab.junit5.springboot.repositories;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.lab.junit5.springboot.models.entitites.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+  // Saldo consolidado mas los asientos posteriores, que se leen por el indice (account_id, seq).
+  // SQL nativo: las cuentas cerradas se filtran aqui (ver Account)
+  @Query(
+      value =
+          "select a.balance + coalesce((select sum(e.amount) from ledger_entries e"
+              + " where e.account_id = a.id and e.seq > a.ledger_seq), 0)"
+              + " from accounts a where a.id = :accountId and a.closed = false",
+      nativeQuery = true)
+  Optional<BigDecimal> findBalance(Long accountId);
+
+  // Filas [id, saldo] de varias cuentas, calculado igual que findBalance
+  @Query(
+      value =
+          "select a.id, a.balance + coalesce((select sum(e.amount) from ledger_entries e"
+              + " where e.account_id = a.id and e.seq > a.ledger_seq), 0)"
+              + " from accounts a where a.id in :accountIds and a.closed = false",
+      nativeQuery = true)
+  List<Object[]> findBalances(Collection<Long> accountIds);
+
+  // Filas [account_id, suma de los asientos sin consolidar] de las cuentas que tienen alguno
+  @Query(
+      value =
+          "select e.account_id, sum(e.amount) from ledger_entries e"
+              + " join accounts a on a.id = e.account_id"
+              + " where e.account_id in :accountIds and e.seq > a.ledger_seq"
+              + " group by e.account_id",
+      nativeQuery = true)
+  List<Object[]> sumPendingAmounts(Collection<Long> accountIds);
+
+  @Query("select max(e.seq) from LedgerEntry e where e.createdAt <= :createdBefore")
+  Optional<Long> findMaxSeqCreatedBefore(Instant createdBefore);
+
+  @Query(
+      "select distinct e.accountId from LedgerEntry e, Account a"
+          + " where a.id = e.accountId and e.seq > a.ledgerSeq and e.seq <= :maxSeq")
+  List<Long> findAccountIdsWithPendingEntries(long maxSeq);
+}
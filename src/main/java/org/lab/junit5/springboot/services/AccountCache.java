@@ -0,0 +1,188 @@
+package org.lab.junit5.springboot.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.lab.junit5.springboot.config.AccountCacheProperties;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Cuentas por id y numero de cuenta -> id. Caffeine acota el tamano (expulsion W-TinyLFU) y el
+// tiempo de vida, y publica metricas cache.* con name=accounts-by-id y name=account-ids-by-number.
+//
+// Quien modifica una cuenta llama a evictAfterCommit dentro de su transaccion. La entrada se
+// invalida al terminar la transaccion, cuando el cambio ya es visible. Si en ese momento otro hilo
+// esta cargando la misma cuenta (con el valor anterior), la invalidacion quita la carga en curso y
+// su resultado ya no se guarda, asi que un saldo viejo no puede quedarse en la cache despues de un
+// commit.
+//
+// accountsById es una AsyncCache para que las lecturas de la base de datos se hagan fuera de los
+// locks de Caffeine (ver getById).
+//
+// La instancia guardada nunca sale de la cache: cada llamador recibe su propia copia
+// (Account.copy), asi quien la modifique (o la pase a save) no cambia lo que leen los demas.
+//
+// La invalidacion es local: en un despliegue con varias instancias, las demas siguen sirviendo su
+// copia hasta que caduca (accounts.cache.ttl).
+//
+// Las cuentas leidas por numero no pasan por ese mecanismo (el id no se conoce hasta leerlas): se
+// guardan con putLoaded solo si no hubo ninguna invalidacion desde antes de la lectura (epoch).
+// loadByNumber agrupa las lecturas concurrentes del mismo numero en una sola consulta.
+@Component
+public class AccountCache {
+
+  private final AsyncCache<Long, Account> accountsById;
+  private final Cache<String, Long> accountIdsByNumber;
+  private final AtomicLong epoch = new AtomicLong();
+  private final ConcurrentMap<String, NumberLoad> numberLoads = new ConcurrentHashMap<>();
+
+  // Lectura por numero en curso y epoch al empezarla
+  private record NumberLoad(long epoch, CompletableFuture<Optional<Account>> result) {}
+
+  public AccountCache(AccountCacheProperties cacheProperties, MeterRegistry meterRegistry) {
+    this.accountsById = newBuilder(cacheProperties).buildAsync();
+    this.accountIdsByNumber = newBuilder(cacheProperties).build();
+    CaffeineCacheMetrics.monitor(meterRegistry, accountsById, "accounts-by-id");
+    CaffeineCacheMetrics.monitor(meterRegistry, accountIdsByNumber, "account-ids-by-number");
+  }
+
+  private static Caffeine<Object, Object> newBuilder(AccountCacheProperties cacheProperties) {
+    return Caffeine.newBuilder()
+        .maximumSize(cacheProperties.maxSize())
+        .expireAfterWrite(cacheProperties.ttl())
+        .recordStats();
+  }
+
+  // Los loader devuelven Optional.empty() si no existe: las cuentas que no existen no se guardan.
+  // Caffeine solo guarda un future vacio (dentro de un ConcurrentHashMap.compute, que es
+  // synchronized) y la consulta se hace despues, fuera del lock: un hilo virtual no queda fijado a
+  // su carrier mientras espera a la base de datos. Quien pide la misma cuenta espera ese future
+  public Optional<Account> getById(Long accountId, Function<Long, Optional<Account>> loader) {
+    CompletableFuture<Account> load = new CompletableFuture<>();
+    CompletableFuture<Account> cached = accountsById.get(accountId, (id, executor) -> load);
+    if (cached != load) {
+      return Optional.ofNullable(join(cached)).map(Account::copy);
+    }
+    try {
+      Optional<Account> account = loader.apply(accountId);
+      // Con null Caffeine quita la entrada
+      load.complete(account.map(Account::copy).orElse(null));
+      return account;
+    } catch (RuntimeException e) {
+      load.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  public Optional<Long> getIdByNumber(String accountNumber) {
+    return Optional.ofNullable(accountIdsByNumber.getIfPresent(accountNumber));
+  }
+
+  // Se lee antes de cargar una cuenta por numero y se pasa a putLoaded
+  public long epoch() {
+    return epoch.get();
+  }
+
+  // Si hubo una invalidacion despues de leer epoch la cuenta puede ser anterior al commit y no se
+  // guarda. Si la invalidacion llega despues del compute, borra la entrada recien guardada
+  public void putLoaded(Account account, long loadedAtEpoch) {
+    accountIdsByNumber.put(account.getAccountNumber(), account.getId());
+    accountsById
+        .asMap()
+        .compute(
+            account.getId(),
+            (id, cached) ->
+                cached != null || epoch.get() != loadedAtEpoch
+                    ? cached
+                    : CompletableFuture.completedFuture(account.copy()));
+  }
+
+  // Lee una cuenta por numero con loader y la guarda con putLoaded. Quien pide el mismo numero
+  // mientras tanto espera esa lectura en vez de repetirla, salvo que haya habido una invalidacion
+  // desde que empezo: el resultado podria ser anterior a un commit que el llamador ya vio
+  public Optional<Account> loadByNumber(
+      String accountNumber, Function<String, Optional<Account>> loader) {
+    long loadEpoch = epoch.get();
+    NumberLoad load = new NumberLoad(loadEpoch, new CompletableFuture<>());
+    NumberLoad running = numberLoads.putIfAbsent(accountNumber, load);
+    if (running != null && running.epoch() == loadEpoch) {
+      return join(running.result()).map(Account::copy);
+    }
+    if (running != null) {
+      return loadAndPut(accountNumber, loader, loadEpoch);
+    }
+
+    try {
+      Optional<Account> account = loadAndPut(accountNumber, loader, loadEpoch);
+      load.result().complete(account.map(Account::copy));
+      return account;
+    } catch (RuntimeException e) {
+      load.result().completeExceptionally(e);
+      throw e;
+    } finally {
+      numberLoads.remove(accountNumber, load);
+    }
+  }
+
+  private Optional<Account> loadAndPut(
+      String accountNumber, Function<String, Optional<Account>> loader, long loadEpoch) {
+    Optional<Account> account = loader.apply(accountNumber);
+    account.ifPresent(loaded -> putLoaded(loaded, loadEpoch));
+    return account;
+  }
+
+  // Se relanza la excepcion de la lectura original
+  private static <T> T join(CompletableFuture<T> result) {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  public void evictNumber(String accountNumber) {
+    accountIdsByNumber.invalidate(accountNumber);
+  }
+
+  public void evictAfterCommit(Long accountId) {
+    evictAfterCommit(List.of(accountId));
+  }
+
+  // Fuera de una transaccion se invalida en el momento. Tambien se invalida si hay rollback: no
+  // hace falta, pero es inofensivo y evita distinguir casos
+  public void evictAfterCommit(Collection<Long> accountIds) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      invalidate(accountIds);
+      return;
+    }
+    List<Long> ids = List.copyOf(accountIds);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            invalidate(ids);
+          }
+        });
+  }
+
+  private void invalidate(Collection<Long> accountIds) {
+    epoch.incrementAndGet();
+    accountsById.synchronous().invalidateAll(accountIds);
+  }
+}
@@ -0,0 +1,24 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class AccountChangeStamper {
+
+  private final AccountService accountService;
+
+  @Scheduled(fixedDelayString = "${accounts.changes.stamp-interval:1s}")
+  public void stamp() {
+    try {
+      accountService.stampChanges();
+    } catch (RuntimeException e) {
+      // Se vuelve a intentar en la siguiente ejecucion
+      log.warn("No se pudieron numerar los cambios de las cuentas: {}", e.getMessage());
+    }
+  }
+}
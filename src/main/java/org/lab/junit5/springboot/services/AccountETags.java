@@ -0,0 +1,82 @@
+package org.lab.junit5.springboot.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+
+// ETags fuertes de las cuentas: id, version, que cambia en cada UPDATE de la fila, y saldo en
+// centimos, que en modo ledger cambia sin tocar la fila (ver LedgerService). La de una pagina es un
+// hash de esos valores de sus cuentas y del cursor siguiente, asi se puede calcular igual desde las
+// entidades o desde una consulta que solo lee id, version y saldo.
+public final class AccountETags {
+
+  private AccountETags() {}
+
+  public static String of(Account account) {
+    return of(account.getId(), account.getVersion(), account.getBalanceInMinorUnits());
+  }
+
+  static String of(Long accountId, long version, long balance) {
+    return "\"%d-%d-%d\"".formatted(accountId, version, balance);
+  }
+
+  public static String of(AccountPageDTO page) {
+    return ofPage(
+        page.accounts(),
+        Account::getId,
+        Account::getVersion,
+        Account::getBalanceInMinorUnits,
+        page.nextCursor());
+  }
+
+  static <T> String ofPage(
+      List<T> rows,
+      Function<T, Long> id,
+      ToLongFunction<T> version,
+      ToLongFunction<T> balance,
+      String nextCursor) {
+    StringBuilder content = new StringBuilder();
+    for (T row : rows) {
+      content
+          .append(id.apply(row))
+          .append('-')
+          .append(version.applyAsLong(row))
+          .append('-')
+          .append(balance.applyAsLong(row))
+          .append(',');
+    }
+    content.append(nextCursor);
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+      return "\"%s\"".formatted(HexFormat.of().formatHex(digest, 0, 16));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // If-None-Match puede traer varias ETags separadas por comas o *. Se compara en forma debil,
+  // como indica el RFC 9110 para If-None-Match
+  public static boolean matches(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String value = candidate.trim();
+      if (value.startsWith("W/")) {
+        value = value.substring(2);
+      }
+      if (value.equals("*") || value.equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,71 @@
+package org.lab.junit5.springboot.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.models.dtos.AccountImportErrorDTO;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Importacion desde la linea de comandos: --import-accounts=<fichero CSV> [--import-id=<id>] para
+// retomar una importacion detenida. Sin --import-accounts no hace nada
+@Slf4j
+@Component
+public class AccountImportRunner implements ApplicationRunner {
+
+  static final String FILE_OPTION = "import-accounts";
+  static final String IMPORT_ID_OPTION = "import-id";
+
+  private final AccountImportService accountImportService;
+
+  public AccountImportRunner(AccountImportService accountImportService) {
+    this.accountImportService = accountImportService;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    List<String> files = args.getOptionValues(FILE_OPTION);
+    if (files == null || files.isEmpty()) {
+      return;
+    }
+    List<String> importIds = args.getOptionValues(IMPORT_ID_OPTION);
+    Long importId =
+        importIds == null || importIds.isEmpty() ? null : Long.valueOf(importIds.get(0));
+    Path file = Path.of(files.get(0));
+
+    AccountImportResultDTO result;
+    try (Reader csv = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      result = accountImportService.importAccounts(csv, importId);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read " + file, e);
+    }
+    log.info(
+        "Importacion {} de {}: {}, {} cuentas creadas, {} filas con error, ultima linea {}",
+        result.importId(),
+        file,
+        result.status(),
+        result.importedRows(),
+        result.failedRows(),
+        result.lastCommittedLine());
+    for (AccountImportErrorDTO error : result.errors()) {
+      log.warn("Linea {}: {}", error.line(), error.message());
+    }
+    if (result.failure() != null) {
+      log.warn(
+          "Importacion {} detenida: {}. Para retomarla: --{}={} --{}={}",
+          result.importId(),
+          result.failure(),
+          FILE_OPTION,
+          file,
+          IMPORT_ID_OPTION,
+          result.importId());
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package org.lab.junit5.springboot.services;
+
+import java.io.Reader;
+import java.util.Optional;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+
+public interface AccountImportService {
+
+  AccountImportResultDTO importAccounts(Reader csv, Long resumeImportId);
+
+  Optional<AccountImportResultDTO> findImport(Long importId);
+}
@@ -0,0 +1,272 @@
+package org.lab.junit5.springboot.services;
+
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.AccountImportProperties;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.models.dtos.AccountImportErrorDTO;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.AccountImport;
+import org.lab.junit5.springboot.repositories.AccountImportRepository;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Importa cuentas desde un CSV "accountNumber,owner,balance" leido como stream. Las filas se
+// acumulan hasta chunkSize y cada chunk se escribe en su propia transaccion junto con el progreso
+// de la importacion; mientras se escribe un chunk no se lee mas del fichero, asi que en memoria
+// nunca hay mas de un chunk. Una fila invalida o con un numero de cuenta que ya existe se cuenta
+// como error y la importacion sigue.
+@Slf4j
+@Service
+public class AccountImportServiceImpl implements AccountImportService {
+
+  static final List<String> HEADER = List.of("accountNumber", "owner", "balance");
+
+  // Un chunk que falla por un numero de cuenta insertado a la vez por otra transaccion se vuelve a
+  // comprobar y escribir
+  private static final int CHUNK_ATTEMPTS = 3;
+
+  private final AccountRepository accountRepository;
+  private final AccountImportRepository accountImportRepository;
+  private final AccountNumberFilter accountNumberFilter;
+  private final AccountImportProperties importProperties;
+  private final TransactionTemplate transactionTemplate;
+  private final EntityManager entityManager;
+  private final Clock clock;
+
+  public AccountImportServiceImpl(
+      AccountRepository accountRepository,
+      AccountImportRepository accountImportRepository,
+      AccountNumberFilter accountNumberFilter,
+      AccountImportProperties importProperties,
+      PlatformTransactionManager transactionManager,
+      EntityManager entityManager) {
+    this.accountRepository = accountRepository;
+    this.accountImportRepository = accountImportRepository;
+    this.accountNumberFilter = accountNumberFilter;
+    this.importProperties = importProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.entityManager = entityManager;
+    this.clock = Clock.systemUTC();
+  }
+
+  // Con resumeImportId se retoma una importacion: las lineas hasta su lastCommittedLine ya estan
+  // escritas y solo se leen para saltarlas. Los errores de lectura o de la base de datos detienen
+  // la importacion con status FAILED; se puede retomar desde el ultimo chunk confirmado
+  @Override
+  public AccountImportResultDTO importAccounts(Reader csv, Long resumeImportId) {
+    AccountImport accountImport = startImport(resumeImportId);
+    List<AccountImportErrorDTO> reportedErrors = new ArrayList<>();
+    try {
+      CsvRecordReader reader = new CsvRecordReader(csv);
+      checkHeader(reader.next());
+      List<ImportRow> chunk = new ArrayList<>(importProperties.chunkSize());
+      CsvRecordReader.CsvRecord record;
+      while ((record = reader.next()) != null) {
+        if (record.line() <= accountImport.getLastCommittedLine() || record.isBlank()) {
+          continue;
+        }
+        chunk.add(ImportRow.parse(record));
+        if (chunk.size() == importProperties.chunkSize()) {
+          accountImport = writeChunk(accountImport, chunk, reportedErrors);
+          chunk.clear();
+        }
+      }
+      if (!chunk.isEmpty()) {
+        accountImport = writeChunk(accountImport, chunk, reportedErrors);
+      }
+      accountImport = finish(accountImport, AccountImport.Status.COMPLETED, null);
+    } catch (AccountException e) {
+      finish(accountImport, AccountImport.Status.FAILED, e.getMessage());
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Importacion de cuentas {} detenida: {}", accountImport.getId(), e.getMessage());
+      accountImport = finish(accountImport, AccountImport.Status.FAILED, e.getMessage());
+    }
+    return AccountImportResultDTO.of(accountImport, reportedErrors);
+  }
+
+  @Override
+  public Optional<AccountImportResultDTO> findImport(Long importId) {
+    return accountImportRepository
+        .findById(importId)
+        .map(accountImport -> AccountImportResultDTO.of(accountImport, List.of()));
+  }
+
+  private AccountImport startImport(Long resumeImportId) {
+    Instant now = clock.instant();
+    if (resumeImportId == null) {
+      return accountImportRepository.save(
+          new AccountImport()
+              .setStatus(AccountImport.Status.RUNNING)
+              .setCreatedAt(now)
+              .setUpdatedAt(now));
+    }
+    AccountImport accountImport =
+        accountImportRepository
+            .findById(resumeImportId)
+            .orElseThrow(
+                () -> new AccountException("Import %d not found".formatted(resumeImportId)));
+    if (accountImport.getStatus() == AccountImport.Status.COMPLETED) {
+      throw new AccountException("Import %d is already completed".formatted(resumeImportId));
+    }
+    return accountImportRepository.save(
+        accountImport.setStatus(AccountImport.Status.RUNNING).setFailure(null).setUpdatedAt(now));
+  }
+
+  private static void checkHeader(CsvRecordReader.CsvRecord header) {
+    boolean valid =
+        header != null && header.error() == null && header.fields().size() == HEADER.size();
+    for (int i = 0; valid && i < HEADER.size(); i++) {
+      valid = HEADER.get(i).equalsIgnoreCase(header.fields().get(i).strip());
+    }
+    if (!valid) {
+      throw new AccountException("Invalid CSV header, expected " + String.join(",", HEADER));
+    }
+  }
+
+  // Escribe las filas validas del chunk y actualiza el progreso en una sola transaccion: si falla,
+  // no queda nada del chunk y la importacion se retoma desde el anterior
+  private AccountImport writeChunk(
+      AccountImport accountImport, List<ImportRow> chunk, List<AccountImportErrorDTO> reported) {
+    long lastLine = chunk.getLast().line();
+    for (int attempt = 1; ; attempt++) {
+      List<AccountImportErrorDTO> errors = new ArrayList<>();
+      try {
+        AccountImport updated =
+            transactionTemplate.execute(
+                status -> {
+                  List<Account> accounts = validAccounts(chunk, errors);
+                  accounts.forEach(account -> accountNumberFilter.add(account.getAccountNumber()));
+                  accountRepository.saveAll(accounts);
+                  accountRepository.flush();
+                  // Se parte de la fila actual para que un intento fallido no deje contadores
+                  // modificados; si otra ejecucion la cambio entretanto, esta se detiene
+                  AccountImport current =
+                      accountImportRepository
+                          .findById(accountImport.getId())
+                          .filter(found -> found.getVersion() == accountImport.getVersion())
+                          .orElseThrow(
+                              () ->
+                                  new ObjectOptimisticLockingFailureException(
+                                      AccountImport.class, accountImport.getId()));
+                  return accountImportRepository.save(
+                      current
+                          .setLastCommittedLine(lastLine)
+                          .setChunksCommitted(current.getChunksCommitted() + 1)
+                          .setImportedRows(current.getImportedRows() + accounts.size())
+                          .setFailedRows(current.getFailedRows() + errors.size())
+                          .setUpdatedAt(clock.instant()));
+                });
+        int room = importProperties.maxReportedErrors() - reported.size();
+        reported.addAll(errors.subList(0, Math.clamp(room, 0, errors.size())));
+        return updated;
+      } catch (DataIntegrityViolationException e) {
+        if (attempt == CHUNK_ATTEMPTS) {
+          throw e;
+        }
+      } finally {
+        // Con open-in-view todas las transacciones de la peticion usan el mismo contexto de
+        // persistencia, que si no guardaria cada cuenta importada hasta el final de la peticion
+        entityManager.clear();
+      }
+    }
+  }
+
+  // Filas del chunk que se pueden insertar; el resto se anade a errors
+  private List<Account> validAccounts(List<ImportRow> chunk, List<AccountImportErrorDTO> errors) {
+    Set<String> numbers = new HashSet<>();
+    for (ImportRow row : chunk) {
+      if (row.account() != null) {
+        numbers.add(row.account().getAccountNumber());
+      }
+    }
+    Set<String> existing =
+        numbers.isEmpty()
+            ? Set.of()
+            : new HashSet<>(accountRepository.findUsedAccountNumbers(numbers));
+    Set<String> seen = new HashSet<>();
+    List<Account> accounts = new ArrayList<>(chunk.size());
+    for (ImportRow row : chunk) {
+      if (row.error() != null) {
+        errors.add(new AccountImportErrorDTO(row.line(), row.error()));
+      } else if (existing.contains(row.account().getAccountNumber())) {
+        errors.add(new AccountImportErrorDTO(row.line(), "Account number already exists"));
+      } else if (!seen.add(row.account().getAccountNumber())) {
+        errors.add(new AccountImportErrorDTO(row.line(), "Duplicate account number in file"));
+      } else {
+        // Una cuenta nueva en cada intento: las de un intento fallido ya tienen id asignado
+        accounts.add(copyOf(row.account()));
+      }
+    }
+    return accounts;
+  }
+
+  private static Account copyOf(Account account) {
+    return new Account()
+        .setAccountNumber(account.getAccountNumber())
+        .setOwner(account.getOwner())
+        .setBalance(account.getBalance());
+  }
+
+  private AccountImport finish(
+      AccountImport accountImport, AccountImport.Status status, String failure) {
+    String truncated =
+        failure == null ? null : failure.substring(0, Math.min(failure.length(), 1000));
+    return accountImportRepository.save(
+        accountImport.setStatus(status).setFailure(truncated).setUpdatedAt(clock.instant()));
+  }
+
+  // Fila del CSV ya validada: account es null si tiene error
+  private record ImportRow(long line, Account account, String error) {
+
+    static ImportRow parse(CsvRecordReader.CsvRecord record) {
+      if (record.error() != null) {
+        return new ImportRow(record.line(), null, record.error());
+      }
+      List<String> fields = record.fields();
+      if (fields.size() != HEADER.size()) {
+        return new ImportRow(
+            record.line(),
+            null,
+            "Expected %d fields but found %d".formatted(HEADER.size(), fields.size()));
+      }
+      String accountNumber = fields.get(0).strip();
+      String owner = fields.get(1).strip();
+      if (accountNumber.isEmpty()) {
+        return new ImportRow(record.line(), null, "Account number is required");
+      }
+      if (owner.isEmpty()) {
+        return new ImportRow(record.line(), null, "Owner is required");
+      }
+      try {
+        BigDecimal balance = new BigDecimal(fields.get(2).strip());
+        if (balance.signum() < 0) {
+          return new ImportRow(record.line(), null, "Balance must not be negative");
+        }
+        Account account =
+            new Account().setAccountNumber(accountNumber).setOwner(owner).setBalance(balance);
+        return new ImportRow(record.line(), account, null);
+      } catch (NumberFormatException e) {
+        return new ImportRow(record.line(), null, "Invalid balance '%s'".formatted(fields.get(2)));
+      } catch (AccountException e) {
+        return new ImportRow(record.line(), null, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package org.lab.junit5.springboot.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.AccountNumberFilterProperties;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Filtro de Bloom con todos los numeros de cuenta conocidos: si dice que un numero no existe, no
+// existe, y la busqueda se contesta sin ir a la base de datos. Se construye al arrancar (hasta
+// entonces no descarta nada) y se reconstruye cada rebuild-interval, lo que limpia los numeros de
+// cuentas borradas o renombradas y lo redimensiona si hay mas cuentas que expected-numbers.
+//
+// Quien crea o renombra una cuenta en esta instancia llama a add dentro de su transaccion, antes
+// del commit. Una reconstruccion espera a que terminen esas transacciones antes de leer la tabla,
+// y las que empiezan despues agregan el numero tambien al filtro nuevo: ninguna cuenta queda fuera.
+//
+// Las cuentas escritas por otra instancia o por SQL no pasan por add. Toda escritura deja
+// change_seq en 0 y AccountChangeStamper le asigna despues un valor mayor que todos los anteriores,
+// asi que el filtro se pone al dia leyendo solo los numeros con change_seq 0 o mayor que el ultimo
+// leido (ver catchUp). Un numero que no esta en el filtro solo se rechaza si la ultima puesta al
+// dia empezo hace menos de max-staleness; si no, se pone al dia antes de contestar, y si no puede
+// (hay una reconstruccion en curso) la busqueda va a la base de datos.
+//
+// Metricas: accounts.number-filter.bytes, .false-positive-rate (estimada con los bits ocupados),
+// .checks (result=rejected|passed), .false-positives (pasaron el filtro y no existian) y .rebuild.
+@Slf4j
+@Component
+public class AccountNumberFilter {
+
+  private final AccountNumberFilterProperties filterProperties;
+  private final AccountRepository accountRepository;
+
+  private volatile BloomFilter current;
+  private volatile BloomFilter building;
+  private final AtomicReference<AtomicInteger> writesInFlight =
+      new AtomicReference<>(new AtomicInteger());
+  // Una reconstruccion a la vez. Lock y no synchronized: la reconstruccion recorre toda la tabla y
+  // un hilo virtual que espera a la base de datos dentro de synchronized bloquea su carrier
+  // Tambien lo toma catchUp: cada puesta al dia empieza donde termino la anterior
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  // Mayor change_seq ya incluido en current y System.nanoTime() al empezar a leerlo
+  private volatile long changeSeqWatermark;
+  private volatile long caughtUpAtNanos;
+
+  private final Counter rejected;
+  private final Counter passed;
+  private final Counter falsePositives;
+  private final Timer rebuildTimer;
+
+  public AccountNumberFilter(
+      AccountNumberFilterProperties filterProperties,
+      AccountRepository accountRepository,
+      MeterRegistry meterRegistry) {
+    this.filterProperties = filterProperties;
+    this.accountRepository = accountRepository;
+
+    this.rejected = checkCounter(meterRegistry, "rejected");
+    this.passed = checkCounter(meterRegistry, "passed");
+    this.falsePositives =
+        Counter.builder("accounts.number-filter.false-positives")
+            .description("Numeros que pasaron el filtro y no existian")
+            .register(meterRegistry);
+    this.rebuildTimer =
+        Timer.builder("accounts.number-filter.rebuild")
+            .description("Duracion de cada reconstruccion del filtro")
+            .register(meterRegistry);
+    Gauge.builder("accounts.number-filter.bytes", this, filter -> filter.metric(true))
+        .description("Memoria ocupada por el filtro")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder(
+            "accounts.number-filter.false-positive-rate", this, filter -> filter.metric(false))
+        .description("Probabilidad estimada de falso positivo")
+        .register(meterRegistry);
+  }
+
+  private static Counter checkCounter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("accounts.number-filter.checks")
+        .description("Busquedas por numero de cuenta que consultaron el filtro")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private double metric(boolean bytes) {
+    BloomFilter filter = current;
+    if (filter == null) {
+      return 0;
+    }
+    return bytes ? filter.sizeInBytes() : filter.currentFalsePositiveRate();
+  }
+
+  public boolean isEnabled() {
+    return filterProperties.enabled();
+  }
+
+  // false solo si el numero seguro que no existe
+  public boolean mightExist(String accountNumber) {
+    BloomFilter filter = current;
+    if (filter == null) {
+      return true;
+    }
+    if (filter.mightContain(accountNumber)
+        || (isStale() && (!catchUp() || current.mightContain(accountNumber)))) {
+      passed.increment();
+      return true;
+    }
+    rejected.increment();
+    return false;
+  }
+
+  private boolean isStale() {
+    return System.nanoTime() - caughtUpAtNanos > filterProperties.maxStaleness().toNanos();
+  }
+
+  // Agrega los numeros escritos desde la ultima puesta al dia. Devuelve false si no se pudo hacer
+  // ahora porque otro hilo esta reconstruyendo el filtro o poniendolo al dia
+  private boolean catchUp() {
+    if (!rebuildLock.tryLock()) {
+      return false;
+    }
+    try {
+      if (!isStale()) {
+        return true;
+      }
+      long startedAt = System.nanoTime();
+      long watermark = changeSeqWatermark;
+      BloomFilter filter = current;
+      for (Object[] row : accountRepository.findNumbersChangedAfter(watermark)) {
+        filter.put((String) row[0]);
+        watermark = Math.max(watermark, (Long) row[1]);
+      }
+      changeSeqWatermark = watermark;
+      caughtUpAtNanos = startedAt;
+      return true;
+    } catch (RuntimeException e) {
+      log.warn("No se pudo poner al dia el filtro de numeros de cuenta: {}", e.getMessage());
+      return false;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  public void recordFalsePositive() {
+    if (current != null) {
+      falsePositives.increment();
+    }
+  }
+
+  public void add(String accountNumber) {
+    if (!filterProperties.enabled() || accountNumber == null) {
+      return;
+    }
+    AtomicInteger writes = writesInFlight.get();
+    writes.incrementAndGet();
+    // building se lee despues de registrarse: ver rebuild
+    putInFilters(accountNumber);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      writes.decrementAndGet();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            writes.decrementAndGet();
+          }
+        });
+  }
+
+  // building antes que current: si la reconstruccion termina entre las dos lecturas, current ya es
+  // el filtro nuevo
+  private void putInFilters(String accountNumber) {
+    BloomFilter next = building;
+    BloomFilter filter = current;
+    if (next != null) {
+      next.put(accountNumber);
+    }
+    if (filter != null) {
+      filter.put(accountNumber);
+    }
+  }
+
+  // Primero se publica el filtro nuevo en building: las escrituras que se registren a partir de
+  // ahi tambien lo llenan. Despues se espera a las que se registraron antes, para que sus commits
+  // ya esten hechos cuando se lee la tabla. Si alguna no termina a tiempo se mantiene el filtro
+  // actual y se reintenta en la siguiente ejecucion.
+  @Transactional(readOnly = true)
+  public void rebuild() {
+    if (!filterProperties.enabled()) {
+      return;
+    }
+    rebuildLock.lock();
+    try {
+      rebuildFilter();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private void rebuildFilter() {
+    Timer.Sample sample = Timer.start();
+    long startedAt = System.nanoTime();
+    // Antes de leer la tabla: lo que se escriba mientras tanto lo recoge catchUp
+    long watermark = accountRepository.findMaxChangeSeq();
+    long expectedNumbers =
+        Math.max(filterProperties.expectedNumbers(), accountRepository.count() * 3 / 2);
+    BloomFilter next = BloomFilter.create(expectedNumbers, filterProperties.falsePositiveRate());
+    building = next;
+    try {
+      awaitWrites(writesInFlight.getAndSet(new AtomicInteger()));
+      long numbers = 0;
+      try (Stream<String> accountNumbers = accountRepository.streamAllAccountNumbers()) {
+        for (String accountNumber : (Iterable<String>) accountNumbers::iterator) {
+          next.put(accountNumber);
+          numbers++;
+        }
+      }
+      changeSeqWatermark = watermark;
+      caughtUpAtNanos = startedAt;
+      current = next;
+      log.info(
+          "Filtro de numeros de cuenta reconstruido: {} numeros, {} bytes",
+          numbers,
+          next.sizeInBytes());
+    } finally {
+      building = null;
+      sample.stop(rebuildTimer);
+    }
+  }
+
+  private void awaitWrites(AtomicInteger writes) {
+    long deadline = System.nanoTime() + filterProperties.rebuildWriteTimeout().toNanos();
+    while (writes.get() > 0) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException(
+            "Account writes still in progress after %s"
+                .formatted(filterProperties.rebuildWriteTimeout()));
+      }
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for account writes", e);
+      }
+    }
+  }
+}
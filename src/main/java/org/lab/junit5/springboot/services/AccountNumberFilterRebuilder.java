@@ -0,0 +1,33 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class AccountNumberFilterRebuilder {
+
+  private final AccountNumberFilter accountNumberFilter;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildOnStartup() {
+    rebuild();
+  }
+
+  @Scheduled(
+      fixedDelayString = "${accounts.number-filter.rebuild-interval:6h}",
+      initialDelayString = "${accounts.number-filter.rebuild-interval:6h}")
+  public void rebuild() {
+    try {
+      accountNumberFilter.rebuild();
+    } catch (RuntimeException e) {
+      // Se vuelve a intentar en la siguiente ejecucion; mientras tanto sigue el filtro anterior
+      log.warn("No se pudo reconstruir el filtro de numeros de cuenta: {}", e.getMessage());
+    }
+  }
+}
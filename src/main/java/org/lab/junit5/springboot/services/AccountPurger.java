@@ -0,0 +1,25 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class AccountPurger {
+
+  private final AccountService accountService;
+
+  @Scheduled(fixedDelayString = "${accounts.closing.purge-interval:1m}")
+  public void purgeClosedAccounts() {
+    try {
+      int purged = accountService.purgeClosedAccounts();
+      log.debug("Borradas {} cuentas cerradas", purged);
+    } catch (RuntimeException e) {
+      // Los lotes ya borrados no se repiten; el resto queda para la siguiente ejecucion
+      log.warn("No se pudieron borrar las cuentas cerradas: {}", e.getMessage());
+    }
+  }
+}
@@ -1,23 +1,65 @@
 package org.lab.junit5.springboot.services;
 
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.models.dtos.AccountPatchDTO;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.dtos.TransferResultDTO;
 import org.lab.junit5.springboot.models.entitites.Account;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface AccountService {
 
   List<Account> findAllAccounts();
 
+  AccountPageDTO findAccounts(String afterCursor, Integer limit);
+
+  AccountPageDTO findAccountsByOwner(String ownerPrefix, String afterCursor, Integer limit);
+
+  String findAccountsETag(String afterCursor, Integer limit);
+
+  List<Account> findChanges(long since, Integer limit);
+
+  int stampChanges();
+
+  long exportAccounts(Consumer<Account> consumer);
+
   Account findAccountById(Long accountId);
 
   Account findAccountByAccountNumber(String accountNumber);
 
+  Optional<String> findAccountETag(String accountNumber);
+
+  List<Account> findAccountsByAccountNumbers(Collection<String> accountNumbers);
+
   Account save(Account account);
 
+  void updateAccount(Long accountId, AccountPatchDTO patch);
+
+  int createAccounts(List<Account> accounts);
+
   BigDecimal getBalance(Long accountId);
 
+  Map<Long, BigDecimal> getBalances(Collection<Long> accountIds);
+
   void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount, Long bankId);
 
+  CompletableFuture<Void> transferAsync(
+      Long fromAccountId, Long toAccountId, BigDecimal amount, Long bankId);
+
+  List<TransferResultDTO> transferAll(List<TransferDetailDTO> transfers);
+
   void delete(Long accountId);
+
+  int closeAccounts(Collection<Long> accountIds);
+
+  int deleteAccounts(Collection<Long> accountIds);
+
+  int purgeClosedAccounts();
 }
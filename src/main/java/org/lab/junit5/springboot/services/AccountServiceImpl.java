@@ -1,73 +1,711 @@
 package org.lab.junit5.springboot.services;
 
+import jakarta.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.AccountBalanceProperties;
+import org.lab.junit5.springboot.config.AccountBulkProperties;
+import org.lab.junit5.springboot.config.AccountClosingProperties;
+import org.lab.junit5.springboot.config.AccountLookupProperties;
+import org.lab.junit5.springboot.config.AccountPageProperties;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.exceptions.AccountInvalidCursorException;
 import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
 import org.lab.junit5.springboot.exceptions.AccountNotFoundByNumberException;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.models.dtos.AccountPatchDTO;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.dtos.TransferResultDTO;
 import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.AccountChangeSequence;
+import org.lab.junit5.springboot.models.money.Money;
+import org.lab.junit5.springboot.repositories.AccountChangeSequenceRepository;
 import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class AccountServiceImpl implements AccountService {
 
   private final AccountRepository accountRepository;
+  private final AccountChangeSequenceRepository accountChangeSequenceRepository;
   private final BankService bankService;
+  private final TransferProperties transferProperties;
+  private final TransferExecutor transferExecutor;
+  private final TransferBatchProcessor transferBatchProcessor;
+  private final LedgerService ledgerService;
+  private final AccountPageProperties accountPageProperties;
+  private final AccountBalanceProperties accountBalanceProperties;
+  private final AccountLookupProperties accountLookupProperties;
+  private final AccountBulkProperties accountBulkProperties;
+  private final AccountClosingProperties accountClosingProperties;
+  private final EntityManager entityManager;
+  private final AccountCache accountCache;
+  private final AccountNumberFilter accountNumberFilter;
+  private final ObjectProvider<TransferEngine> transferEngine;
+  private final Clock clock = Clock.systemUTC();
 
   @Override
   public List<Account> findAllAccounts() {
-    return accountRepository.findAll();
+    return withLedgerBalances(accountRepository.findAll());
   }
 
+  // Modo ledger: accounts.balance es la ultima consolidacion y los asientos posteriores no cambian
+  // la fila (ni version ni changeSeq). Las cuentas que se devuelven son copias con el saldo real
+  private List<Account> withLedgerBalances(List<Account> accounts) {
+    if (transferProperties.mode() != TransferMode.LEDGER) {
+      return accounts;
+    }
+    List<Account> copies = accounts.stream().map(Account::copy).toList();
+    ledgerService.applyBalances(copies);
+    return copies;
+  }
+
+  private Optional<Account> withLedgerBalance(Optional<Account> account) {
+    if (account.isEmpty() || transferProperties.mode() != TransferMode.LEDGER) {
+      return account;
+    }
+    // Las cuentas de AccountCache ya son copias
+    ledgerService.applyBalances(List.of(account.get()));
+    return account;
+  }
+
+  // Se pide una cuenta de mas para saber si hay otra pagina sin hacer un COUNT(*)
+  @Override
+  @Transactional(readOnly = true)
+  public AccountPageDTO findAccounts(String afterCursor, Integer limit) {
+    int pageSize = pageSize(limit);
+    long afterId = afterCursor == null ? 0 : decodeCursor(afterCursor);
+    List<Account> accounts =
+        accountRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+    if (accounts.size() <= pageSize) {
+      return new AccountPageDTO(withLedgerBalances(accounts), null);
+    }
+    List<Account> page = withLedgerBalances(accounts.subList(0, pageSize));
+    return new AccountPageDTO(page, encodeCursor(page.getLast().getId()));
+  }
+
+  // Titulares que empiezan por ownerPrefix, sin distinguir mayusculas ni acentos. El cursor lleva
+  // el titular normalizado y el id de la ultima cuenta devuelta
+  @Override
+  @Transactional(readOnly = true)
+  public AccountPageDTO findAccountsByOwner(String ownerPrefix, String afterCursor, Integer limit) {
+    String prefix = Account.normalizeOwner(ownerPrefix);
+    if (prefix == null || prefix.isEmpty()) {
+      throw new AccountException("Owner prefix must not be blank");
+    }
+    int pageSize = pageSize(limit);
+    OwnerCursor after =
+        afterCursor == null ? new OwnerCursor("", 0L) : OwnerCursor.decode(afterCursor);
+    List<Account> accounts =
+        accountRepository.findByOwnerPrefix(
+            escapeLike(prefix) + "%", after.owner(), after.accountId(), Limit.of(pageSize + 1));
+    if (accounts.size() <= pageSize) {
+      return new AccountPageDTO(withLedgerBalances(accounts), null);
+    }
+    List<Account> page = withLedgerBalances(accounts.subList(0, pageSize));
+    Account last = page.getLast();
+    OwnerCursor next = new OwnerCursor(last.getOwnerNormalized(), last.getId());
+    return new AccountPageDTO(page, next.encode());
+  }
+
+  // Misma pagina que findAccounts pero solo con id, version y saldo, para contestar 304 sin leer
+  // las cuentas. En modo ledger el saldo depende de los asientos y se calcula con la pagina entera
+  @Override
+  public String findAccountsETag(String afterCursor, Integer limit) {
+    if (transferProperties.mode() == TransferMode.LEDGER) {
+      return AccountETags.of(findAccounts(afterCursor, limit));
+    }
+    int pageSize = pageSize(limit);
+    long afterId = afterCursor == null ? 0 : decodeCursor(afterCursor);
+    List<AccountRepository.AccountVersion> versions =
+        accountRepository.findVersionsByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+    String nextCursor = null;
+    if (versions.size() > pageSize) {
+      versions = versions.subList(0, pageSize);
+      nextCursor = encodeCursor(versions.getLast().getId());
+    }
+    return AccountETags.ofPage(
+        versions,
+        AccountRepository.AccountVersion::getId,
+        AccountRepository.AccountVersion::getVersion,
+        AccountRepository.AccountVersion::getBalance,
+        nextCursor);
+  }
+
+  // Cuentas con cambios confirmados y ya numerados despues de since, en orden de changeSeq. El
+  // cliente pide la siguiente pagina con el changeSeq de la ultima cuenta recibida. En modo ledger
+  // una transferencia no cambia la fila: la cuenta aparece cuando se consolidan sus asientos
+  @Override
+  @Transactional(readOnly = true)
+  public List<Account> findChanges(long since, Integer limit) {
+    if (since < 0) {
+      throw new AccountException("Since must not be negative");
+    }
+    return withLedgerBalances(
+        accountRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(
+            since, Limit.of(pageSize(limit))));
+  }
+
+  // Numera las cuentas con cambios pendientes. Con la fila de AccountChangeSequence bloqueada, cada
+  // numeracion se confirma despues de la anterior y con valores mayores: un cliente que ya leyo
+  // hasta N no se salta cambios que se confirman despues con un valor menor que N
+  @Override
+  @Transactional
+  public int stampChanges() {
+    AccountChangeSequence sequence =
+        accountChangeSequenceRepository
+            .findByIdForUpdate(AccountChangeSequence.ID)
+            .orElseGet(() -> accountChangeSequenceRepository.save(new AccountChangeSequence()));
+    Optional<Long> maxId = accountRepository.findMaxIdWithPendingChange();
+    if (maxId.isEmpty()) {
+      return 0;
+    }
+    long base = sequence.getLastValue();
+    int stamped = accountRepository.stampChanges(base, maxId.get());
+    sequence.setLastValue(base + maxId.get());
+    return stamped;
+  }
+
+  // Recorre todas las cuentas sin cargarlas en una lista. Cada EXPORT_FETCH_SIZE filas se vacia el
+  // contexto de persistencia, que si no guardaria una referencia a cada cuenta leida. En modo
+  // ledger las cuentas se entregan en bloques de EXPORT_FETCH_SIZE, con el saldo real de cada
+  // bloque leido en una consulta
   @Override
   @Transactional(readOnly = true)
+  public long exportAccounts(Consumer<Account> consumer) {
+    boolean ledger = transferProperties.mode() == TransferMode.LEDGER;
+    List<Account> block = new ArrayList<>(AccountRepository.EXPORT_FETCH_SIZE);
+    long exported = 0;
+    try (Stream<Account> accounts = accountRepository.streamAllOrderById()) {
+      for (Account account : (Iterable<Account>) accounts::iterator) {
+        if (ledger) {
+          block.add(account);
+        } else {
+          consumer.accept(account);
+        }
+        if (++exported % AccountRepository.EXPORT_FETCH_SIZE == 0) {
+          withLedgerBalances(block).forEach(consumer);
+          block.clear();
+          entityManager.clear();
+        }
+      }
+    }
+    withLedgerBalances(block).forEach(consumer);
+    return exported;
+  }
+
+  // Sin limit se usa el tamano por defecto; por encima del maximo se recorta
+  private int pageSize(Integer limit) {
+    if (limit == null) {
+      return accountPageProperties.defaultSize();
+    }
+    if (limit < 1) {
+      throw new AccountException("Limit must be greater than 0");
+    }
+    return Math.min(limit, accountPageProperties.maxSize());
+  }
+
+  // El cursor es opaco para el cliente: hoy es el ultimo id devuelto en Base64
+  private static String encodeCursor(Long accountId) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(accountId.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static long decodeCursor(String cursor) {
+    try {
+      return Long.parseLong(
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException tambien es IllegalArgumentException
+      throw new AccountInvalidCursorException(cursor);
+    }
+  }
+
+  // % y _ del prefijo se buscan literalmente (escape '\' en la consulta)
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  // Cursor de findAccountsByOwner: "id:titular" en Base64. El id va primero porque el titular
+  // puede contener ':'
+  private record OwnerCursor(String owner, Long accountId) {
+
+    String encode() {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString((accountId + ":" + owner).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static OwnerCursor decode(String cursor) {
+      try {
+        String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+          throw new AccountInvalidCursorException(cursor);
+        }
+        return new OwnerCursor(
+            value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+      } catch (IllegalArgumentException e) {
+        throw new AccountInvalidCursorException(cursor);
+      }
+    }
+  }
+
+  // Lecturas a traves de AccountCache: cada llamador recibe su propia copia de la cuenta. Las
+  // transferencias cargan sus cuentas desde el repositorio (ver loadAccount)
+  @Override
   public Account findAccountById(Long accountId) {
-    return accountRepository
-        .findById(accountId)
+    return withLedgerBalance(accountCache.getById(accountId, accountRepository::findById))
         .orElseThrow(() -> new AccountNotFoundByIdException(accountId));
   }
 
   @Override
-  @Transactional(readOnly = true)
   public Account findAccountByAccountNumber(String accountNumber) {
+    Optional<Account> cached = findCachedByAccountNumber(accountNumber);
+    if (cached.isPresent()) {
+      return withLedgerBalance(cached).get();
+    }
+    if (!accountNumberFilter.mightExist(accountNumber)) {
+      throw new AccountNotFoundByNumberException(accountNumber);
+    }
+    return withLedgerBalance(
+            accountCache.loadByNumber(accountNumber, accountRepository::findByAccountNumber))
+        .orElseThrow(
+            () -> {
+              accountNumberFilter.recordFalsePositive();
+              return new AccountNotFoundByNumberException(accountNumber);
+            });
+  }
+
+  // Si la cuenta esta en cache su version es la actual (la cache se invalida en cada commit); si
+  // no, se lee solo id, version y saldo. En modo ledger el saldo no esta en la fila: la ETag sale
+  // de la cuenta con el saldo real
+  @Override
+  public Optional<String> findAccountETag(String accountNumber) {
+    if (transferProperties.mode() == TransferMode.LEDGER) {
+      try {
+        return Optional.of(AccountETags.of(findAccountByAccountNumber(accountNumber)));
+      } catch (AccountNotFoundByNumberException e) {
+        return Optional.empty();
+      }
+    }
+    Optional<Account> cached = findCachedByAccountNumber(accountNumber);
+    if (cached.isPresent()) {
+      return cached.map(AccountETags::of);
+    }
+    if (!accountNumberFilter.mightExist(accountNumber)) {
+      return Optional.empty();
+    }
     return accountRepository
-        .findByAccountNumber(accountNumber)
-        .orElseThrow(() -> new AccountNotFoundByNumberException(accountNumber));
+        .findVersionByAccountNumber(accountNumber)
+        .map(
+            version ->
+                AccountETags.of(version.getId(), version.getVersion(), version.getBalance()));
+  }
+
+  // Las cuentas que estan en cache se sirven de ahi, el resto se lee con consultas IN de chunkSize
+  // numeros. Se devuelven en el orden pedido; las que no existen no aparecen
+  @Override
+  public List<Account> findAccountsByAccountNumbers(Collection<String> accountNumbers) {
+    List<String> numbers = accountNumbers.stream().filter(Objects::nonNull).distinct().toList();
+    int maxNumbers = accountLookupProperties.maxNumbers();
+    if (numbers.size() > maxNumbers) {
+      throw new AccountException(
+          "Too many account numbers, the maximum is %d".formatted(maxNumbers));
+    }
+
+    Map<String, Account> accountsByNumber = new HashMap<>(numbers.size());
+    List<String> missing = new ArrayList<>();
+    for (String number : numbers) {
+      Optional<Account> cached = findCachedByAccountNumber(number);
+      if (cached.isPresent()) {
+        accountsByNumber.put(number, cached.get());
+      } else if (accountNumberFilter.mightExist(number)) {
+        missing.add(number);
+      }
+    }
+    long epoch = accountCache.epoch();
+    int chunkSize = accountLookupProperties.chunkSize();
+    for (int from = 0; from < missing.size(); from += chunkSize) {
+      List<String> chunk = missing.subList(from, Math.min(from + chunkSize, missing.size()));
+      for (Account account : accountRepository.findByAccountNumberIn(chunk)) {
+        accountCache.putLoaded(account, epoch);
+        accountsByNumber.put(account.getAccountNumber(), account);
+      }
+    }
+    return withLedgerBalances(
+        numbers.stream().map(accountsByNumber::get).filter(Objects::nonNull).toList());
+  }
+
+  // Si el id guardado para el numero ya no corresponde (la cuenta se borro o cambio de numero) se
+  // olvida y se devuelve vacio
+  private Optional<Account> findCachedByAccountNumber(String accountNumber) {
+    Optional<Long> accountId = accountCache.getIdByNumber(accountNumber);
+    if (accountId.isEmpty()) {
+      return Optional.empty();
+    }
+    Optional<Account> account =
+        accountCache
+            .getById(accountId.get(), accountRepository::findById)
+            .filter(found -> accountNumber.equals(found.getAccountNumber()));
+    if (account.isEmpty()) {
+      accountCache.evictNumber(accountNumber);
+    }
+    return account;
   }
 
   @Override
   @Transactional
   public Account save(Account account) {
+    if (account.getId() != null) {
+      accountCache.evictAfterCommit(account.getId());
+    }
+    // Antes del commit: la cuenta no puede verse en la base de datos sin estar en el filtro
+    accountNumberFilter.add(account.getAccountNumber());
+    if (account.getId() != null && transferProperties.mode() == TransferMode.LEDGER) {
+      Optional<Account> current = accountRepository.findById(account.getId());
+      if (current.isPresent()) {
+        return saveKeepingLedgerBalance(current.get(), account);
+      }
+    }
     return accountRepository.save(account);
   }
 
+  // Modo ledger: balance es la foto consolidada hasta ledgerSeq y el saldo leido ya incluye los
+  // asientos pendientes. Guardar el recibido los contaria dos veces (y los asientos no cambian la
+  // version), asi que solo se copian los campos editables y el saldo solo cambia con transferencias
+  private Account saveKeepingLedgerBalance(Account current, Account account) {
+    if (current.getVersion() != account.getVersion()) {
+      throw new ObjectOptimisticLockingFailureException(Account.class, account.getId());
+    }
+    current.setOwner(account.getOwner()).setAccountNumber(account.getAccountNumber());
+    accountRepository.flush();
+    return withLedgerBalances(List.of(current)).get(0);
+  }
+
+  // Actualizacion parcial con un UPDATE de los campos recibidos, sin select previo. A diferencia de
+  // save no puede pisar un saldo cambiado por una transferencia concurrente
+  @Override
+  @Transactional
+  public void updateAccount(Long accountId, AccountPatchDTO patch) {
+    if (patch.isEmpty()) {
+      throw new AccountException("No fields to update");
+    }
+    if (patch.owner().isBlank()) {
+      throw new AccountException("Owner must not be blank");
+    }
+    String owner = patch.owner().strip();
+    if (accountRepository.updateOwner(accountId, owner, Account.normalizeOwner(owner)) == 0) {
+      throw new AccountNotFoundByIdException(accountId);
+    }
+    accountCache.evictAfterCommit(accountId);
+  }
+
+  // Alta de muchas cuentas en una transaccion: o se crean todas o ninguna. Con ids de secuencia los
+  // INSERT salen en batches de hibernate.jdbc.batch_size; cada flushSize cuentas se hace flush y se
+  // vacia el contexto de persistencia, que si no guardaria todas las cuentas creadas
+  @Override
+  @Transactional
+  public int createAccounts(List<Account> accounts) {
+    int maxSize = accountBulkProperties.maxSize();
+    if (accounts.size() > maxSize) {
+      throw new AccountException("Too many accounts, the maximum is %d".formatted(maxSize));
+    }
+    int flushSize = accountBulkProperties.flushSize();
+    int created = 0;
+    for (Account account : accounts) {
+      if (account.getId() != null) {
+        throw new AccountException("Accounts to create must not have an id");
+      }
+      accountNumberFilter.add(account.getAccountNumber());
+      // A traves del repositorio, para que los errores de la base de datos lleguen traducidos
+      // (DataIntegrityViolationException)
+      accountRepository.save(account);
+      if (++created % flushSize == 0) {
+        accountRepository.flush();
+        entityManager.clear();
+      }
+    }
+    accountRepository.flush();
+    return created;
+  }
+
   @Override
   @Transactional(readOnly = true)
   public BigDecimal getBalance(Long accountId) {
+    if (transferProperties.mode() == TransferMode.LEDGER) {
+      return ledgerService.getBalance(accountId);
+    }
     return accountRepository
-        .findById(accountId)
-        .map(Account::getBalance)
+        .findBalanceById(accountId)
+        .map(Money::toBigDecimal)
         .orElseThrow(() -> new AccountNotFoundByIdException(accountId));
   }
 
+  // Consultas IN de chunkSize ids como maximo, en una sola transaccion de lectura. Las cuentas que
+  // no existen no aparecen en el resultado
+  @Override
+  @Transactional(readOnly = true)
+  public Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+    List<Long> ids = accountIds.stream().filter(Objects::nonNull).distinct().toList();
+    int maxIds = accountBalanceProperties.maxIds();
+    if (ids.size() > maxIds) {
+      throw new AccountException("Too many account ids, the maximum is %d".formatted(maxIds));
+    }
+    int chunkSize = accountBalanceProperties.chunkSize();
+    Map<Long, BigDecimal> balances = new HashMap<>(ids.size());
+    for (int from = 0; from < ids.size(); from += chunkSize) {
+      List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+      if (transferProperties.mode() == TransferMode.LEDGER) {
+        balances.putAll(ledgerService.getBalances(chunk));
+        continue;
+      }
+      for (Object[] row : accountRepository.findBalancesByIdIn(chunk)) {
+        balances.put((Long) row[0], Money.toBigDecimal((Long) row[1]));
+      }
+    }
+    return balances;
+  }
+
   @Override
-  @Transactional
   public void transfer(Long sourceAccountId, Long targetAccountId, BigDecimal amount, Long bankId) {
-    Account sourceAccount = findAccountById(sourceAccountId);
-    Account targetAccount = findAccountById(targetAccountId);
+    if (transferProperties.engine() == TransferEngineType.DIRECT) {
+      transferDirectly(sourceAccountId, targetAccountId, amount, bankId);
+      return;
+    }
+    try {
+      transferAsync(sourceAccountId, targetAccountId, amount, bankId).join();
+    } catch (CompletionException e) {
+      // Se relanza la excepcion original para que el llamador la trate igual que en modo directo
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> transferAsync(
+      Long sourceAccountId, Long targetAccountId, BigDecimal amount, Long bankId) {
+    if (transferProperties.engine() != TransferEngineType.DIRECT) {
+      return transferEngine
+          .getObject()
+          .submit(new TransferDetailDTO(sourceAccountId, targetAccountId, bankId, amount));
+    }
+    try {
+      transferDirectly(sourceAccountId, targetAccountId, amount, bankId);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // La transaccion la abre TransferExecutor en cada intento, para poder reintentar la transferencia
+  // completa cuando falla por contencion
+  private void transferDirectly(
+      Long sourceAccountId, Long targetAccountId, BigDecimal amount, Long bankId) {
+    long amountInMinorUnits = Money.toTransferAmount(amount);
+    transferExecutor.execute(
+        () -> {
+          switch (transferProperties.mode()) {
+            case ATOMIC ->
+                transferAtomically(sourceAccountId, targetAccountId, amountInMinorUnits);
+            case PESSIMISTIC ->
+                transferWithOrderedLocks(sourceAccountId, targetAccountId, amountInMinorUnits);
+            case ENTITY ->
+                transferLoadingAccounts(sourceAccountId, targetAccountId, amountInMinorUnits);
+            case LEDGER ->
+                transferWithLedger(sourceAccountId, targetAccountId, amountInMinorUnits);
+          }
+          bankService.updateTotalOfTransactions(bankId);
+          accountCache.evictAfterCommit(List.of(sourceAccountId, targetAccountId));
+        });
+  }
+
+  // Cada chunk es una transaccion con un solo commit (y sus propios reintentos). Si un chunk falla
+  // por completo sus transferencias se informan como error y se sigue con el siguiente.
+  @Override
+  public List<TransferResultDTO> transferAll(List<TransferDetailDTO> transfers) {
+    int maxSize = transferProperties.batch().maxSize();
+    if (transfers.size() > maxSize) {
+      throw new AccountException("Too many transfers, the maximum is %d".formatted(maxSize));
+    }
+    int chunkSize = transferProperties.batch().chunkSize();
+    List<TransferResultDTO> results = new ArrayList<>(transfers.size());
+    for (int from = 0; from < transfers.size(); from += chunkSize) {
+      List<TransferDetailDTO> chunk =
+          transfers.subList(from, Math.min(from + chunkSize, transfers.size()));
+      try {
+        List<TransferOutcome> outcomes =
+            transferExecutor.execute(() -> transferBatchProcessor.apply(chunk));
+        for (TransferOutcome outcome : outcomes) {
+          int index = results.size();
+          results.add(
+              outcome.isSuccessful()
+                  ? TransferResultDTO.ok(index)
+                  : TransferResultDTO.error(index, outcome.error().getMessage()));
+        }
+      } catch (RuntimeException e) {
+        log.error("Fallo el chunk de transferencias desde {}: {}", from, e.getMessage());
+        for (int i = 0; i < chunk.size(); i++) {
+          results.add(TransferResultDTO.error(results.size(), "Transfer failed"));
+        }
+      }
+    }
+    return results;
+  }
+
+  private void transferLoadingAccounts(
+      Long sourceAccountId, Long targetAccountId, long amount) {
+    Account sourceAccount = loadAccount(sourceAccountId);
+    Account targetAccount = loadAccount(targetAccountId);
     sourceAccount.withdraw(amount);
     save(sourceAccount);
     targetAccount.deposit(amount);
     save(targetAccount);
-    bankService.updateTotalOfTransactions(bankId);
+  }
+
+  private void transferWithOrderedLocks(
+      Long sourceAccountId, Long targetAccountId, long amount) {
+    // Todas las transferencias bloquean primero el id menor: A->B y B->A piden los bloqueos en el
+    // mismo orden y no se pueden quedar esperando la una a la otra
+    Long firstId = Math.min(sourceAccountId, targetAccountId);
+    Long secondId = Math.max(sourceAccountId, targetAccountId);
+    Account first = findAccountByIdForUpdate(firstId);
+    Account second = firstId.equals(secondId) ? first : findAccountByIdForUpdate(secondId);
+
+    Account sourceAccount = first.getId().equals(sourceAccountId) ? first : second;
+    Account targetAccount = first.getId().equals(targetAccountId) ? first : second;
+    sourceAccount.withdraw(amount);
+    targetAccount.deposit(amount);
+    save(sourceAccount);
+    save(targetAccount);
+  }
+
+  private Account loadAccount(Long accountId) {
+    return accountRepository
+        .findById(accountId)
+        .orElseThrow(() -> new AccountNotFoundByIdException(accountId));
+  }
+
+  private Account findAccountByIdForUpdate(Long accountId) {
+    return accountRepository
+        .findByIdForUpdate(accountId)
+        .orElseThrow(() -> new AccountNotFoundByIdException(accountId));
+  }
+
+  private void transferAtomically(Long sourceAccountId, Long targetAccountId, long amount) {
+    if (accountRepository.withdraw(sourceAccountId, amount) == 0) {
+      // El UPDATE condicional no afecto ninguna fila: la cuenta no existe (loadAccount lanza
+      // la excepcion) o su saldo no alcanza
+      throw new AccountInsufficientMoneyException(loadAccount(sourceAccountId), amount);
+    }
+    if (accountRepository.deposit(targetAccountId, amount) == 0) {
+      // La excepcion hace rollback del debito anterior
+      throw new AccountNotFoundByIdException(targetAccountId);
+    }
+  }
+
+  private void transferWithLedger(Long sourceAccountId, Long targetAccountId, long amount) {
+    Map<Long, Account> accounts =
+        ledgerService.loadAccountsForTransfer(Set.of(sourceAccountId), Set.of(targetAccountId));
+    Account sourceAccount = accounts.get(sourceAccountId);
+    if (sourceAccount == null) {
+      throw new AccountNotFoundByIdException(sourceAccountId);
+    }
+    if (!accounts.containsKey(targetAccountId)) {
+      throw new AccountNotFoundByIdException(targetAccountId);
+    }
+    // Solo valida el saldo: la entidad es de solo lectura y el cambio no se escribe
+    sourceAccount.withdraw(amount);
+    ledgerService.append(sourceAccountId, targetAccountId, amount);
   }
 
   @Override
   @Transactional
   public void delete(Long accountId) {
-    accountRepository.deleteById(accountId);
+    accountRepository.deleteByIdIn(List.of(accountId));
+    accountCache.evictAfterCommit(accountId);
+  }
+
+  // Baja logica: desde el commit las cuentas no aparecen en ninguna lectura. Un UPDATE por cada
+  // chunkSize ids, todos en la misma transaccion. Devuelve cuantas estaban abiertas
+  @Override
+  @Transactional
+  public int closeAccounts(Collection<Long> accountIds) {
+    List<Long> ids = checkedIds(accountIds);
+    Instant closedAt = Instant.now(clock);
+    int closed = 0;
+    int chunkSize = accountClosingProperties.chunkSize();
+    for (int from = 0; from < ids.size(); from += chunkSize) {
+      List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+      closed += accountRepository.closeByIdIn(chunk, closedAt);
+    }
+    accountCache.evictAfterCommit(ids);
+    return closed;
+  }
+
+  @Override
+  @Transactional
+  public int deleteAccounts(Collection<Long> accountIds) {
+    List<Long> ids = checkedIds(accountIds);
+    int deleted = 0;
+    int chunkSize = accountClosingProperties.chunkSize();
+    for (int from = 0; from < ids.size(); from += chunkSize) {
+      deleted +=
+          accountRepository.deleteByIdIn(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+    }
+    accountCache.evictAfterCommit(ids);
+    return deleted;
+  }
+
+  private List<Long> checkedIds(Collection<Long> accountIds) {
+    List<Long> ids = accountIds.stream().filter(Objects::nonNull).distinct().toList();
+    int maxIds = accountClosingProperties.maxIds();
+    if (ids.size() > maxIds) {
+      throw new AccountException("Too many account ids, the maximum is %d".formatted(maxIds));
+    }
+    return ids;
+  }
+
+  // Sin transaccion propia: cada lote de purgeBatchSize filas se borra y confirma por separado, asi
+  // nunca se bloquean muchas filas a la vez. Las cuentas cerradas ya no estan en la cache
+  @Override
+  public int purgeClosedAccounts() {
+    Instant closedBefore = Instant.now(clock).minus(accountClosingProperties.purgeAfter());
+    int batchSize = accountClosingProperties.purgeBatchSize();
+    int purged = 0;
+    int deleted;
+    do {
+      deleted = accountRepository.purgeClosed(closedBefore, batchSize);
+      purged += deleted;
+    } while (deleted == batchSize);
+    return purged;
   }
 }
@@ -0,0 +1,72 @@
+package org.lab.junit5.springboot.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import org.lab.junit5.springboot.config.BankCacheProperties;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Bancos por id (metricas cache.* con name=banks-by-id). Los bancos casi nunca cambian; quien los
+// modifica llama a evictAfterCommit igual que con AccountCache.
+//
+// totalOfTransactions de un banco en cache puede estar desactualizado: el total se lee con
+// BankService.getTotalOfTransactions.
+@Component
+public class BankCache {
+
+  private final AsyncCache<Long, Bank> banksById;
+
+  public BankCache(BankCacheProperties cacheProperties, MeterRegistry meterRegistry) {
+    this.banksById =
+        Caffeine.newBuilder()
+            .maximumSize(cacheProperties.maxSize())
+            .expireAfterWrite(cacheProperties.ttl())
+            .recordStats()
+            .buildAsync();
+    CaffeineCacheMetrics.monitor(meterRegistry, banksById, "banks-by-id");
+  }
+
+  // Los bancos que no existen no se guardan. La consulta se hace fuera de los locks de Caffeine,
+  // igual que en AccountCache.getById
+  public Optional<Bank> getById(Long bankId, Function<Long, Optional<Bank>> loader) {
+    CompletableFuture<Bank> load = new CompletableFuture<>();
+    CompletableFuture<Bank> cached = banksById.get(bankId, (id, executor) -> load);
+    if (cached != load) {
+      try {
+        return Optional.ofNullable(cached.join());
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+    try {
+      Optional<Bank> bank = loader.apply(bankId);
+      load.complete(bank.orElse(null));
+      return bank;
+    } catch (RuntimeException e) {
+      load.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  public void evictAfterCommit(Long bankId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      banksById.synchronous().invalidate(bankId);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            banksById.synchronous().invalidate(bankId);
+          }
+        });
+  }
+}
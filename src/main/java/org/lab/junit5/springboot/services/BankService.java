@@ -1,16 +1,29 @@
 package org.lab.junit5.springboot.services;
 
+import java.util.List;
 import org.lab.junit5.springboot.models.entitites.Bank;
 
 public interface BankService {
 
   Bank findBankById(Long id);
 
+  boolean existsBank(Long bankId);
+
   int getTotalOfTransactions(Long bankId);
 
   Bank save(Bank bank);
 
-  Bank updateTotalOfTransactions(Bank bank);
+  void updateTotalOfTransactions(Long bankId);
+
+  void updateTotalOfTransactions(Long bankId, int transactions);
+
+  List<Long> findBankIdsWithPendingTransactions();
+
+  void compactTotalOfTransactions(Long bankId);
+
+  List<Long> findAllBankIds();
+
+  List<Long> findBankIdsWithTotalsInMemory();
 
-  Bank updateTotalOfTransactions(Long bankId);
+  void reconcileTotalOfTransactions(Long bankId);
 }
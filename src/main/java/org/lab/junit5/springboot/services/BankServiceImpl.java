@@ -1,9 +1,17 @@
 package org.lab.junit5.springboot.services;
 
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
 import lombok.AllArgsConstructor;
+import org.lab.junit5.springboot.config.TransactionCounterProperties;
 import org.lab.junit5.springboot.exceptions.BankNotFoundByIdException;
 import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.models.entitites.BankTransactionCounter;
 import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.repositories.BankTransactionCounterRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,35 +20,118 @@ import org.springframework.transaction.annotation.Transactional;
 public class BankServiceImpl implements BankService {
 
   private final BankRepository bankRepository;
+  private final BankTransactionCounterRepository counterRepository;
+  private final TransactionCounterProperties counterProperties;
+  private final BankCache bankCache;
+  private final BankTransactionTotals transactionTotals;
 
-  @Transactional(readOnly = true)
+  // Sin @Transactional: si el banco esta en cache no se abre una transaccion
+  @Override
   public Bank findBankById(Long bankId) {
-    return bankRepository.findById(bankId).orElseThrow(() -> new BankNotFoundByIdException(bankId));
+    return bankCache
+        .getById(bankId, bankRepository::findById)
+        .orElseThrow(() -> new BankNotFoundByIdException(bankId));
+  }
+
+  @Override
+  public boolean existsBank(Long bankId) {
+    return bankCache.getById(bankId, bankRepository::findById).isPresent();
   }
 
   @Override
   @Transactional
   public Bank save(Bank bank) {
-    return bankRepository.save(bank);
+    // Tambien al crear: si el id se reutiliza (p. ej. tras recrear la tabla) no queda un banco
+    // viejo en cache
+    Bank savedBank = bankRepository.save(bank);
+    bankCache.evictAfterCommit(savedBank.getId());
+    return savedBank;
   }
 
   @Override
   @Transactional
-  public Bank updateTotalOfTransactions(Long bankId) {
-    Bank bank = findBankById(bankId);
-    return updateTotalOfTransactions(bank);
+  public void updateTotalOfTransactions(Long bankId) {
+    updateTotalOfTransactions(bankId, 1);
   }
 
   @Override
   @Transactional
-  public Bank updateTotalOfTransactions(Bank bank) {
-    bank.setTotalOfTransactions(bank.getTotalOfTransactions() + 1);
-    return save(bank);
+  public void updateTotalOfTransactions(Long bankId, int transactions) {
+    int slot = ThreadLocalRandom.current().nextInt(counterProperties.slots());
+    if (counterRepository.increment(bankId, slot, transactions) > 0) {
+      transactionTotals.addAfterCommit(bankId, transactions);
+      return;
+    }
+
+    // Primera transferencia que cae en este slot, o el banco se borro con sus slots (ON DELETE
+    // CASCADE): se crea la fila. El banco se comprueba en la base de datos, no en BankCache, que
+    // puede tener todavia un banco borrado. Si se borra entre esta consulta y el INSERT, la clave
+    // foranea hace fallar el INSERT, TransferExecutor reintenta y el siguiente intento ya lanza
+    // BankNotFoundByIdException
+    if (!bankRepository.existsById(bankId)) {
+      throw new BankNotFoundByIdException(bankId);
+    }
+    try {
+      counterRepository.insert(bankId, slot, transactions);
+      transactionTotals.addAfterCommit(bankId, transactions);
+    } catch (DataIntegrityViolationException e) {
+      // Otra transaccion creo el mismo slot en paralelo (o se borro el banco); TransferExecutor
+      // reintenta la transferencia y en el siguiente intento el UPDATE ya encuentra la fila
+      throw new ConcurrencyFailureException(
+          "Slot %d of bank '%s' created concurrently".formatted(slot, bankId), e);
+    }
   }
 
+  // Se lee de memoria; solo la primera vez (o si no se pudo reconciliar) va a la base de datos
   @Override
-  @Transactional(readOnly = true)
   public int getTotalOfTransactions(Long bankId) {
-    return findBankById(bankId).getTotalOfTransactions();
+    OptionalLong total = transactionTotals.get(bankId);
+    return Math.toIntExact(
+        total.isPresent() ? total.getAsLong() : loadTotalOfTransactions(bankId));
+  }
+
+  private long loadTotalOfTransactions(Long bankId) {
+    return transactionTotals.reconcile(
+        bankId,
+        () ->
+            bankRepository
+                .findTotalOfTransactionsById(bankId)
+                .orElseThrow(() -> new BankNotFoundByIdException(bankId)));
+  }
+
+  @Override
+  public List<Long> findAllBankIds() {
+    return bankRepository.findAllIds();
+  }
+
+  @Override
+  public List<Long> findBankIdsWithTotalsInMemory() {
+    return transactionTotals.findLoadedBankIds();
+  }
+
+  @Override
+  public void reconcileTotalOfTransactions(Long bankId) {
+    loadTotalOfTransactions(bankId);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<Long> findBankIdsWithPendingTransactions() {
+    return counterRepository.findBankIdsWithPendingTransactions();
+  }
+
+  // Pasa lo acumulado en los slots a banks.total_of_transactions. Los slots quedan bloqueados solo
+  // durante esta transaccion corta.
+  @Override
+  @Transactional
+  public void compactTotalOfTransactions(Long bankId) {
+    List<BankTransactionCounter> slots = counterRepository.findPendingByBankIdForUpdate(bankId);
+    long pending = slots.stream().mapToLong(BankTransactionCounter::getTransactions).sum();
+    if (pending == 0) {
+      return;
+    }
+    bankRepository.addToTotalOfTransactions(bankId, Math.toIntExact(pending));
+    bankCache.evictAfterCommit(bankId);
+    slots.forEach(slot -> slot.setTransactions(0));
   }
 }
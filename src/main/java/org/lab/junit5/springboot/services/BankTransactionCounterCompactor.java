@@ -0,0 +1,26 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class BankTransactionCounterCompactor {
+
+  private final BankService bankService;
+
+  @Scheduled(fixedDelayString = "${banks.transaction-counter.compaction-interval:10s}")
+  public void compact() {
+    for (Long bankId : bankService.findBankIdsWithPendingTransactions()) {
+      try {
+        bankService.compactTotalOfTransactions(bankId);
+      } catch (RuntimeException e) {
+        // Se vuelve a intentar en la siguiente ejecucion
+        log.warn("No se pudo compactar el contador del banco {}: {}", bankId, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.lab.junit5.springboot.services;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Total de transacciones por banco en memoria. Lo alimentan los commits de
+// BankService.updateTotalOfTransactions (la base de datos sigue siendo la fuente de verdad) y se
+// reconcilia con la base de datos al arrancar y cada banks.transaction-counter.reconcile-interval,
+// que acota el retraso con que se ven las transferencias de otras instancias.
+//
+// Una reconciliacion lee el total de la base de datos y lo guarda siempre. Si mientras tanto no
+// termino ni quedo pendiente ninguna transaccion del banco el valor es exacto. Si no, una
+// transaccion que hizo commit antes de la lectura pero todavia no sumo en memoria se cuenta dos
+// veces: el total se desvia como mucho en las transacciones que terminan durante la lectura, y la
+// siguiente reconciliacion lo vuelve a fijar. Sin guardarlo, con transferencias continuas nunca
+// habria un momento sin transacciones pendientes y cada lectura iria a la base de datos.
+@Component
+public class BankTransactionTotals {
+
+  // total es null mientras no se leyo de la base de datos. stamp cambia cada vez que termina una
+  // transaccion y inFlight cuenta las transacciones que actualizaron el contador y no terminaron
+  private record Totals(Long total, long stamp, int inFlight) {}
+
+  private final ConcurrentMap<Long, Totals> totalsByBank = new ConcurrentHashMap<>();
+
+  public OptionalLong get(Long bankId) {
+    Totals totals = totalsByBank.get(bankId);
+    return totals == null || totals.total() == null
+        ? OptionalLong.empty()
+        : OptionalLong.of(totals.total());
+  }
+
+  public List<Long> findLoadedBankIds() {
+    return List.copyOf(totalsByBank.keySet());
+  }
+
+  // Se llama dentro de la transaccion que actualiza el contador en la base de datos
+  public void addAfterCommit(Long bankId, int transactions) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      totalsByBank.computeIfPresent(bankId, (id, totals) -> complete(totals, transactions, 0));
+      return;
+    }
+    totalsByBank.merge(
+        bankId,
+        new Totals(null, 0, 1),
+        (totals, ignored) -> new Totals(totals.total(), totals.stamp(), totals.inFlight() + 1));
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            int committed = status == STATUS_COMMITTED ? transactions : 0;
+            totalsByBank.computeIfPresent(bankId, (id, totals) -> complete(totals, committed, 1));
+          }
+        });
+  }
+
+  private static Totals complete(Totals totals, int transactions, int completed) {
+    Long total = totals.total() == null ? null : totals.total() + transactions;
+    return new Totals(total, totals.stamp() + 1, totals.inFlight() - completed);
+  }
+
+  // Guarda y devuelve lo leido de la base de datos
+  public long reconcile(Long bankId, LongSupplier loader) {
+    Totals observed = totalsByBank.computeIfAbsent(bankId, id -> new Totals(null, 0, 0));
+    long total;
+    try {
+      total = loader.getAsLong();
+    } catch (RuntimeException e) {
+      // Banco que no existe o se borro (o la lectura fallo): se olvida, se carga de nuevo al usarlo
+      totalsByBank.computeIfPresent(
+          bankId, (id, current) -> current.inFlight() == 0 ? null : current);
+      throw e;
+    }
+    totalsByBank.computeIfPresent(
+        bankId, (id, current) -> new Totals(total, current.stamp(), current.inFlight()));
+    return total;
+  }
+}
@@ -0,0 +1,37 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class BankTransactionTotalsReconciler {
+
+  private final BankService bankService;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    reconcile(bankService.findAllBankIds());
+  }
+
+  @Scheduled(fixedDelayString = "${banks.transaction-counter.reconcile-interval:1m}")
+  public void reconcile() {
+    reconcile(bankService.findBankIdsWithTotalsInMemory());
+  }
+
+  private void reconcile(Iterable<Long> bankIds) {
+    for (Long bankId : bankIds) {
+      try {
+        bankService.reconcileTotalOfTransactions(bankId);
+      } catch (RuntimeException e) {
+        // Se vuelve a intentar en la siguiente ejecucion
+        log.warn("No se pudo reconciliar el total del banco {}: {}", bankId, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.lab.junit5.springboot.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro de Bloom de Strings seguro entre hilos: mightContain nunca da falso para un valor
+// agregado con put. Los k indices salen de dos hashes de 64 bits (h1 + i * h2).
+final class BloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+  private final AtomicLong setBits = new AtomicLong();
+
+  private BloomFilter(long bitCount, int hashCount) {
+    this.words = new AtomicLongArray(Math.toIntExact((bitCount + 63) / 64));
+    this.bitCount = bitCount;
+    this.hashCount = hashCount;
+  }
+
+  // Tamano optimo para expectedInsertions valores con la tasa de falsos positivos indicada
+  static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+    long n = Math.max(1, expectedInsertions);
+    double ln2 = Math.log(2);
+    long bits = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2)));
+    int hashes = Math.max(1, (int) Math.round((double) bits / n * ln2));
+    return new BloomFilter(bits, hashes);
+  }
+
+  void put(String value) {
+    long hash1 = hash(value);
+    long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long previous = words.getAndAccumulate(word, mask, (current, m) -> current | m);
+      if ((previous & mask) == 0) {
+        setBits.incrementAndGet();
+      }
+    }
+  }
+
+  boolean mightContain(String value) {
+    long hash1 = hash(value);
+    long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  long sizeInBytes() {
+    return (long) words.length() * Long.BYTES;
+  }
+
+  // Probabilidad de falso positivo con los bits ocupados ahora: sube al agregar valores
+  double currentFalsePositiveRate() {
+    return Math.pow((double) setBits.get() / bitCount, hashCount);
+  }
+
+  // FNV-1a de los bytes UTF-8, mezclado para repartir mejor los bits
+  private static long hash(String value) {
+    long hash = 0xCBF29CE484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  // Finalizador de MurmurHash3 (fmix64)
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,204 @@
+package org.lab.junit5.springboot.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Junta las transferencias que llegan dentro de una ventana corta (o hasta maxBatchSize) y las
+// aplica en una sola transaccion: se validan en orden en memoria y cada cuenta tocada recibe un
+// unico UPDATE con su saldo neto (ver TransferBatchProcessor.applyAsBalanceDeltas). Cien creditos
+// concurrentes a la misma cuenta pasan a ser un UPDATE en vez de cien ciclos de lectura y guardado.
+//
+// Mientras un lote hace commit el colector ya esta juntando el siguiente. Si todos los hilos de
+// commit estan ocupados el colector espera y el siguiente lote sale mas grande.
+//
+// Al detenerse, las transferencias que no llegaron a un hilo de commit (el lote que estaba juntando
+// o esperando turno y las que quedan en la cola) terminan con error: quien espera su resultado no
+// se queda bloqueado.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.transfer", name = "engine", havingValue = "coalescing")
+public class CoalescingTransferEngine implements TransferEngine {
+
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+  private final TransferExecutor transferExecutor;
+  private final TransferBatchProcessor transferBatchProcessor;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final BlockingQueue<PendingTransfer> queue;
+  private final Semaphore flushPermits;
+  private final ExecutorService flushExecutor;
+  private final Thread collector;
+  private volatile boolean running = true;
+
+  private final DistributionSummary batchSize;
+  private final DistributionSummary accountsPerBatch;
+
+  public CoalescingTransferEngine(
+      TransferExecutor transferExecutor,
+      TransferBatchProcessor transferBatchProcessor,
+      TransferProperties transferProperties,
+      MeterRegistry meterRegistry) {
+    this.transferExecutor = transferExecutor;
+    this.transferBatchProcessor = transferBatchProcessor;
+
+    TransferProperties.Coalescing coalescing = transferProperties.coalescing();
+    this.windowNanos = coalescing.window().toNanos();
+    this.maxBatchSize = coalescing.maxBatchSize();
+    this.queue = new LinkedBlockingQueue<>(coalescing.queueCapacity());
+    this.flushPermits = new Semaphore(coalescing.flushThreads());
+    this.flushExecutor =
+        Executors.newFixedThreadPool(
+            coalescing.flushThreads(),
+            Thread.ofPlatform().name("transfer-coalescing-flush-", 0).daemon().factory());
+
+    this.batchSize =
+        DistributionSummary.builder("accounts.transfer.coalescing.batch.size")
+            .description("Transferencias aplicadas por commit")
+            .register(meterRegistry);
+    this.accountsPerBatch =
+        DistributionSummary.builder("accounts.transfer.coalescing.batch.accounts")
+            .description("Cuentas actualizadas por commit")
+            .register(meterRegistry);
+
+    this.collector =
+        Thread.ofPlatform().name("transfer-coalescing").daemon().unstarted(this::collect);
+    this.collector.start();
+  }
+
+  @Override
+  public CompletableFuture<Void> submit(TransferDetailDTO transfer) {
+    if (transfer.isNotValid()) {
+      return CompletableFuture.failedFuture(
+          new AccountException(TransferBatchProcessor.INVALID_TRANSFER_MESSAGE));
+    }
+    if (!running) {
+      return CompletableFuture.failedFuture(stopped());
+    }
+
+    PendingTransfer pending = new PendingTransfer(transfer);
+    try {
+      queue.put(pending);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pending.future.completeExceptionally(e);
+    }
+    // Si el motor se detuvo mientras tanto nadie va a leer la cola
+    if (!running) {
+      failQueued();
+    }
+    return pending.future;
+  }
+
+  // Las transferencias que ya estan en un hilo de commit terminan normalmente
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    collector.interrupt();
+    try {
+      collector.join(SHUTDOWN_TIMEOUT.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushExecutor.shutdown();
+    failQueued();
+  }
+
+  private void collect() {
+    List<PendingTransfer> batch = new ArrayList<>();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        nextBatch(batch);
+        flushPermits.acquire();
+        List<PendingTransfer> flushed = List.copyOf(batch);
+        batch.clear();
+        try {
+          flushExecutor.execute(() -> flush(flushed));
+        } catch (RejectedExecutionException e) {
+          flushPermits.release();
+          fail(flushed);
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    log.info("Colector de transferencias detenido");
+    fail(batch);
+    failQueued();
+  }
+
+  private void failQueued() {
+    List<PendingTransfer> queued = new ArrayList<>();
+    queue.drainTo(queued);
+    fail(queued);
+  }
+
+  private static void fail(List<PendingTransfer> batch) {
+    IllegalStateException stopped = stopped();
+    batch.forEach(pending -> pending.future.completeExceptionally(stopped));
+  }
+
+  private static IllegalStateException stopped() {
+    return new IllegalStateException("Transfer engine stopped");
+  }
+
+  // Se bloquea hasta la primera transferencia y a partir de ahi junta en batch las que lleguen
+  // durante la ventana, sin pasar de maxBatchSize. Si se interrumpe, batch se queda con lo que ya
+  // habia juntado
+  private void nextBatch(List<PendingTransfer> batch) throws InterruptedException {
+    batch.add(queue.take());
+    long deadline = System.nanoTime() + windowNanos;
+    while (batch.size() < maxBatchSize) {
+      queue.drainTo(batch, maxBatchSize - batch.size());
+      long remaining = deadline - System.nanoTime();
+      if (batch.size() >= maxBatchSize || remaining <= 0) {
+        break;
+      }
+      PendingTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        break;
+      }
+      batch.add(next);
+    }
+  }
+
+  private void flush(List<PendingTransfer> batch) {
+    try {
+      batchSize.record(batch.size());
+      accountsPerBatch.record(countAccounts(batch));
+      PendingTransfer.applyAsBalanceDeltas(batch, transferExecutor, transferBatchProcessor);
+    } finally {
+      flushPermits.release();
+    }
+  }
+
+  private static int countAccounts(List<PendingTransfer> batch) {
+    Set<Long> accountIds = new HashSet<>();
+    for (PendingTransfer pending : batch) {
+      accountIds.add(pending.transfer.sourceAccountId());
+      accountIds.add(pending.transfer.targetAccountId());
+    }
+    return accountIds.size();
+  }
+}
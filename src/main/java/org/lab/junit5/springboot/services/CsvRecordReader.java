@@ -0,0 +1,100 @@
+package org.lab.junit5.springboot.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lee un CSV registro a registro sin cargar el fichero en memoria: separador ',', campos entre
+// comillas con "" para una comilla (RFC 4180). Un campo entre comillas puede tener comas y saltos
+// de linea. Los registros de mas de MAX_RECORD_LENGTH caracteres se descartan con un error, asi
+// la memoria usada no depende del contenido del fichero.
+final class CsvRecordReader {
+
+  static final int MAX_RECORD_LENGTH = 10_000;
+
+  // line es la linea del fichero donde empieza el registro; con error, fields esta vacio
+  record CsvRecord(long line, List<String> fields, String error) {
+
+    boolean isBlank() {
+      return error == null && fields.size() == 1 && fields.getFirst().isBlank();
+    }
+  }
+
+  private final BufferedReader reader;
+  private long line = 1;
+  private boolean afterNewline;
+
+  CsvRecordReader(Reader reader) {
+    this.reader = new BufferedReader(reader);
+  }
+
+  // null al final del fichero
+  CsvRecord next() throws IOException {
+    int c = read();
+    if (c == -1) {
+      return null;
+    }
+    long startLine = line;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int length = 0;
+    String error = null;
+    while (true) {
+      if (c == -1) {
+        if (quoted && error == null) {
+          error = "Unterminated quoted field";
+        }
+        break;
+      }
+      if (quoted) {
+        if (c == '"') {
+          int next = read();
+          if (next != '"') {
+            quoted = false;
+            c = next;
+            continue;
+          }
+        }
+        field.append((char) c);
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+      if (++length > MAX_RECORD_LENGTH && error == null) {
+        // Se sigue leyendo hasta el final del registro sin guardar nada
+        error = "Record longer than %d characters".formatted(MAX_RECORD_LENGTH);
+      }
+      if (error != null) {
+        fields.clear();
+        field.setLength(0);
+      }
+      c = read();
+    }
+    if (error != null) {
+      return new CsvRecord(startLine, List.of(), error);
+    }
+    fields.add(field.toString());
+    return new CsvRecord(startLine, fields, null);
+  }
+
+  // La linea se incrementa al leer el caracter siguiente al salto, asi line es siempre la del
+  // ultimo caracter leido
+  private int read() throws IOException {
+    if (afterNewline) {
+      line++;
+      afterNewline = false;
+    }
+    int c = reader.read();
+    afterNewline = c == '\n';
+    return c;
+  }
+}
@@ -0,0 +1,25 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class IdempotencyKeyCleaner {
+
+  private final IdempotencyService idempotencyService;
+
+  @Scheduled(fixedDelayString = "${accounts.idempotency.cleanup-interval:10m}")
+  public void deleteExpiredKeys() {
+    try {
+      int deleted = idempotencyService.deleteExpiredKeys();
+      log.debug("Borradas {} claves de idempotencia caducadas", deleted);
+    } catch (RuntimeException e) {
+      // Se vuelve a intentar en la siguiente ejecucion
+      log.warn("No se pudieron borrar las claves de idempotencia caducadas: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package org.lab.junit5.springboot.services;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.http.ResponseEntity;
+
+public interface IdempotencyService {
+
+  ResponseEntity<Map<String, Object>> execute(
+      String idempotencyKey, Object request, Supplier<ResponseEntity<Map<String, Object>>> action);
+
+  int deleteExpiredKeys();
+}
@@ -0,0 +1,250 @@
+package org.lab.junit5.springboot.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.IdempotencyProperties;
+import org.lab.junit5.springboot.models.entitites.IdempotencyRecord;
+import org.lab.junit5.springboot.repositories.IdempotencyRecordRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+// Las respuestas se guardan en la tabla idempotency_keys y delante hay una cache acotada (tamano
+// maximo y TTL) con las claves recientes y las que estan en curso. Una repeticion de una clave
+// conocida en esta instancia no llega a la base de datos, y una repeticion concurrente espera el
+// resultado de la primera peticion en vez de ejecutarla otra vez. Una clave que lleva en curso mas
+// de inProgressTimeout se cierra con un 409 final (ver abandonIfExpired).
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+  private static final TypeReference<Map<String, Object>> RESPONSE_BODY_TYPE =
+      new TypeReference<>() {};
+
+  private final IdempotencyRecordRepository idempotencyRecordRepository;
+  private final ObjectMapper objectMapper;
+  private final IdempotencyProperties idempotencyProperties;
+  private final Clock clock;
+  private final Cache<String, CompletableFuture<StoredResponse>> responses;
+
+  public IdempotencyServiceImpl(
+      IdempotencyRecordRepository idempotencyRecordRepository,
+      ObjectMapper objectMapper,
+      IdempotencyProperties idempotencyProperties,
+      MeterRegistry meterRegistry) {
+    this.idempotencyRecordRepository = idempotencyRecordRepository;
+    this.objectMapper = objectMapper;
+    this.idempotencyProperties = idempotencyProperties;
+    this.clock = Clock.systemUTC();
+    this.responses =
+        Caffeine.newBuilder()
+            .maximumSize(idempotencyProperties.cacheMaxSize())
+            .expireAfterWrite(idempotencyProperties.ttl())
+            .recordStats()
+            .build();
+    // cache.size, cache.gets{result=hit|miss}, cache.evictions, ...
+    CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotency-keys");
+  }
+
+  @Override
+  public ResponseEntity<Map<String, Object>> execute(
+      String idempotencyKey, Object request, Supplier<ResponseEntity<Map<String, Object>>> action) {
+    String requestHash = hash(request);
+
+    CompletableFuture<StoredResponse> ownResult = new CompletableFuture<>();
+    CompletableFuture<StoredResponse> knownResult =
+        responses.asMap().putIfAbsent(idempotencyKey, ownResult);
+    if (knownResult != null) {
+      return replay(knownResult, requestHash);
+    }
+
+    try {
+      StoredResponse response = loadOrRun(idempotencyKey, requestHash, action);
+      ownResult.complete(response);
+      if (!response.isFinal()) {
+        responses.invalidate(idempotencyKey);
+      }
+      return respond(response, requestHash);
+    } catch (RuntimeException e) {
+      responses.invalidate(idempotencyKey);
+      ownResult.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int deleteExpiredKeys() {
+    return idempotencyRecordRepository.deleteCreatedBefore(
+        Instant.now(clock).minus(idempotencyProperties.ttl()));
+  }
+
+  private ResponseEntity<Map<String, Object>> replay(
+      CompletableFuture<StoredResponse> knownResult, String requestHash) {
+    StoredResponse response;
+    try {
+      response = knownResult.join();
+    } catch (CompletionException e) {
+      // La peticion original fallo con una excepcion: la repeticion recibe el mismo error
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+    return respond(response, requestHash);
+  }
+
+  private ResponseEntity<Map<String, Object>> respond(
+      StoredResponse response, String requestHash) {
+    if (!response.requestHash().equals(requestHash)) {
+      return errorResponse(
+          HttpStatus.UNPROCESSABLE_ENTITY,
+          "Idempotency-Key was already used with a different request");
+    }
+    return toResponseEntity(response);
+  }
+
+  private StoredResponse loadOrRun(
+      String idempotencyKey,
+      String requestHash,
+      Supplier<ResponseEntity<Map<String, Object>>> action) {
+    // Milisegundos: startedAt identifica esta ejecucion y tiene que compararse igual al leerlo
+    Instant startedAt = Instant.now(clock).truncatedTo(ChronoUnit.MILLIS);
+    try {
+      idempotencyRecordRepository.insertInProgress(idempotencyKey, requestHash, startedAt);
+    } catch (DataIntegrityViolationException e) {
+      // Clave ya usada: en otra instancia, o en esta antes de que la cache la olvidara
+      abandonIfExpired(idempotencyKey, startedAt);
+      return findStoredResponse(idempotencyKey, requestHash);
+    }
+
+    ResponseEntity<Map<String, Object>> response;
+    try {
+      response = action.get();
+    } catch (RuntimeException e) {
+      idempotencyRecordRepository.deleteInProgress(idempotencyKey, startedAt);
+      throw e;
+    }
+
+    if (response.getStatusCode().is5xxServerError()) {
+      // Un error interno no se guarda: el cliente puede reintentar con la misma clave
+      idempotencyRecordRepository.deleteInProgress(idempotencyKey, startedAt);
+      return new StoredResponse(requestHash, response.getStatusCode().value(), null, false);
+    }
+    String body = writeBody(response.getBody());
+    if (idempotencyRecordRepository.complete(
+            idempotencyKey, startedAt, response.getStatusCode().value(), body)
+        == 0) {
+      log.warn(
+          "La clave de idempotencia {} se dio por abandonada antes de terminar: respuesta no"
+              + " guardada",
+          idempotencyKey);
+    }
+    return new StoredResponse(requestHash, response.getStatusCode().value(), body, true);
+  }
+
+  // La clave y la transferencia no se guardan en la misma transaccion: una clave en curso desde
+  // hace mas de inProgressTimeout puede haber movido el dinero o no (la instancia se cayo antes o
+  // despues del commit, o sigue ejecutandose). No se vuelve a ejecutar nunca; se guarda como
+  // respuesta final un 409 que pide comprobar los saldos y usar una clave nueva
+  private void abandonIfExpired(String idempotencyKey, Instant now) {
+    Duration inProgressTimeout = idempotencyProperties.inProgressTimeout();
+    int abandoned =
+        idempotencyRecordRepository.abandon(
+            idempotencyKey,
+            HttpStatus.CONFLICT.value(),
+            writeBody(
+                errorBody(
+                    "The request with this Idempotency-Key did not finish and its outcome is"
+                        + " unknown: check the balances before retrying with a new key")),
+            now.minus(inProgressTimeout));
+    if (abandoned > 0) {
+      log.warn(
+          "Clave de idempotencia {} en curso durante mas de {}: se da por abandonada",
+          idempotencyKey,
+          inProgressTimeout);
+    }
+  }
+
+  private StoredResponse findStoredResponse(String idempotencyKey, String requestHash) {
+    Optional<IdempotencyRecord> storedRecord =
+        idempotencyRecordRepository.findById(idempotencyKey);
+    if (storedRecord.isEmpty() || storedRecord.get().getResponseStatus() == null) {
+      // Todavia en curso en otra instancia (o borrada por un error interno entre medias)
+      return new StoredResponse(
+          requestHash,
+          HttpStatus.CONFLICT.value(),
+          writeBody(errorBody("A request with this Idempotency-Key is still in progress")),
+          false);
+    }
+    IdempotencyRecord idempotencyRecord = storedRecord.get();
+    return new StoredResponse(
+        idempotencyRecord.getRequestHash(),
+        idempotencyRecord.getResponseStatus(),
+        idempotencyRecord.getResponseBody(),
+        true);
+  }
+
+  private String hash(Object request) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Could not hash the request", e);
+    }
+  }
+
+  private String writeBody(Map<String, Object> body) {
+    try {
+      return body == null ? null : objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not store the response", e);
+    }
+  }
+
+  private ResponseEntity<Map<String, Object>> toResponseEntity(StoredResponse response) {
+    return ResponseEntity.status(response.status()).body(readBody(response.body()));
+  }
+
+  private Map<String, Object> readBody(String body) {
+    try {
+      return body == null ? null : objectMapper.readValue(body, RESPONSE_BODY_TYPE);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not read the stored response", e);
+    }
+  }
+
+  private static Map<String, Object> errorBody(String message) {
+    Map<String, Object> response = new HashMap<>();
+    response.put("status", "error");
+    response.put("message", message);
+    return response;
+  }
+
+  private static ResponseEntity<Map<String, Object>> errorResponse(
+      HttpStatus status, String message) {
+    return ResponseEntity.status(status).body(errorBody(message));
+  }
+
+  // isFinal: se puede reutilizar para repeticiones futuras (no es un 5xx ni un "en curso")
+  private record StoredResponse(String requestHash, int status, String body, boolean isFinal) {}
+}
@@ -0,0 +1,28 @@
+package org.lab.junit5.springboot.services;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.lab.junit5.springboot.models.entitites.Account;
+
+public interface LedgerService {
+
+  BigDecimal getBalance(Long accountId);
+
+  Map<Long, BigDecimal> getBalances(Collection<Long> accountIds);
+
+  void applyBalances(Collection<Account> accounts);
+
+  Map<Long, Account> loadAccountsForTransfer(
+      Collection<Long> sourceAccountIds, Collection<Long> targetAccountIds);
+
+  void append(Long sourceAccountId, Long targetAccountId, long amountInMinorUnits);
+
+  Optional<Long> findSnapshotHorizon();
+
+  List<Long> findAccountIdsToSnapshot(long horizon);
+
+  void snapshot(Long accountId, long horizon);
+}
@@ -0,0 +1,147 @@
+package org.lab.junit5.springboot.services;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.LedgerEntry;
+import org.lab.junit5.springboot.models.money.Money;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.LedgerEntryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Libro mayor de solo escritura: una transferencia solo inserta asientos y bloquea la cuenta de
+// origen para validar su saldo; la de destino no se toca, asi que las cuentas que reciben muchas
+// transferencias dejan de ser un punto de contencion. El saldo real es accounts.balance (la
+// ultima consolidacion) mas los asientos con seq > accounts.ledger_seq.
+//
+// Consolidacion: solo se incluyen asientos hasta el mayor seq creado antes de now - settleWindow.
+// Como seq sigue el orden de creacion y ninguna transaccion que escribe asientos dura mas que
+// transactionTimeout (< settleWindow), todos los asientos con un seq menor ya estan confirmados y
+// ninguno se queda por detras de ledger_seq sin sumar.
+@Service
+@AllArgsConstructor
+public class LedgerServiceImpl implements LedgerService {
+
+  private final LedgerEntryRepository ledgerEntryRepository;
+  private final AccountRepository accountRepository;
+  private final TransferProperties transferProperties;
+  private final AccountCache accountCache;
+  private final Clock clock = Clock.systemUTC();
+
+  @Override
+  @Transactional(readOnly = true)
+  public BigDecimal getBalance(Long accountId) {
+    return ledgerEntryRepository
+        .findBalance(accountId)
+        .orElseThrow(() -> new AccountNotFoundByIdException(accountId));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+    Map<Long, BigDecimal> balances = new HashMap<>();
+    for (Object[] row : ledgerEntryRepository.findBalances(accountIds)) {
+      balances.put(((Number) row[0]).longValue(), (BigDecimal) row[1]);
+    }
+    return balances;
+  }
+
+  // Cambia el saldo de cada cuenta por el real (consolidado mas asientos pendientes), leido con una
+  // sola consulta. Las cuentas tienen que ser copias: el saldo no se tiene que escribir
+  @Override
+  @Transactional(readOnly = true)
+  public void applyBalances(Collection<Account> accounts) {
+    if (accounts.isEmpty()) {
+      return;
+    }
+    Map<Long, Account> accountsById = new HashMap<>();
+    for (Account account : accounts) {
+      accountsById.put(account.getId(), account);
+    }
+    for (Object[] row : ledgerEntryRepository.findBalances(accountsById.keySet())) {
+      accountsById.get(((Number) row[0]).longValue()).setBalance((BigDecimal) row[1]);
+    }
+  }
+
+  // Las cuentas de origen se bloquean en orden ascendente de id; las de destino solo se leen. El
+  // saldo de las cuentas devueltas ya incluye los asientos sin consolidar, y como son entidades de
+  // solo lectura los cambios que se hagan en memoria para validar no se escriben.
+  @Override
+  @Transactional(propagation = Propagation.MANDATORY)
+  public Map<Long, Account> loadAccountsForTransfer(
+      Collection<Long> sourceAccountIds, Collection<Long> targetAccountIds) {
+    Map<Long, Account> accounts = new HashMap<>();
+    for (Account account : accountRepository.findAllByIdForUpdateReadOnly(sourceAccountIds)) {
+      accounts.put(account.getId(), account);
+    }
+    Set<Long> unlockedIds = new HashSet<>(targetAccountIds);
+    unlockedIds.removeAll(accounts.keySet());
+    if (!unlockedIds.isEmpty()) {
+      for (Account account : accountRepository.findAllByIdReadOnly(unlockedIds)) {
+        accounts.put(account.getId(), account);
+      }
+    }
+    if (accounts.isEmpty()) {
+      return accounts;
+    }
+
+    for (Object[] pending : ledgerEntryRepository.sumPendingAmounts(accounts.keySet())) {
+      Account account = accounts.get(((Number) pending[0]).longValue());
+      account.deposit(Money.toMinorUnits((BigDecimal) pending[1]));
+    }
+    return accounts;
+  }
+
+  // Los INSERT se envian al hacer flush, agrupados en batches JDBC con los del resto del lote
+  @Override
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void append(Long sourceAccountId, Long targetAccountId, long amountInMinorUnits) {
+    Instant now = Instant.now(clock);
+    ledgerEntryRepository.save(
+        new LedgerEntry()
+            .setAccountId(sourceAccountId)
+            .setCounterpartyAccountId(targetAccountId)
+            .setAmount(-amountInMinorUnits)
+            .setCreatedAt(now));
+    ledgerEntryRepository.save(
+        new LedgerEntry()
+            .setAccountId(targetAccountId)
+            .setCounterpartyAccountId(sourceAccountId)
+            .setAmount(amountInMinorUnits)
+            .setCreatedAt(now));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<Long> findSnapshotHorizon() {
+    Instant settled = Instant.now(clock).minus(transferProperties.ledger().settleWindow());
+    return ledgerEntryRepository.findMaxSeqCreatedBefore(settled);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<Long> findAccountIdsToSnapshot(long horizon) {
+    return ledgerEntryRepository.findAccountIdsWithPendingEntries(horizon);
+  }
+
+  // Un UPDATE por cuenta: la fila queda bloqueada solo durante esta transaccion corta
+  @Override
+  @Transactional
+  public void snapshot(Long accountId, long horizon) {
+    accountRepository.snapshotLedger(accountId, horizon);
+    accountCache.evictAfterCommit(accountId);
+  }
+}
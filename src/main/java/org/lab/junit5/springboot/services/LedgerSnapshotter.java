@@ -0,0 +1,34 @@
+package org.lab.junit5.springboot.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class LedgerSnapshotter {
+
+  private final LedgerService ledgerService;
+
+  @Scheduled(fixedDelayString = "${accounts.transfer.ledger.snapshot-interval:5s}")
+  public void snapshot() {
+    ledgerService
+        .findSnapshotHorizon()
+        .ifPresent(
+            horizon -> {
+              for (Long accountId : ledgerService.findAccountIdsToSnapshot(horizon)) {
+                try {
+                  ledgerService.snapshot(accountId, horizon);
+                } catch (RuntimeException e) {
+                  // Se vuelve a intentar en la siguiente ejecucion
+                  log.warn(
+                      "No se pudo consolidar el saldo de la cuenta {}: {}",
+                      accountId,
+                      e.getMessage());
+                }
+              }
+            });
+  }
+}
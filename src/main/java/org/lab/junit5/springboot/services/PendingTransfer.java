@@ -0,0 +1,47 @@
+package org.lab.junit5.springboot.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+
+// Transferencia encolada en un TransferEngine junto con el resultado que espera quien la envio
+@Slf4j
+final class PendingTransfer {
+
+  final TransferDetailDTO transfer;
+  final CompletableFuture<Void> future = new CompletableFuture<>();
+
+  PendingTransfer(TransferDetailDTO transfer) {
+    this.transfer = transfer;
+  }
+
+  // Aplica el grupo en una sola transaccion con saldos netos por cuenta y completa cada futuro con
+  // el resultado de su transferencia
+  static void applyAsBalanceDeltas(
+      List<PendingTransfer> group,
+      TransferExecutor transferExecutor,
+      TransferBatchProcessor transferBatchProcessor) {
+    List<TransferDetailDTO> transfers = new ArrayList<>(group.size());
+    for (PendingTransfer pending : group) {
+      transfers.add(pending.transfer);
+    }
+
+    try {
+      List<TransferOutcome> outcomes =
+          transferExecutor.execute(() -> transferBatchProcessor.applyAsBalanceDeltas(transfers));
+      for (int i = 0; i < outcomes.size(); i++) {
+        TransferOutcome outcome = outcomes.get(i);
+        if (outcome.isSuccessful()) {
+          group.get(i).future.complete(null);
+        } else {
+          group.get(i).future.completeExceptionally(outcome.error());
+        }
+      }
+    } catch (RuntimeException e) {
+      log.error("Fallo un grupo de {} transferencias: {}", group.size(), e.getMessage());
+      group.forEach(pending -> pending.future.completeExceptionally(e));
+    }
+  }
+}
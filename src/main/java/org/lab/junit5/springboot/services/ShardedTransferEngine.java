@@ -0,0 +1,149 @@
+package org.lab.junit5.springboot.services;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Reparte las transferencias en colas por shard segun el hash de la cuenta de origen. Cada shard
+// tiene un unico hilo escritor que aplica sus transferencias en orden y agrupa varias en un solo
+// commit, de modo que las cuentas calientes no se disputan bloqueos de fila entre hilos de Tomcat.
+//
+// Transferencias entre shards: solo el shard de la cuenta de origen puede descontar de ella, asi
+// que la validacion del saldo nunca compite con otro escritor. El abono a la cuenta de destino es
+// un incremento conmutativo en la misma transaccion, y cada commit actualiza sus filas en orden
+// ascendente de id (ver TransferBatchProcessor.applyAsBalanceDeltas), por lo que dos shards que se
+// abonan mutuamente se esperan como mucho hasta el commit del otro, sin deadlocks.
+//
+// Al detenerse, las transferencias que quedan en las colas y las que se envian despues terminan con
+// error: quien espera su resultado no se queda bloqueado.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "accounts.transfer", name = "engine", havingValue = "sharded")
+public class ShardedTransferEngine implements TransferEngine {
+
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+  private final TransferExecutor transferExecutor;
+  private final TransferBatchProcessor transferBatchProcessor;
+  private final int groupSize;
+  private final Shard[] shards;
+  private volatile boolean running = true;
+
+  public ShardedTransferEngine(
+      TransferExecutor transferExecutor,
+      TransferBatchProcessor transferBatchProcessor,
+      TransferProperties transferProperties) {
+    this.transferExecutor = transferExecutor;
+    this.transferBatchProcessor = transferBatchProcessor;
+
+    TransferProperties.Sharded sharded = transferProperties.sharded();
+    this.groupSize = sharded.groupSize();
+    this.shards = new Shard[sharded.shards()];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new Shard(i, sharded.queueCapacity());
+      shards[i].writer.start();
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> submit(TransferDetailDTO transfer) {
+    if (transfer.isNotValid()) {
+      return CompletableFuture.failedFuture(
+          new AccountException(TransferBatchProcessor.INVALID_TRANSFER_MESSAGE));
+    }
+    if (!running) {
+      return CompletableFuture.failedFuture(stopped());
+    }
+
+    PendingTransfer task = new PendingTransfer(transfer);
+    Shard shard = shardOf(transfer.sourceAccountId());
+    try {
+      shard.queue.put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      task.future.completeExceptionally(e);
+    }
+    // Si el motor se detuvo mientras tanto nadie va a leer la cola
+    if (!running) {
+      shard.failQueued();
+    }
+    return task.future;
+  }
+
+  // Los grupos que ya estan haciendo commit terminan normalmente; se esperan hasta
+  // SHUTDOWN_TIMEOUT
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    for (Shard shard : shards) {
+      shard.writer.interrupt();
+      shard.failQueued();
+    }
+    long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT.toNanos();
+    for (Shard shard : shards) {
+      try {
+        shard.writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      shard.failQueued();
+    }
+  }
+
+  private static IllegalStateException stopped() {
+    return new IllegalStateException("Transfer engine stopped");
+  }
+
+  private Shard shardOf(Long accountId) {
+    return shards[Math.floorMod(Long.hashCode(accountId), shards.length)];
+  }
+
+  private final class Shard {
+    private final int index;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final Thread writer;
+
+    private Shard(int index, int queueCapacity) {
+      this.index = index;
+      this.queue = new LinkedBlockingQueue<>(queueCapacity);
+      this.writer =
+          Thread.ofPlatform().name("transfer-shard-" + index).daemon().unstarted(this::run);
+    }
+
+    private void run() {
+      List<PendingTransfer> group = new ArrayList<>(groupSize);
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          // Se bloquea hasta la primera transferencia y se lleva las que se acumularon mientras se
+          // hacia el commit anterior
+          group.add(queue.take());
+          queue.drainTo(group, groupSize - 1);
+          PendingTransfer.applyAsBalanceDeltas(group, transferExecutor, transferBatchProcessor);
+          group.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      log.info("Escritor del shard {} detenido", index);
+      failQueued();
+    }
+
+    private void failQueued() {
+      List<PendingTransfer> queued = new ArrayList<>();
+      queue.drainTo(queued);
+      IllegalStateException stopped = stopped();
+      queued.forEach(task -> task.future.completeExceptionally(stopped));
+    }
+  }
+}
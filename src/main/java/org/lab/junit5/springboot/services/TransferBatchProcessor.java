@@ -0,0 +1,207 @@
+package org.lab.junit5.springboot.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.exceptions.BankException;
+import org.lab.junit5.springboot.exceptions.BankNotFoundByIdException;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.money.Money;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Aplica un lote de transferencias dentro de la transaccion del llamador: carga todas las cuentas
+// del lote en una sola consulta, aplica las transferencias en orden en memoria y deja que Hibernate
+// envie los UPDATE de las cuentas modificadas agrupados en batches JDBC al hacer commit. Una
+// transferencia que falla (saldo, cuenta o banco inexistente) no afecta a las demas.
+@Component
+@AllArgsConstructor
+public class TransferBatchProcessor {
+
+  static final String INVALID_TRANSFER_MESSAGE = "Transfer details are required";
+
+  private final AccountRepository accountRepository;
+  private final BankService bankService;
+  private final TransferProperties transferProperties;
+  private final LedgerService ledgerService;
+  private final AccountCache accountCache;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public List<TransferOutcome> apply(List<TransferDetailDTO> transfers) {
+    boolean ledger = transferProperties.mode() == TransferMode.LEDGER;
+    Map<Long, Account> accounts =
+        ledger ? loadAccountsForLedger(transfers) : loadAccounts(transfers, accountFinder());
+    Map<Long, BankException> bankErrors = findBankErrors(transfers);
+
+    List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+    Map<Long, Integer> transactionsByBank = new LinkedHashMap<>();
+    for (TransferDetailDTO transfer : transfers) {
+      try {
+        long amount = applyTransfer(transfer, accounts, bankErrors);
+        if (ledger) {
+          // Las cuentas son de solo lectura: lo que se escribe son los asientos
+          ledgerService.append(transfer.sourceAccountId(), transfer.targetAccountId(), amount);
+        }
+        transactionsByBank.merge(transfer.bankId(), 1, Integer::sum);
+        outcomes.add(TransferOutcome.successful(transfer));
+      } catch (AccountException | BankException e) {
+        outcomes.add(TransferOutcome.failed(transfer, e));
+      }
+    }
+
+    transactionsByBank.forEach(bankService::updateTotalOfTransactions);
+    accountCache.evictAfterCommit(accounts.keySet());
+    return outcomes;
+  }
+
+  // Variante para los TransferEngine. Las transferencias se validan en memoria y se escribe un
+  // UPDATE por cuenta con el saldo neto del lote: un debito condicional para las cuentas que
+  // pierden saldo y un credito (conmutativo con lo que hagan otros lotes) para el resto. Las filas
+  // se actualizan en orden ascendente de id, asi dos lotes que se abonan mutuamente nunca se
+  // bloquean en orden inverso. En ShardedTransferEngine el llamador es el unico escritor de las
+  // cuentas de origen; en CoalescingTransferEngine dos lotes pueden descontar de la misma cuenta y
+  // el debito condicional es lo que evita el saldo negativo (el lote que pierde se reintenta).
+  //
+  // En modo ledger el lote se aplica como en apply: el saldo que se valida incluye los asientos sin
+  // consolidar y cada transferencia deja sus asientos en vez de reescribir accounts.balance.
+  @Transactional(propagation = Propagation.MANDATORY)
+  public List<TransferOutcome> applyAsBalanceDeltas(List<TransferDetailDTO> transfers) {
+    if (transferProperties.mode() == TransferMode.LEDGER) {
+      return apply(transfers);
+    }
+    Map<Long, Account> accounts = loadAccounts(transfers, accountRepository::findAllByIdReadOnly);
+    Map<Long, BankException> bankErrors = findBankErrors(transfers);
+
+    List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+    // Saldo neto por cuenta en centimos; long[] evita crear un Long por cada transferencia
+    Map<Long, long[]> deltas = new TreeMap<>();
+    Map<Long, Integer> transactionsByBank = new TreeMap<>();
+    for (TransferDetailDTO transfer : transfers) {
+      try {
+        long amount = applyTransfer(transfer, accounts, bankErrors);
+        long[] sourceDelta = deltas.computeIfAbsent(transfer.sourceAccountId(), id -> new long[1]);
+        sourceDelta[0] = Money.subtract(sourceDelta[0], amount);
+        long[] targetDelta = deltas.computeIfAbsent(transfer.targetAccountId(), id -> new long[1]);
+        targetDelta[0] = Money.add(targetDelta[0], amount);
+        transactionsByBank.merge(transfer.bankId(), 1, Integer::sum);
+        outcomes.add(TransferOutcome.successful(transfer));
+      } catch (AccountException | BankException e) {
+        outcomes.add(TransferOutcome.failed(transfer, e));
+      }
+    }
+
+    deltas.forEach((accountId, delta) -> applyBalanceDelta(accountId, delta[0]));
+    accountCache.evictAfterCommit(deltas.keySet());
+    transactionsByBank.forEach(bankService::updateTotalOfTransactions);
+    return outcomes;
+  }
+
+  private void applyBalanceDelta(Long accountId, long delta) {
+    if (delta > 0) {
+      accountRepository.deposit(accountId, delta);
+    } else if (delta < 0 && accountRepository.withdraw(accountId, -delta) == 0) {
+      // Alguien fuera del motor desconto de la cuenta mientras tanto: TransferExecutor reintenta
+      // el lote completo con el saldo actualizado
+      throw new ConcurrencyFailureException(
+          "Balance of account %d changed during the transfer".formatted(accountId));
+    }
+  }
+
+  // Devuelve el importe aplicado en centimos
+  private long applyTransfer(
+      TransferDetailDTO transfer,
+      Map<Long, Account> accounts,
+      Map<Long, BankException> bankErrors) {
+    if (transfer.isNotValid()) {
+      throw new AccountException(INVALID_TRANSFER_MESSAGE);
+    }
+    Account sourceAccount = getAccount(accounts, transfer.sourceAccountId());
+    Account targetAccount = getAccount(accounts, transfer.targetAccountId());
+    BankException bankError = bankErrors.get(transfer.bankId());
+    if (bankError != null) {
+      throw bankError;
+    }
+    // withdraw valida el saldo antes de modificar la cuenta, asi un fallo no deja nada a medias
+    long amount = Money.toTransferAmount(transfer.amount());
+    sourceAccount.withdraw(amount);
+    targetAccount.deposit(amount);
+    return amount;
+  }
+
+  private Account getAccount(Map<Long, Account> accounts, Long accountId) {
+    Account account = accounts.get(accountId);
+    if (account == null) {
+      throw new AccountNotFoundByIdException(accountId);
+    }
+    return account;
+  }
+
+  // En modo pesimista se bloquean todas las cuentas del lote en orden ascendente de id
+  private Function<Set<Long>, List<Account>> accountFinder() {
+    return transferProperties.mode() == TransferMode.PESSIMISTIC
+        ? accountRepository::findAllByIdForUpdate
+        : accountRepository::findAllById;
+  }
+
+  private Map<Long, Account> loadAccountsForLedger(List<TransferDetailDTO> transfers) {
+    Set<Long> sourceAccountIds = new HashSet<>();
+    Set<Long> targetAccountIds = new HashSet<>();
+    for (TransferDetailDTO transfer : transfers) {
+      if (!transfer.isNotValid()) {
+        sourceAccountIds.add(transfer.sourceAccountId());
+        targetAccountIds.add(transfer.targetAccountId());
+      }
+    }
+    if (sourceAccountIds.isEmpty()) {
+      return Map.of();
+    }
+    return ledgerService.loadAccountsForTransfer(sourceAccountIds, targetAccountIds);
+  }
+
+  private Map<Long, Account> loadAccounts(
+      List<TransferDetailDTO> transfers, Function<Set<Long>, List<Account>> finder) {
+    Set<Long> accountIds = new HashSet<>();
+    for (TransferDetailDTO transfer : transfers) {
+      if (!transfer.isNotValid()) {
+        accountIds.add(transfer.sourceAccountId());
+        accountIds.add(transfer.targetAccountId());
+      }
+    }
+    if (accountIds.isEmpty()) {
+      return Map.of();
+    }
+
+    return finder.apply(accountIds).stream()
+        .collect(Collectors.toMap(Account::getId, Function.identity()));
+  }
+
+  // Un lote suele tener pocos bancos distintos: se valida cada uno una sola vez. Se usa
+  // existsBank y no findBankById para no depender de una excepcion dentro de la transaccion del
+  // chunk
+  private Map<Long, BankException> findBankErrors(List<TransferDetailDTO> transfers) {
+    Set<Long> bankIds = new HashSet<>();
+    Map<Long, BankException> bankErrors = new HashMap<>();
+    for (TransferDetailDTO transfer : transfers) {
+      Long bankId = transfer.bankId();
+      if (bankId != null && bankIds.add(bankId) && !bankService.existsBank(bankId)) {
+        bankErrors.put(bankId, new BankNotFoundByIdException(bankId));
+      }
+    }
+    return bankErrors;
+  }
+}
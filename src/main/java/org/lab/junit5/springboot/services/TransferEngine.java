@@ -0,0 +1,10 @@
+package org.lab.junit5.springboot.services;
+
+import java.util.concurrent.CompletableFuture;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+
+// Motor que encola las transferencias y las aplica agrupadas desde sus propios hilos
+public interface TransferEngine {
+
+  CompletableFuture<Void> submit(TransferDetailDTO transfer);
+}
@@ -0,0 +1,11 @@
+package org.lab.junit5.springboot.services;
+
+public enum TransferEngineType {
+  // Cada transferencia se ejecuta en el hilo del llamador y compite por las filas en base de datos
+  DIRECT,
+  // Las transferencias se encolan en ShardedTransferEngine: un unico escritor por shard de cuentas
+  SHARDED,
+  // Las transferencias que llegan dentro de una ventana corta se aplican juntas en
+  // CoalescingTransferEngine, con un UPDATE por cuenta con el saldo neto
+  COALESCING
+}
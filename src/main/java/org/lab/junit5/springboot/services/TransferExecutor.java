@@ -0,0 +1,142 @@
+package org.lab.junit5.springboot.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Ejecuta cada intento de una transferencia en su propia transaccion y la reintenta, con un backoff
+// exponencial con jitter, cuando falla por contencion (conflictos de version, timeouts de bloqueo,
+// deadlocks, etc.). Los reintentos quedan registrados en metricas para comparar los modos.
+@Slf4j
+@Component
+public class TransferExecutor {
+
+  private final TransactionTemplate transactionTemplate;
+  private final TransferProperties.Retry retry;
+
+  private final DistributionSummary attemptsPerTransfer;
+  private final Counter optimisticRetries;
+  private final Counter lockRetries;
+  private final Counter exhaustedRetries;
+
+  public TransferExecutor(
+      PlatformTransactionManager transactionManager,
+      TransferProperties transferProperties,
+      MeterRegistry meterRegistry) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    if (transferProperties.mode() == TransferMode.LEDGER) {
+      // Acota cuanto puede tardar en confirmarse un asiento (ver TransferProperties.Ledger)
+      this.transactionTemplate.setTimeout(
+          Math.toIntExact(transferProperties.ledger().transactionTimeout().toSeconds()));
+    }
+    this.retry = transferProperties.retry();
+
+    String mode = transferProperties.mode().name().toLowerCase();
+    this.attemptsPerTransfer =
+        DistributionSummary.builder("accounts.transfer.attempts")
+            .description("Intentos necesarios por transferencia")
+            .tag("mode", mode)
+            .register(meterRegistry);
+    this.optimisticRetries = retryCounter(meterRegistry, mode, "optimistic");
+    this.lockRetries = retryCounter(meterRegistry, mode, "lock");
+    this.exhaustedRetries =
+        Counter.builder("accounts.transfer.retries.exhausted")
+            .description("Transferencias que agotaron los reintentos")
+            .tag("mode", mode)
+            .register(meterRegistry);
+  }
+
+  private static Counter retryCounter(MeterRegistry meterRegistry, String mode, String cause) {
+    return Counter.builder("accounts.transfer.retries")
+        .description("Reintentos de transferencias por contencion")
+        .tag("mode", mode)
+        .tag("cause", cause)
+        .register(meterRegistry);
+  }
+
+  public void execute(Runnable transfer) {
+    execute(
+        () -> {
+          transfer.run();
+          return null;
+        });
+  }
+
+  public <T> T execute(Supplier<T> transfer) {
+    // Dentro de una transaccion ya abierta no se puede reintentar: el fallo la deja marcada para
+    // rollback, asi que el reintento le corresponde a quien la abrio
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return transfer.get();
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      try {
+        T result = transactionTemplate.execute(status -> transfer.get());
+        attemptsPerTransfer.record(attempt);
+        return result;
+      } catch (RuntimeException e) {
+        if (!isRetryable(e)) {
+          attemptsPerTransfer.record(attempt);
+          throw e;
+        }
+        if (attempt >= retry.maxAttempts()) {
+          attemptsPerTransfer.record(attempt);
+          exhaustedRetries.increment();
+          throw e;
+        }
+        (isOptimisticFailure(e) ? optimisticRetries : lockRetries).increment();
+        log.debug("Intento {} de transferencia fallido por contencion: {}", attempt, e.toString());
+        backoff(attempt, e);
+      }
+    }
+  }
+
+  static boolean isRetryable(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConcurrencyFailureException
+          || cause instanceof OptimisticLockException
+          || cause instanceof PessimisticLockException
+          || cause instanceof LockTimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isOptimisticFailure(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof OptimisticLockingFailureException
+          || cause instanceof OptimisticLockException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void backoff(int attempt, RuntimeException failure) {
+    long initial = retry.initialBackoff().toMillis();
+    long ceiling = Math.min(retry.maxBackoff().toMillis(), initial << Math.min(attempt - 1, 20));
+    // "Equal jitter": la mitad fija y la otra mitad aleatoria, para que los hilos que chocaron no
+    // vuelvan a chocar en el mismo instante
+    long sleep = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    try {
+      Thread.sleep(sleep);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failure;
+    }
+  }
+}
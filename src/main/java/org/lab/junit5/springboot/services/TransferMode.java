@@ -0,0 +1,14 @@
+package org.lab.junit5.springboot.services;
+
+public enum TransferMode {
+  // Carga ambas cuentas, las modifica en memoria y las guarda. Con @Version en Account es control
+  // optimista: los conflictos se detectan al hacer commit y TransferExecutor reintenta
+  ENTITY,
+  // Debito condicional y credito con dos UPDATE, sin cargar las entidades
+  ATOMIC,
+  // Bloquea ambas filas (PESSIMISTIC_WRITE) siempre en orden ascendente de id
+  PESSIMISTIC,
+  // Solo anade un asiento de debito y otro de credito en ledger_entries y bloquea unicamente la
+  // cuenta de origen. LedgerSnapshotter consolida despues los asientos en accounts.balance
+  LEDGER
+}
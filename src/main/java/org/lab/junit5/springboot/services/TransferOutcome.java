@@ -0,0 +1,19 @@
+package org.lab.junit5.springboot.services;
+
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+
+// Resultado de una transferencia aplicada dentro de un lote: error es null si se aplico
+public record TransferOutcome(TransferDetailDTO transfer, RuntimeException error) {
+
+  public static TransferOutcome successful(TransferDetailDTO transfer) {
+    return new TransferOutcome(transfer, null);
+  }
+
+  public static TransferOutcome failed(TransferDetailDTO transfer, RuntimeException error) {
+    return new TransferOutcome(transfer, error);
+  }
+
+  public boolean isSuccessful() {
+    return error == null;
+  }
+}
@@ -1,7 +1,9 @@
--- Limpia la Tabla banks y reiniciar autoincremento
+-- Limpia los contadores de transferencias de los bancos
+DELETE FROM bank_transaction_counters;
+
+-- Limpia la Tabla banks. Las secuencias de ids no se reinician: otros contextos de Spring pueden
+-- tener bloques de ids ya reservados
 DELETE FROM banks;
-ALTER TABLE banks ALTER COLUMN id RESTART WITH 1;
 
--- Limpia la Tabla banks y reiniciar autoincremento
+-- Limpia la Tabla accounts
 DELETE FROM accounts;
-ALTER TABLE accounts ALTER COLUMN id RESTART WITH 1;
@@ -1,12 +1,16 @@
 -- Agrega Banco de Prueba
 INSERT INTO banks (id, name, total_of_transactions) VALUES (1, 'Banco de Prueba', 0);
 
--- Ajusta el autoincremento automáticamente
-ALTER TABLE banks ALTER COLUMN id RESTART WITH (SELECT MAX(id) + 1 FROM banks);
+-- Adelanta la secuencia de ids por encima de los ids insertados (nunca la hace retroceder)
+ALTER SEQUENCE banks_seq RESTART WITH (SELECT GREATEST(MAX(id) + 1, (SELECT BASE_VALUE
+    FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'BANKS_SEQ')) FROM banks);
 
 -- Agrega Cuentas de Prueba
-INSERT INTO accounts (id, account_number, owner, balance) VALUES (1, '123456', 'Juan Perez', 1000);
-INSERT INTO accounts (id, account_number, owner, balance) VALUES (2, '654321', 'Maria Lopez', 2000);
+INSERT INTO accounts (id, account_number, owner, owner_normalized, balance)
+    VALUES (1, '123456', 'Juan Perez', 'juan perez', 1000);
+INSERT INTO accounts (id, account_number, owner, owner_normalized, balance)
+    VALUES (2, '654321', 'Maria Lopez', 'maria lopez', 2000);
 
--- Ajusta el autoincremento automáticamente
-ALTER TABLE accounts ALTER COLUMN id RESTART WITH (SELECT MAX(id) + 1 FROM accounts);
\ No newline at end of file
+-- Adelanta la secuencia de ids por encima de los ids insertados (nunca la hace retroceder)
+ALTER SEQUENCE accounts_seq RESTART WITH (SELECT GREATEST(MAX(id) + 1, (SELECT BASE_VALUE
+    FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'ACCOUNTS_SEQ')) FROM accounts);
\ No newline at end of file
@@ -0,0 +1,135 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.services.AccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// Cuentas por segundo con POST /api/accounts/bulk (AccountService.createAccounts) con ids de la
+// secuencia pooled-lo, que permiten batches JDBC, y con los ids IDENTITY de antes (un INSERT y un
+// viaje a la base de datos por cuenta). H2 se usa a traves de su servidor TCP en localhost para que
+// cada viaje cueste como con una base de datos de verdad; cada variante usa su propia base de datos
+// y no escribe el SQL en el log. Numero de cuentas con -Dbenchmark.accounts=1000000 (por defecto
+// 200k). Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+class AccountBulkCreateBenchmark {
+
+  private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 200_000);
+  private static final int REQUEST_SIZE = 10_000;
+  private static final Server H2_SERVER = startH2Server();
+
+  @Nested
+  @SpringBootTest(
+      properties = {
+        "spring.jpa.mapping-resources=benchmarks/identity-ids-orm.xml",
+        "logging.level.org.hibernate.SQL=off"
+      })
+  class IdentityIds {
+
+    @Autowired private AccountService accountService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+      registry.add("spring.datasource.url", () -> h2Url("bulk_identity_benchmark"));
+    }
+
+    @AfterEach
+    void tearDown() {
+      deleteAccounts(jdbcTemplate);
+    }
+
+    @Test
+    void bulk_create() {
+      createAccounts("IDENTITY", accountService);
+    }
+  }
+
+  @Nested
+  @SpringBootTest(properties = "logging.level.org.hibernate.SQL=off")
+  class PooledSequenceIds {
+
+    @Autowired private AccountService accountService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+      registry.add("spring.datasource.url", () -> h2Url("bulk_sequence_benchmark"));
+    }
+
+    @AfterEach
+    void tearDown() {
+      deleteAccounts(jdbcTemplate);
+    }
+
+    @Test
+    void bulk_create() {
+      createAccounts("secuencia pooled-lo", accountService);
+    }
+  }
+
+  private static void createAccounts(String name, AccountService accountService) {
+    // Calentamiento: JIT y cache de sentencias
+    accountService.createAccounts(accounts("warmup-", 0, REQUEST_SIZE));
+
+    long start = System.nanoTime();
+    for (int from = 0; from < ACCOUNTS; from += REQUEST_SIZE) {
+      int size = Math.min(REQUEST_SIZE, ACCOUNTS - from);
+      accountService.createAccounts(accounts("bulk-", from, size));
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(
+        "### %-20s %,d cuentas en %6.1f s: %,10.0f cuentas/s%n",
+        name, ACCOUNTS, seconds, ACCOUNTS / seconds);
+  }
+
+  private static List<Account> accounts(String prefix, int from, int size) {
+    List<Account> accounts = new ArrayList<>(size);
+    for (int i = from; i < from + size; i++) {
+      // Sin Faker: generar los datos no tiene que pesar en la medida
+      accounts.add(
+          new Account()
+              .setAccountNumber(prefix + i)
+              .setOwner("Bulk Owner " + i)
+              .setBalance(BigDecimal.TEN));
+    }
+    return accounts;
+  }
+
+  private static void deleteAccounts(JdbcTemplate jdbcTemplate) {
+    jdbcTemplate.update(
+        "delete from accounts where account_number like 'bulk-%'"
+            + " or account_number like 'warmup-%'");
+  }
+
+  private static String h2Url(String database) {
+    return "jdbc:h2:tcp://localhost:%d/mem:%s".formatted(H2_SERVER.getPort(), database);
+  }
+
+  private static Server startH2Server() {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      int port = socket.getLocalPort();
+      socket.close();
+      return Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists").start();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
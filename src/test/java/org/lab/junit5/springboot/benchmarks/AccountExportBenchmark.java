@@ -0,0 +1,87 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.services.AccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Heap usado durante la exportacion NDJSON con 10k y 1M cuentas: debe ser el mismo en ambos casos.
+// Las filas de H2 viven en el mismo heap, por eso se mide la diferencia entre el inicio y el final
+// de la exportacion y no el heap total. H2 embebido materializa el resultado entero salvo con
+// LAZY_QUERY_EXECUTION (en Postgres lo equivalente es el fetch size dentro de una transaccion).
+// Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest(
+    properties =
+        "spring.datasource.url=jdbc:h2:mem:export_benchmark;LAZY_QUERY_EXECUTION=1")
+class AccountExportBenchmark {
+
+  @Autowired private AccountService accountService;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("delete from accounts where account_number like 'export-%'");
+  }
+
+  @Test
+  void heap_growth_by_number_of_accounts() throws IOException {
+    int inserted = 0;
+    for (int accounts : new int[] {10_000, 1_000_000}) {
+      jdbcTemplate.update(
+          "insert into accounts (id, account_number, owner, owner_normalized, balance)"
+              + " select next value for accounts_seq, 'export-' || x, 'Export', 'export', 10"
+              + " from system_range(?, ?)",
+          inserted + 1,
+          accounts);
+      inserted = accounts;
+
+      long before = usedHeapAfterGc();
+      long[] maxGrowth = new long[1];
+      long start = System.nanoTime();
+      long exported;
+      try (JsonGenerator generator =
+          objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+        generator.setRootValueSeparator(null);
+        ObjectWriter writer =
+            objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long[] count = new long[1];
+        exported =
+            accountService.exportAccounts(
+                account -> {
+                  try {
+                    writer.writeValue(generator, account);
+                    generator.writeRaw('\n');
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                  // Muestrea el heap cada 100k filas
+                  if (++count[0] % 100_000 == 0 || count[0] == 5_000) {
+                    maxGrowth[0] = Math.max(maxGrowth[0], usedHeapAfterGc() - before);
+                  }
+                });
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.printf(
+          "### %,9d cuentas: %8.1f cuentas/s, crecimiento maximo del heap %,d KB%n",
+          exported, exported / (elapsed / 1e9), maxGrowth[0] / 1024);
+    }
+  }
+
+  private static long usedHeapAfterGc() {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,135 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.services.AccountService;
+import org.lab.junit5.springboot.services.CoalescingTransferEngine;
+import org.lab.junit5.springboot.services.TransferBatchProcessor;
+import org.lab.junit5.springboot.services.TransferExecutor;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Muchos clientes concurrentes abonando a una misma cuenta "comercio": cada transferencia por su
+// cuenta (modo entity con reintentos) frente a CoalescingTransferEngine. Se ejecuta con:
+// mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+class CoalescingTransferBenchmark {
+
+  private static final int CLIENTS = 64;
+  private static final int TRANSFERS = 10_000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1_000_000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private TransferExecutor transferExecutor;
+  @Autowired private TransferBatchProcessor transferBatchProcessor;
+  @Autowired private TransferProperties transferProperties;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private Account merchant;
+  private List<Account> clients;
+
+  @BeforeEach
+  void setUp() {
+    bank = bankRepository.save(BankTestDataBuilder.random().withId(null).build());
+    merchant =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+    clients = new ArrayList<>();
+    for (int i = 0; i < CLIENTS; i++) {
+      clients.add(AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    }
+    clients = accountRepository.saveAll(clients);
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(clients.stream().map(Account::getId).toList());
+    accountRepository.deleteById(merchant.getId());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void credits_to_hot_account_direct_vs_coalescing() throws Exception {
+    run(
+        "directo",
+        transfer ->
+            accountService.transfer(
+                transfer.sourceAccountId(),
+                transfer.targetAccountId(),
+                transfer.amount(),
+                transfer.bankId()));
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CoalescingTransferEngine engine =
+        new CoalescingTransferEngine(
+            transferExecutor, transferBatchProcessor, transferProperties, meterRegistry);
+    try {
+      run("coalescing", transfer -> engine.submit(transfer).join());
+    } finally {
+      engine.shutdown();
+    }
+    DistributionSummary batchSize =
+        meterRegistry.get("accounts.transfer.coalescing.batch.size").summary();
+    System.out.printf(
+        "### coalescing: %d commits, %.1f transferencias por commit (max %.0f)%n",
+        batchSize.count(), batchSize.mean(), batchSize.max());
+  }
+
+  private void run(String name, TransferCall call) throws Exception {
+    List<Callable<Boolean>> transfers = new ArrayList<>(TRANSFERS);
+    for (int i = 0; i < TRANSFERS; i++) {
+      TransferDetailDTO transfer =
+          new TransferDetailDTO(
+              clients.get(i % CLIENTS).getId(), merchant.getId(), bank.getId(), BigDecimal.ONE);
+      transfers.add(
+          () -> {
+            try {
+              call.transfer(transfer);
+              return true;
+            } catch (RuntimeException e) {
+              return false;
+            }
+          });
+    }
+
+    long start = System.nanoTime();
+    int failed = 0;
+    try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTS)) {
+      for (Future<Boolean> result : executor.invokeAll(transfers)) {
+        if (!result.get()) {
+          failed++;
+        }
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf(
+        "### %-10s: %8.1f transferencias/s, %d fallidas%n",
+        name, TRANSFERS / (elapsed / 1e9), failed);
+  }
+
+  private interface TransferCall {
+    void transfer(TransferDetailDTO transfer);
+  }
+}
@@ -0,0 +1,83 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Compara el coste (ns/op y bytes asignados por op, columna gc.alloc.rate.norm) de un par
+// withdraw/deposit con los saldos en BigDecimal, como estaban antes, y en centimos sobre long.
+// Se ejecuta con: mvn test -Pbenchmark -Dtest=MoneyArithmeticBenchmark
+@Tag("benchmark")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+
+  private BigDecimal bigDecimalSource;
+  private BigDecimal bigDecimalTarget;
+  private Account source;
+  private Account target;
+  private long amountInMinorUnits;
+
+  @Setup
+  public void setUp() {
+    bigDecimalSource = new BigDecimal("1000000000.00");
+    bigDecimalTarget = new BigDecimal("1000000000.00");
+    source = new Account().setBalance(bigDecimalSource);
+    target = new Account().setBalance(bigDecimalTarget);
+    amountInMinorUnits = Money.toMinorUnits(AMOUNT);
+  }
+
+  // El camino anterior de Account.withdraw/deposit
+  @Benchmark
+  public BigDecimal bigDecimalTransfer() {
+    BigDecimal newBalance = bigDecimalSource.subtract(AMOUNT);
+    if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
+      throw new IllegalStateException();
+    }
+    bigDecimalSource = newBalance.add(AMOUNT);
+    bigDecimalTarget = bigDecimalTarget.add(AMOUNT).subtract(AMOUNT);
+    return bigDecimalTarget;
+  }
+
+  @Benchmark
+  public long minorUnitsTransfer() {
+    source.withdraw(amountInMinorUnits);
+    target.deposit(amountInMinorUnits);
+    // Se devuelve el dinero para que el saldo no se agote durante la medicion
+    target.withdraw(amountInMinorUnits);
+    source.deposit(amountInMinorUnits);
+    return target.getBalanceInMinorUnits();
+  }
+
+  @Test
+  void run() throws Exception {
+    new Runner(
+            new OptionsBuilder()
+                .include(MoneyArithmeticBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,114 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.services.AccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Latencia de GET /api/accounts/search (primera y segunda pagina) con muchas cuentas, comparada con
+// filtrar por lower(owner) sin indice. Numero de cuentas con -Dbenchmark.accounts=10000000 (por
+// defecto 1M, H2 en memoria guarda todas las filas en el heap).
+// Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+class OwnerSearchBenchmark {
+
+  private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 1_000_000);
+  private static final int SEARCHES = 500;
+  private static final int PAGE_SIZE = 100;
+  private static final String[] FIRST_NAMES = {
+    "ana", "juan", "maria", "jose", "lucia", "carlos", "marta", "pedro", "sofia", "diego", "laura",
+    "pablo", "elena", "javier", "carmen", "miguel"
+  };
+  private static final String[] LAST_NAMES = {
+    "garcia", "lopez", "perez", "gonzalez", "sanchez", "martin", "gomez", "ruiz", "diaz", "moreno",
+    "alvarez", "romero", "navarro", "torres", "dominguez", "vazquez"
+  };
+
+  @Autowired private AccountService accountService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("delete from accounts where account_number like 'search-%'");
+  }
+
+  @Test
+  void owner_prefix_search_latency() {
+    long start = System.nanoTime();
+    // Titulares "nombre apellido N" repartidos entre 256 combinaciones
+    jdbcTemplate.update(
+        "insert into accounts (id, account_number, owner, owner_normalized, balance)"
+            + " select next value for accounts_seq, 'search-' || x, o, o, 10 from (select x,"
+            + " array_get(" + sqlArray(FIRST_NAMES) + ", mod(x, 16) + 1) || ' ' ||"
+            + " array_get(" + sqlArray(LAST_NAMES) + ", mod(x / 16, 16) + 1)"
+            + " || ' ' || x as o from system_range(1, ?))",
+        ACCOUNTS);
+    System.out.printf(
+        "### %,d cuentas insertadas en %.1f s%n", ACCOUNTS, (System.nanoTime() - start) / 1e9);
+
+    // Calentamiento: JIT y cache de planes
+    search(200);
+
+    long[] firstPage = search(SEARCHES);
+    print("primera pagina, 'nombre apellido'", firstPage);
+
+    long[] nextPage = new long[SEARCHES];
+    for (int i = 0; i < SEARCHES; i++) {
+      String prefix = randomPrefix();
+      AccountPageDTO page = accountService.findAccountsByOwner(prefix, null, PAGE_SIZE);
+      long pageStart = System.nanoTime();
+      accountService.findAccountsByOwner(prefix, page.nextCursor(), PAGE_SIZE);
+      nextPage[i] = System.nanoTime() - pageStart;
+    }
+    print("segunda pagina, 'nombre apellido'", nextPage);
+
+    long[] scan = new long[20];
+    for (int i = 0; i < scan.length; i++) {
+      long scanStart = System.nanoTime();
+      jdbcTemplate.queryForList(
+          "select id from accounts where lower(owner) like ? order by owner, id limit ?",
+          randomPrefix() + "%",
+          PAGE_SIZE + 1);
+      scan[i] = System.nanoTime() - scanStart;
+    }
+    print("sin indice, lower(owner) like", scan);
+  }
+
+  private long[] search(int searches) {
+    long[] latencies = new long[searches];
+    for (int i = 0; i < searches; i++) {
+      String prefix = randomPrefix();
+      long start = System.nanoTime();
+      accountService.findAccountsByOwner(prefix, null, PAGE_SIZE);
+      latencies[i] = System.nanoTime() - start;
+    }
+    return latencies;
+  }
+
+  private static String randomPrefix() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]
+        + " "
+        + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+  }
+
+  private static String sqlArray(String[] values) {
+    return "array['" + String.join("', '", values) + "']";
+  }
+
+  private static void print(String name, long[] latencies) {
+    Arrays.sort(latencies);
+    System.out.printf(
+        "### %-36s p50 %7.2f ms, p99 %7.2f ms%n",
+        name,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6);
+  }
+}
@@ -0,0 +1,111 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.services.ShardedTransferEngine;
+import org.lab.junit5.springboot.services.TransferBatchProcessor;
+import org.lab.junit5.springboot.services.TransferExecutor;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Throughput del motor con un escritor por shard para 1, 2, 4 y 8 shards sobre pocas cuentas
+// calientes. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+class ShardedTransferBenchmark {
+
+  private static final int ACCOUNTS = 16;
+  private static final int TRANSFERS = 20_000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1_000_000);
+
+  @Autowired private TransferExecutor transferExecutor;
+  @Autowired private TransferBatchProcessor transferBatchProcessor;
+  @Autowired private TransferProperties transferProperties;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private List<Account> accounts;
+
+  @BeforeEach
+  void setUp() {
+    bank = bankRepository.save(BankTestDataBuilder.random().withId(null).build());
+    accounts = new ArrayList<>();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accounts.add(
+          AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    }
+    accounts = accountRepository.saveAll(accounts);
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(accounts.stream().map(Account::getId).toList());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void throughput_by_number_of_shards() {
+    for (int shards : new int[] {1, 2, 4, 8}) {
+      ShardedTransferEngine engine =
+          new ShardedTransferEngine(transferExecutor, transferBatchProcessor, withShards(shards));
+      try {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> results = new ArrayList<>(TRANSFERS);
+        for (TransferDetailDTO transfer : randomTransfers()) {
+          results.add(engine.submit(transfer));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(
+            "### %d shards: %8.1f transferencias/s%n", shards, TRANSFERS / (elapsed / 1e9));
+      } finally {
+        engine.shutdown();
+      }
+    }
+  }
+
+  private TransferProperties withShards(int shards) {
+    TransferProperties.Sharded sharded = transferProperties.sharded();
+    return new TransferProperties(
+        transferProperties.mode(),
+        transferProperties.retry(),
+        transferProperties.batch(),
+        transferProperties.engine(),
+        new TransferProperties.Sharded(shards, sharded.groupSize(), sharded.queueCapacity()),
+        transferProperties.ledger(),
+        transferProperties.coalescing());
+  }
+
+  private List<TransferDetailDTO> randomTransfers() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<TransferDetailDTO> transfers = new ArrayList<>(TRANSFERS);
+    for (int i = 0; i < TRANSFERS; i++) {
+      int source = random.nextInt(ACCOUNTS);
+      int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+      transfers.add(
+          new TransferDetailDTO(
+              accounts.get(source).getId(),
+              accounts.get(target).getId(),
+              bank.getId(),
+              BigDecimal.ONE));
+    }
+    return transfers;
+  }
+}
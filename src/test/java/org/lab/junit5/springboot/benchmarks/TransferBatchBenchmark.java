@@ -0,0 +1,94 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.services.AccountService;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Compara N transferencias hechas una a una (una transaccion y un commit por transferencia) con las
+// mismas N enviadas como lote. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+class TransferBatchBenchmark {
+
+  private static final int ACCOUNTS = 200;
+  private static final int TRANSFERS = 10_000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1_000_000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private List<Account> accounts;
+
+  @BeforeEach
+  void setUp() {
+    bank = bankRepository.save(BankTestDataBuilder.random().withId(null).build());
+    accounts = new ArrayList<>();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accounts.add(
+          AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    }
+    accounts = accountRepository.saveAll(accounts);
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(accounts.stream().map(Account::getId).toList());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void single_transfers_vs_batch() {
+    List<TransferDetailDTO> transfers = randomTransfers();
+
+    long start = System.nanoTime();
+    for (TransferDetailDTO transfer : transfers) {
+      accountService.transfer(
+          transfer.sourceAccountId(), transfer.targetAccountId(), transfer.amount(), bank.getId());
+    }
+    long single = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    accountService.transferAll(transfers);
+    long batch = System.nanoTime() - start;
+
+    System.out.printf(
+        "### %d transferencias: una a una %8.1f/s, en lote %8.1f/s (x%.1f)%n",
+        TRANSFERS,
+        TRANSFERS / (single / 1e9),
+        TRANSFERS / (batch / 1e9),
+        (double) single / batch);
+  }
+
+  private List<TransferDetailDTO> randomTransfers() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<TransferDetailDTO> transfers = new ArrayList<>(TRANSFERS);
+    for (int i = 0; i < TRANSFERS; i++) {
+      int source = random.nextInt(ACCOUNTS);
+      int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+      transfers.add(
+          new TransferDetailDTO(
+              accounts.get(source).getId(),
+              accounts.get(target).getId(),
+              bank.getId(),
+              BigDecimal.ONE));
+    }
+    return transfers;
+  }
+}
@@ -0,0 +1,114 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.services.AccountService;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Mide throughput y latencia p99 de transferencias con bloqueo pesimista cuando todo el trafico se
+// concentra en pocas cuentas. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest(properties = "accounts.transfer.mode=pessimistic")
+class TransferContentionBenchmark {
+
+  private static final int THREADS = 32;
+  private static final int TRANSFERS = 5000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1_000_000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private List<Account> hotAccounts;
+
+  @BeforeEach
+  void setUp() {
+    bank = bankRepository.save(BankTestDataBuilder.random().withId(null).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(hotAccounts.stream().map(Account::getId).toList());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @ParameterizedTest(name = "{0} cuentas calientes")
+  @ValueSource(ints = {2, 10, 1000})
+  void transfers_between_hot_accounts(int numberOfAccounts) throws Exception {
+    hotAccounts = createAccounts(numberOfAccounts);
+
+    long[] latencies = new long[TRANSFERS];
+    AtomicInteger failures = new AtomicInteger();
+    List<Callable<Void>> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      int index = i;
+      transfers.add(
+          () -> {
+            latencies[index] = timedRandomTransfer(failures);
+            return null;
+          });
+    }
+
+    long start = System.nanoTime();
+    try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+      executor.invokeAll(transfers);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    Arrays.sort(latencies);
+    System.out.printf(
+        "### %4d cuentas: %8.1f transferencias/s, p50 %6.2f ms, p99 %6.2f ms, fallidas %d%n",
+        numberOfAccounts,
+        TRANSFERS / (elapsed / 1e9),
+        latencies[TRANSFERS / 2] / 1e6,
+        latencies[(int) (TRANSFERS * 0.99)] / 1e6,
+        failures.get());
+  }
+
+  private long timedRandomTransfer(AtomicInteger failures) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int source = random.nextInt(hotAccounts.size());
+    int target = (source + 1 + random.nextInt(hotAccounts.size() - 1)) % hotAccounts.size();
+
+    long start = System.nanoTime();
+    try {
+      accountService.transfer(
+          hotAccounts.get(source).getId(),
+          hotAccounts.get(target).getId(),
+          BigDecimal.ONE,
+          bank.getId());
+    } catch (RuntimeException e) {
+      failures.incrementAndGet();
+    }
+    return System.nanoTime() - start;
+  }
+
+  private List<Account> createAccounts(int numberOfAccounts) {
+    List<Account> accounts = new ArrayList<>();
+    for (int i = 0; i < numberOfAccounts; i++) {
+      accounts.add(
+          AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    }
+    return accountRepository.saveAll(accounts);
+  }
+}
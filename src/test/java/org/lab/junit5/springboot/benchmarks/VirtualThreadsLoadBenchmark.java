@@ -0,0 +1,292 @@
+package org.lab.junit5.springboot.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.services.AccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// Peticiones por segundo y latencia (p50, p99) de GET /api/accounts/{accountNumber} y
+// POST /api/accounts/transfer con Tomcat en hilos de plataforma (200 como maximo) y en hilos
+// virtuales (spring.threads.virtual.enabled), con 1k y 10k clientes concurrentes. Cada cliente es
+// un hilo de plataforma que hace sus peticiones una detras de otra con su propia conexion
+// keep-alive: asi los clientes no compiten con el servidor por los hilos portadores.
+// H2 se usa a traves de su servidor TCP, como en AccountBulkCreateBenchmark, con el pool de
+// conexiones de application.properties (20).
+//
+// Cada cliente usa dos sockets en el mismo proceso (cliente y servidor): con 10k clientes hace
+// falta ulimit -n por encima de 20k. Clientes con -Dbenchmark.clients=1000,10000 y peticiones por
+// cliente con -Dbenchmark.requests-per-client=5. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+class VirtualThreadsLoadBenchmark {
+
+  private static final int[] CLIENTS =
+      Arrays.stream(System.getProperty("benchmark.clients", "1000,10000").split(","))
+          .mapToInt(clients -> Integer.parseInt(clients.strip()))
+          .toArray();
+  private static final int REQUESTS_PER_CLIENT =
+      Integer.getInteger("benchmark.requests-per-client", 5);
+  private static final int MAX_CLIENTS = Arrays.stream(CLIENTS).max().orElseThrow();
+  private static final int WARMUP_CLIENTS = 100;
+  private static final Server H2_SERVER = startH2Server();
+  private static final String TRANSFER_JSON =
+      "{\"sourceAccountId\":%d,\"targetAccountId\":%d,\"bankId\":%d,\"amount\":1}";
+
+  @Nested
+  @SpringBootTest(
+      webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+      properties = {
+        "spring.threads.virtual.enabled=false",
+        "logging.level.org.hibernate.SQL=off",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.datasource.hikari.connection-timeout=60000",
+        "server.tomcat.max-connections=30000",
+        "server.tomcat.accept-count=10000"
+      })
+  class PlatformThreads extends LoadScenarios {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+      registry.add("spring.datasource.url", () -> h2Url("load_platform_benchmark"));
+    }
+
+    PlatformThreads() {
+      super("plataforma");
+    }
+  }
+
+  @Nested
+  @SpringBootTest(
+      webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+      properties = {
+        "spring.threads.virtual.enabled=true",
+        "logging.level.org.hibernate.SQL=off",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.datasource.hikari.connection-timeout=60000",
+        "server.tomcat.max-connections=30000",
+        "server.tomcat.accept-count=10000"
+      })
+  class VirtualThreads extends LoadScenarios {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+      registry.add("spring.datasource.url", () -> h2Url("load_virtual_benchmark"));
+    }
+
+    VirtualThreads() {
+      super("virtuales");
+    }
+  }
+
+  abstract static class LoadScenarios {
+
+    private final String threads;
+
+    @LocalServerPort private int port;
+    @Autowired private AccountService accountService;
+    @Autowired private BankRepository bankRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Bank bank;
+    private final List<Account> accounts = new ArrayList<>();
+
+    LoadScenarios(String threads) {
+      this.threads = threads;
+    }
+
+    @BeforeEach
+    void setUp() {
+      bank = bankRepository.save(new Bank().setName("Load Bank"));
+      // Un par de cuentas por cliente: las transferencias no compiten entre si por las filas
+      for (int from = 0; from < 2 * MAX_CLIENTS; from += 10_000) {
+        List<Account> chunk = new ArrayList<>();
+        for (int i = from; i < Math.min(from + 10_000, 2 * MAX_CLIENTS); i++) {
+          chunk.add(
+              new Account()
+                  .setAccountNumber("load-" + i)
+                  .setOwner("Load Owner " + i)
+                  .setBalance(BigDecimal.valueOf(1_000_000)));
+        }
+        accountService.createAccounts(chunk);
+        accounts.addAll(chunk);
+      }
+    }
+
+    @AfterEach
+    void tearDown() {
+      jdbcTemplate.update("delete from accounts where account_number like 'load-%'");
+      bankRepository.deleteById(bank.getId());
+    }
+
+    @Test
+    void get_account_by_account_number() {
+      IntFunction<HttpRequest> request =
+          client ->
+              HttpRequest.newBuilder(uri("/api/accounts/load-" + (2 * client + 1)))
+                  .GET()
+                  .build();
+      measure("GET por numero", WARMUP_CLIENTS, request, false);
+      for (int clients : CLIENTS) {
+        measure("GET por numero", clients, request, true);
+      }
+    }
+
+    @Test
+    void transfer() {
+      IntFunction<HttpRequest> request =
+          client ->
+              HttpRequest.newBuilder(uri("/api/accounts/transfer"))
+                  .header("Content-Type", "application/json")
+                  .POST(
+                      HttpRequest.BodyPublishers.ofString(
+                          TRANSFER_JSON.formatted(
+                              accounts.get(2 * client).getId(),
+                              accounts.get(2 * client + 1).getId(),
+                              bank.getId())))
+                  .build();
+      measure("transferencia", WARMUP_CLIENTS, request, false);
+      for (int clients : CLIENTS) {
+        measure("transferencia", clients, request, true);
+      }
+    }
+
+    // Todos los clientes arrancan a la vez y hacen REQUESTS_PER_CLIENT peticiones cada uno
+    private void measure(
+        String name, int clients, IntFunction<HttpRequest> request, boolean print) {
+      long[] latencies = new long[clients * REQUESTS_PER_CLIENT];
+      AtomicInteger errors = new AtomicInteger();
+      AtomicReference<String> firstError = new AtomicReference<>();
+      CountDownLatch start = new CountDownLatch(1);
+      long elapsed;
+      ThreadFactory clientThreads = Thread.ofPlatform().stackSize(256 * 1024).factory();
+      try (ExecutorService executor = Executors.newThreadPerTaskExecutor(clientThreads);
+          HttpClient httpClient =
+              HttpClient.newBuilder()
+                  .version(HttpClient.Version.HTTP_1_1)
+                  .connectTimeout(Duration.ofSeconds(60))
+                  .build()) {
+        for (int client = 0; client < clients; client++) {
+          int clientIndex = client;
+          executor.execute(
+              () -> {
+                HttpRequest clientRequest = request.apply(clientIndex);
+                awaitStart(start);
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                  long requestStart = System.nanoTime();
+                  try {
+                    HttpResponse<Void> response =
+                        httpClient.send(clientRequest, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                      errors.incrementAndGet();
+                      firstError.compareAndSet(null, "HTTP " + response.statusCode());
+                    }
+                  } catch (IOException e) {
+                    errors.incrementAndGet();
+                    firstError.compareAndSet(null, e.toString());
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                  }
+                  latencies[clientIndex * REQUESTS_PER_CLIENT + i] =
+                      System.nanoTime() - requestStart;
+                }
+              });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        awaitTermination(executor);
+        elapsed = System.nanoTime() - begin;
+      }
+      if (!print) {
+        return;
+      }
+      Arrays.sort(latencies);
+      System.out.printf(
+          "### %-10s %-15s %,6d clientes: %,8.0f peticiones/s, p50 %7.1f ms, p99 %7.1f ms,"
+              + " errores %,d%s%n",
+          threads,
+          name,
+          clients,
+          latencies.length / (elapsed / 1e9),
+          percentile(latencies, 0.50),
+          percentile(latencies, 0.99),
+          errors.get(),
+          firstError.get() == null ? "" : " (" + firstError.get() + ")");
+    }
+
+    private URI uri(String path) {
+      return URI.create("http://localhost:" + port + path);
+    }
+  }
+
+  private static double percentile(long[] sortedNanos, double percentile) {
+    return sortedNanos[(int) Math.ceil(percentile * sortedNanos.length) - 1] / 1e6;
+  }
+
+  private static void awaitStart(CountDownLatch start) {
+    try {
+      start.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        System.out.println("### esperando a los clientes...");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static String h2Url(String database) {
+    return "jdbc:h2:tcp://localhost:%d/mem:%s".formatted(H2_SERVER.getPort(), database);
+  }
+
+  private static Server startH2Server() {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      int port = socket.getLocalPort();
+      socket.close();
+      return Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists").start();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
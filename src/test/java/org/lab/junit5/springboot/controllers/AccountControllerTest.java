@@ -1,28 +1,48 @@
 package org.lab.junit5.springboot.controllers;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
 import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.exceptions.AccountInvalidCursorException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
 import org.lab.junit5.springboot.exceptions.AccountNotFoundByNumberException;
 import org.lab.junit5.springboot.exceptions.BankNotFoundByIdException;
+import org.lab.junit5.springboot.models.dtos.AccountImportErrorDTO;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.models.dtos.AccountPatchDTO;
 import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.dtos.TransferResultDTO;
 import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.AccountImport;
+import org.lab.junit5.springboot.services.AccountETags;
+import org.lab.junit5.springboot.services.AccountImportService;
 import org.lab.junit5.springboot.services.AccountService;
+import org.lab.junit5.springboot.services.IdempotencyService;
 import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(AccountController.class)
 class AccountControllerTest {
@@ -32,9 +52,177 @@ class AccountControllerTest {
   @Autowired private MockMvc mockMvc;
 
   @MockBean private AccountService accountService;
+  @MockBean private AccountImportService accountImportService;
+  @MockBean private IdempotencyService idempotencyService;
 
   private final ObjectMapper objectMapper = new ObjectMapper();
 
+  @Nested
+  class GetAllAccountsTests {
+    @Test
+    void more_pages_then_accounts_and_next_cursor_header() throws Exception {
+      Account testAccount = AccountTestDataBuilder.random().build();
+      doReturn(new AccountPageDTO(List.of(testAccount), "MTA"))
+          .when(accountService)
+          .findAccounts(null, 1);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH).param("limit", "1"))
+          .andExpect(status().isOk())
+          .andExpect(header().string("X-Next-Cursor", "MTA"))
+          .andExpect(jsonPath("$.length()").value(1))
+          .andExpect(jsonPath("$[0].id").value(testAccount.getId()));
+    }
+
+    @Test
+    void last_page_then_no_next_cursor_header() throws Exception {
+      doReturn(new AccountPageDTO(List.of(), null)).when(accountService).findAccounts("MTA", null);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH).param("after", "MTA"))
+          .andExpect(status().isOk())
+          .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void invalid_cursor_then_bad_request() throws Exception {
+      doThrow(new AccountInvalidCursorException("x")).when(accountService).findAccounts("x", null);
+
+      mockMvc.perform(get(CONTROLLER_PATH).param("after", "x")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void if_none_match_with_current_page_etag_then_not_modified() throws Exception {
+      doReturn("\"abc\"").when(accountService).findAccountsETag(null, 10);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH).param("limit", "10").header("If-None-Match", "\"abc\""))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string("ETag", "\"abc\""))
+          .andExpect(content().string(""));
+
+      verify(accountService, never()).findAccounts(any(), any());
+    }
+
+    @Test
+    void if_none_match_with_old_page_etag_then_page_and_new_etag() throws Exception {
+      AccountPageDTO page =
+          new AccountPageDTO(List.of(AccountTestDataBuilder.random().build()), null);
+      doReturn(AccountETags.of(page)).when(accountService).findAccountsETag(null, null);
+      doReturn(page).when(accountService).findAccounts(null, null);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH).header("If-None-Match", "\"old\""))
+          .andExpect(status().isOk())
+          .andExpect(header().string("ETag", AccountETags.of(page)))
+          .andExpect(jsonPath("$.length()").value(1));
+    }
+  }
+
+  @Nested
+  class SearchAccountsByOwnerTests {
+    @Test
+    void owner_prefix_then_page_and_next_cursor_header() throws Exception {
+      Account testAccount = AccountTestDataBuilder.random().build();
+      doReturn(new AccountPageDTO(List.of(testAccount), "MTpqdWFu"))
+          .when(accountService)
+          .findAccountsByOwner("jua", null, 1);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/search").param("owner", "jua").param("limit", "1"))
+          .andExpect(status().isOk())
+          .andExpect(header().string("X-Next-Cursor", "MTpqdWFu"))
+          .andExpect(jsonPath("$.length()").value(1))
+          .andExpect(jsonPath("$[0].id").value(testAccount.getId()));
+    }
+
+    @Test
+    void blank_owner_then_bad_request() throws Exception {
+      doThrow(new AccountException("x"))
+          .when(accountService)
+          .findAccountsByOwner(" ", null, null);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/search").param("owner", " "))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
+  @Nested
+  class GetAccountChangesTests {
+    @Test
+    void changes_then_accounts_and_next_since_header() throws Exception {
+      Account testAccount = AccountTestDataBuilder.random().build().setChangeSeq(42);
+      doReturn(List.of(testAccount)).when(accountService).findChanges(7, 10);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/changes").param("since", "7").param("limit", "10"))
+          .andExpect(status().isOk())
+          .andExpect(header().string("X-Next-Since", "42"))
+          .andExpect(jsonPath("$.length()").value(1))
+          .andExpect(jsonPath("$[0].id").value(testAccount.getId()));
+    }
+
+    @Test
+    void no_changes_then_same_since_in_header() throws Exception {
+      doReturn(List.of()).when(accountService).findChanges(7, null);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/changes").param("since", "7"))
+          .andExpect(status().isOk())
+          .andExpect(header().string("X-Next-Since", "7"))
+          .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void negative_since_then_bad_request() throws Exception {
+      doThrow(new AccountException("x")).when(accountService).findChanges(-1, null);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/changes").param("since", "-1"))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
+  @Nested
+  class ExportAccountsTests {
+    @Test
+    void export_then_one_json_account_per_line() throws Exception {
+      Account firstAccount = AccountTestDataBuilder.random().build();
+      Account secondAccount = AccountTestDataBuilder.random().build();
+      doAnswer(
+              invocation -> {
+                Consumer<Account> consumer = invocation.getArgument(0);
+                consumer.accept(firstAccount);
+                consumer.accept(secondAccount);
+                return 2L;
+              })
+          .when(accountService)
+          .exportAccounts(any());
+
+      MvcResult result =
+          mockMvc
+              .perform(get(CONTROLLER_PATH + "/export"))
+              .andExpect(request().asyncStarted())
+              .andReturn();
+
+      String body =
+          mockMvc
+              .perform(asyncDispatch(result))
+              .andExpect(status().isOk())
+              .andExpect(content().contentType("application/x-ndjson"))
+              .andReturn()
+              .getResponse()
+              .getContentAsString(StandardCharsets.UTF_8);
+      String[] lines = body.split("\n");
+      assertThat(lines).hasSize(2);
+      assertThat(objectMapper.readTree(lines[0]).get("id").asLong())
+          .isEqualTo(firstAccount.getId());
+      assertThat(objectMapper.readTree(lines[1]).get("owner").asText())
+          .isEqualTo(secondAccount.getOwner());
+    }
+  }
+
   @Nested
   class GetAccountByAccountNumberTests {
     @Test
@@ -52,11 +240,58 @@ class AccountControllerTest {
           .andExpect(jsonPath("$.id").value(testAccount.getId()))
           .andExpect(jsonPath("$.accountNumber").value(testAccount.getAccountNumber()))
           .andExpect(jsonPath("$.owner").value(testAccount.getOwner()))
-          .andExpect(jsonPath("$.balance").value(testAccount.getBalance()));
+          .andExpect(jsonPath("$.balance").value(testAccount.getBalance().doubleValue()))
+          .andExpect(header().string("ETag", AccountETags.of(testAccount)));
 
       verify(accountService, times(1)).findAccountByAccountNumber(testAccount.getAccountNumber());
     }
 
+    @Test
+    void if_none_match_with_current_etag_then_not_modified_without_loading_account()
+        throws Exception {
+      Account testAccount = AccountTestDataBuilder.random().build();
+      String eTag = AccountETags.of(testAccount);
+      doReturn(Optional.of(eTag))
+          .when(accountService)
+          .findAccountETag(testAccount.getAccountNumber());
+
+      String url = CONTROLLER_PATH + "/" + testAccount.getAccountNumber();
+      mockMvc
+          .perform(get(url).header("If-None-Match", "\"other\", W/" + eTag))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string("ETag", eTag));
+
+      verify(accountService, never()).findAccountByAccountNumber(any());
+    }
+
+    @Test
+    void if_none_match_with_old_etag_then_account_and_current_etag() throws Exception {
+      Account testAccount = AccountTestDataBuilder.random().build();
+      String eTag = AccountETags.of(testAccount);
+      doReturn(Optional.of(eTag))
+          .when(accountService)
+          .findAccountETag(testAccount.getAccountNumber());
+      doReturn(testAccount)
+          .when(accountService)
+          .findAccountByAccountNumber(testAccount.getAccountNumber());
+
+      String url = CONTROLLER_PATH + "/" + testAccount.getAccountNumber();
+      mockMvc
+          .perform(get(url).header("If-None-Match", "\"%d-old\"".formatted(testAccount.getId())))
+          .andExpect(status().isOk())
+          .andExpect(header().string("ETag", eTag))
+          .andExpect(jsonPath("$.id").value(testAccount.getId()));
+    }
+
+    @Test
+    void if_none_match_for_unknown_account_then_not_found() throws Exception {
+      doReturn(Optional.empty()).when(accountService).findAccountETag("123");
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/123").header("If-None-Match", "\"1-0\""))
+          .andExpect(status().isNotFound());
+    }
+
     @Test
     void should_not_find_account_then_exception() throws Exception {
       String testAccountNumber = "123";
@@ -71,6 +306,107 @@ class AccountControllerTest {
     }
   }
 
+  @Nested
+  class LookupAccountsTests {
+    @Test
+    void lookup_then_found_accounts_and_not_found_numbers() throws Exception {
+      Account account = AccountTestDataBuilder.random().build();
+      List<String> numbers = List.of(account.getAccountNumber(), "unknown");
+      doReturn(List.of(account)).when(accountService).findAccountsByAccountNumbers(numbers);
+
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/lookup")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(numbers)))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value("ok"))
+          .andExpect(jsonPath("$.data[0].id").value(account.getId()))
+          .andExpect(jsonPath("$.data[0].accountNumber").value(account.getAccountNumber()))
+          .andExpect(jsonPath("$.notFound[0]").value("unknown"));
+    }
+
+    @Test
+    void lookup_without_numbers_then_bad_request() throws Exception {
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/lookup")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Account numbers are required"));
+
+      verifyNoInteractions(accountService);
+    }
+  }
+
+  @Nested
+  class BalanceTests {
+    @Test
+    void get_balance_then_ok_and_balance() throws Exception {
+      doReturn(new BigDecimal("12.50")).when(accountService).getBalance(1L);
+
+      mockMvc
+          .perform(get(CONTROLLER_PATH + "/1/balance"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.accountId").value(1))
+          .andExpect(jsonPath("$.balance").value(12.5));
+    }
+
+    @Test
+    void get_balance_of_unknown_account_then_not_found() throws Exception {
+      doThrow(new AccountNotFoundByIdException(1L)).when(accountService).getBalance(1L);
+
+      mockMvc.perform(get(CONTROLLER_PATH + "/1/balance")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void get_balances_then_balance_per_id_and_not_found_ids() throws Exception {
+      doReturn(Map.of(1L, new BigDecimal("12.50"), 2L, BigDecimal.ZERO))
+          .when(accountService)
+          .getBalances(List.of(1L, 2L, 3L));
+
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/balances")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[1, 2, 3]"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value("ok"))
+          .andExpect(jsonPath("$.data.1").value(12.5))
+          .andExpect(jsonPath("$.data.2").value(0))
+          .andExpect(jsonPath("$.notFound").value(3));
+    }
+
+    @Test
+    void get_balances_without_ids_then_bad_request() throws Exception {
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/balances")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Account ids are required"));
+
+      verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void get_balances_over_max_ids_then_bad_request() throws Exception {
+      doThrow(new AccountException("Too many account ids, the maximum is 10000"))
+          .when(accountService)
+          .getBalances(anyList());
+
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/balances")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[1]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Too many account ids, the maximum is 10000"));
+    }
+  }
+
   @Nested
   class TransferTests {
     // Interesante, no es necesario hacer un mock del metodo transferir porque es void y no devuelve
@@ -217,6 +553,187 @@ class AccountControllerTest {
     }
   }
 
+  @Nested
+  class TransferBatchTests {
+    @Test
+    void transfers_then_ok_and_result_per_transfer() throws Exception {
+      List<TransferDetailDTO> transfers =
+          List.of(
+              new TransferDetailDTO(1L, 2L, 1L, BigDecimal.ONE),
+              new TransferDetailDTO(2L, 1L, 1L, BigDecimal.valueOf(1_000_000)));
+      doReturn(
+              List.of(
+                  TransferResultDTO.ok(0), TransferResultDTO.error(1, "Insufficient money")))
+          .when(accountService)
+          .transferAll(transfers);
+
+      String url = CONTROLLER_PATH + "/transfers/batch";
+
+      mockMvc
+          .perform(
+              post(url)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(transfers)))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+          .andExpect(jsonPath("$.status").value("ok"))
+          .andExpect(jsonPath("$.successful").value(1))
+          .andExpect(jsonPath("$.failed").value(1))
+          .andExpect(jsonPath("$.data[0].index").value(0))
+          .andExpect(jsonPath("$.data[0].status").value("ok"))
+          .andExpect(jsonPath("$.data[1].status").value("error"))
+          .andExpect(jsonPath("$.data[1].message").value("Insufficient money"));
+
+      verify(accountService, times(1)).transferAll(transfers);
+    }
+
+    @Test
+    void empty_batch_then_bad_request() throws Exception {
+      String url = CONTROLLER_PATH + "/transfers/batch";
+
+      mockMvc
+          .perform(post(url).contentType(MediaType.APPLICATION_JSON).content("[]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.status").value("error"))
+          .andExpect(jsonPath("$.message").value("Transfer details are required"));
+
+      verifyNoInteractions(accountService);
+    }
+  }
+
+  @Nested
+  class CreateAccountsBulkTests {
+    private final String url = CONTROLLER_PATH + "/bulk";
+
+    @Test
+    void accounts_then_created_and_count() throws Exception {
+      List<Account> accounts =
+          List.of(
+              AccountTestDataBuilder.random().withId(null).build(),
+              AccountTestDataBuilder.random().withId(null).build());
+      doReturn(2).when(accountService).createAccounts(anyList());
+
+      mockMvc
+          .perform(
+              post(url)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(accounts)))
+          .andExpect(status().isCreated())
+          .andExpect(jsonPath("$.status").value("ok"))
+          .andExpect(jsonPath("$.created").value(2));
+    }
+
+    @Test
+    void empty_list_then_bad_request() throws Exception {
+      mockMvc
+          .perform(post(url).contentType(MediaType.APPLICATION_JSON).content("[]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Accounts are required"));
+
+      verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void account_with_id_then_bad_request() throws Exception {
+      doThrow(new AccountException("Accounts to create must not have an id"))
+          .when(accountService)
+          .createAccounts(anyList());
+
+      mockMvc
+          .perform(
+              post(url)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(
+                      objectMapper.writeValueAsString(
+                          List.of(AccountTestDataBuilder.random().build()))))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Accounts to create must not have an id"));
+    }
+
+    @Test
+    void duplicated_account_number_then_conflict() throws Exception {
+      doThrow(new DataIntegrityViolationException("duplicate"))
+          .when(accountService)
+          .createAccounts(anyList());
+
+      mockMvc
+          .perform(
+              post(url)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(
+                      objectMapper.writeValueAsString(
+                          List.of(AccountTestDataBuilder.random().withId(null).build()))))
+          .andExpect(status().isConflict())
+          .andExpect(jsonPath("$.status").value("error"));
+    }
+  }
+
+  @Nested
+  class ImportAccountsTests {
+    private final String url = CONTROLLER_PATH + "/import";
+    private final String csv = "accountNumber,owner,balance\nimp-1,Ana,1\n";
+
+    @Test
+    void completed_import_then_ok_with_result() throws Exception {
+      doReturn(result(AccountImport.Status.COMPLETED, null))
+          .when(accountImportService)
+          .importAccounts(any(), isNull());
+
+      mockMvc
+          .perform(post(url).contentType("text/csv").content(csv))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value("ok"))
+          .andExpect(jsonPath("$.data.importId").value(7))
+          .andExpect(jsonPath("$.data.importedRows").value(1))
+          .andExpect(jsonPath("$.data.errors[0].line").value(3));
+    }
+
+    @Test
+    void failed_import_then_server_error_with_progress() throws Exception {
+      doReturn(result(AccountImport.Status.FAILED, "connection reset"))
+          .when(accountImportService)
+          .importAccounts(any(), eq(7L));
+
+      mockMvc
+          .perform(post(url).param("importId", "7").contentType("text/csv").content(csv))
+          .andExpect(status().isInternalServerError())
+          .andExpect(jsonPath("$.message").value("connection reset"))
+          .andExpect(jsonPath("$.data.lastCommittedLine").value(2));
+    }
+
+    @Test
+    void invalid_header_then_bad_request() throws Exception {
+      doThrow(new AccountException("Invalid CSV header, expected accountNumber,owner,balance"))
+          .when(accountImportService)
+          .importAccounts(any(), isNull());
+
+      mockMvc
+          .perform(post(url).contentType("text/csv").content("a,b\n"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.status").value("error"));
+    }
+
+    @Test
+    void get_import_then_progress_or_not_found() throws Exception {
+      doReturn(Optional.of(result(AccountImport.Status.RUNNING, null)))
+          .when(accountImportService)
+          .findImport(7L);
+      doReturn(Optional.empty()).when(accountImportService).findImport(8L);
+
+      mockMvc
+          .perform(get(url + "/7"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value("RUNNING"));
+      mockMvc.perform(get(url + "/8")).andExpect(status().isNotFound());
+    }
+
+    private AccountImportResultDTO result(AccountImport.Status status, String failure) {
+      List<AccountImportErrorDTO> errors =
+          List.of(new AccountImportErrorDTO(3, "Owner is required"));
+      return new AccountImportResultDTO(7L, status, 2, 1, 1, 1, failure, errors);
+    }
+  }
+
   @Nested
   class CreateAccountTest {
     @Test
@@ -243,7 +760,7 @@ class AccountControllerTest {
           .andExpect(jsonPath("$.id").value(generatedId))
           .andExpect(jsonPath("$.accountNumber").value(requestAccount.getAccountNumber()))
           .andExpect(jsonPath("$.owner").value(requestAccount.getOwner()))
-          .andExpect(jsonPath("$.balance").value(requestAccount.getBalance()));
+          .andExpect(jsonPath("$.balance").value(requestAccount.getBalance().doubleValue()));
 
       verify(accountService, times(1)).save(requestAccount);
     }
@@ -268,10 +785,152 @@ class AccountControllerTest {
           .andExpect(jsonPath("$.id").value(requestAccount.getId()))
           .andExpect(jsonPath("$.accountNumber").value(requestAccount.getAccountNumber()))
           .andExpect(jsonPath("$.owner").value(requestAccount.getOwner()))
-          .andExpect(jsonPath("$.balance").value(requestAccount.getBalance()));
+          .andExpect(jsonPath("$.balance").value(requestAccount.getBalance().doubleValue()));
+
+      verify(accountService, times(1)).save(requestAccount);
+    }
+
+    @Test
+    void balance_with_trailing_zero_then_saved_with_same_scale() throws Exception {
+      Account requestAccount =
+          AccountTestDataBuilder.random().withBalance(new BigDecimal("375.50")).build();
+
+      when(accountService.save(requestAccount)).thenReturn(requestAccount);
+
+      mockMvc
+          .perform(
+              put(CONTROLLER_PATH + "/update")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(requestAccount)))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.balance").value(375.50));
 
       verify(accountService, times(1)).save(requestAccount);
     }
+
+    @Test
+    void without_version_then_bad_request_naming_the_field() throws Exception {
+      // Cuerpo de un cliente que no conoce version: antes se guardaba con version 0 y daba 409
+      ObjectNode body = objectMapper.valueToTree(AccountTestDataBuilder.random().build());
+      body.remove("version");
+
+      String url = CONTROLLER_PATH + "/update";
+      mockMvc
+          .perform(
+              put(url)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(body)))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.status").value("error"))
+          .andExpect(
+              jsonPath("$.message")
+                  .value(
+                      "Field 'version' is required: send the version returned by the last"
+                          + " read"));
+
+      verify(accountService, never()).save(any());
+    }
+  }
+
+  @Nested
+  class PatchAccountTests {
+    private final String url = CONTROLLER_PATH + "/7";
+
+    @Test
+    void owner_then_no_content() throws Exception {
+      mockMvc
+          .perform(
+              patch(url)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"owner\": \"Ana\", \"balance\": 1000000}"))
+          .andExpect(status().isNoContent());
+
+      // El saldo enviado se ignora
+      verify(accountService).updateAccount(7L, new AccountPatchDTO("Ana"));
+    }
+
+    @Test
+    void unknown_account_then_not_found() throws Exception {
+      doThrow(new AccountNotFoundByIdException(7L))
+          .when(accountService)
+          .updateAccount(eq(7L), any());
+
+      mockMvc
+          .perform(
+              patch(url).contentType(MediaType.APPLICATION_JSON).content("{\"owner\": \"Ana\"}"))
+          .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void no_fields_then_bad_request() throws Exception {
+      doThrow(new AccountException("No fields to update"))
+          .when(accountService)
+          .updateAccount(eq(7L), any());
+
+      mockMvc
+          .perform(patch(url).contentType(MediaType.APPLICATION_JSON).content("{}"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("No fields to update"));
+    }
+  }
+
+  @Nested
+  class CloseAndDeleteAccountsTests {
+
+    @Test
+    void close_then_ok_with_closed_count() throws Exception {
+      doReturn(2).when(accountService).closeAccounts(List.of(1L, 2L, 3L));
+
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/close")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[1, 2, 3]"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value("ok"))
+          .andExpect(jsonPath("$.closed").value(2));
+    }
+
+    @Test
+    void delete_then_ok_with_deleted_count() throws Exception {
+      doReturn(3).when(accountService).deleteAccounts(List.of(1L, 2L, 3L));
+
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/delete")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[1, 2, 3]"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.deleted").value(3));
+    }
+
+    @Test
+    void empty_list_then_bad_request() throws Exception {
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/close")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Account ids are required"));
+
+      verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void too_many_ids_then_bad_request() throws Exception {
+      doThrow(new AccountException("Too many account ids, the maximum is 10000"))
+          .when(accountService)
+          .deleteAccounts(anyList());
+
+      mockMvc
+          .perform(
+              post(CONTROLLER_PATH + "/delete")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("[1]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.status").value("error"));
+    }
   }
 
   private Account cloneAccount(Account account) {
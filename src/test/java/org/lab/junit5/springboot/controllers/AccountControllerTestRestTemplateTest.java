@@ -253,8 +253,8 @@ class AccountControllerTestRestTemplateTest {
     @Test
     @Order(1)
     void should_save_an_account() {
-      // Given
-      Account newAccount = AccountTestDataBuilder.random().build();
+      // Given: sin id, un id aleatorio pequeno (1, 2...) actualizaria una de las cuentas de prueba
+      Account newAccount = AccountTestDataBuilder.random().withId(null).build();
 
       // When
       ResponseEntity<Account> response =
@@ -267,7 +267,8 @@ class AccountControllerTestRestTemplateTest {
 
       // Testing the saved account
       Account savedAccount = response.getBody();
-      assertThat(savedAccount.getId()).isNotNull().isEqualTo(3L);
+      // Los ids salen de bloques reservados de la secuencia: solo se sabe que es nuevo
+      assertThat(savedAccount.getId()).isNotNull().isGreaterThan(2L);
       assertThat(savedAccount.getAccountNumber()).isEqualTo(newAccount.getAccountNumber());
       assertThat(savedAccount.getOwner()).isEqualTo(newAccount.getOwner());
       assertThat(savedAccount.getBalance()).isEqualTo(newAccount.getBalance());
@@ -343,8 +343,9 @@ class AccountControllerWebTestClientTest {
 
     private void assertWithJsonPath(WebTestClient.BodyContentSpec bodyContentSpec) {
       bodyContentSpec
+          // Los ids salen de bloques reservados de la secuencia: solo se sabe que es nuevo
           .jsonPath("$.id")
-          .isEqualTo(3L)
+          .value((Number id) -> assertThat(id.longValue()).isGreaterThan(2L))
           .jsonPath("$.accountNumber")
           .isEqualTo(newAccount.getAccountNumber())
           .jsonPath("$.owner")
@@ -377,7 +378,7 @@ class AccountControllerWebTestClientTest {
           response -> {
             Account account1 = response.getResponseBody();
             assertThat(account1).isNotNull();
-            assertThat(account1.getId()).isEqualTo(4L);
+            assertThat(account1.getId()).isGreaterThan(2L);
             assertThat(account1.getAccountNumber()).isEqualTo(newAccount.getAccountNumber());
             assertThat(account1.getOwner()).isEqualTo(newAccount.getOwner());
             assertThat(account1.getBalance().setScale(2, RoundingMode.HALF_UP))
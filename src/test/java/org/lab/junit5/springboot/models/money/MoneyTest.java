@@ -0,0 +1,60 @@
+package org.lab.junit5.springboot.models.money;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountInvalidAmountException;
+
+class MoneyTest {
+
+  @Test
+  void toMinorUnits_then_exact_cents() {
+    assertThat(Money.toMinorUnits(new BigDecimal("12.34"))).isEqualTo(1234);
+    assertThat(Money.toMinorUnits(new BigDecimal("12.5"))).isEqualTo(1250);
+    assertThat(Money.toMinorUnits(new BigDecimal("1E+3"))).isEqualTo(100_000);
+    assertThat(Money.toMinorUnits(new BigDecimal("-0.01"))).isEqualTo(-1);
+    assertThat(Money.toMinorUnits(new BigDecimal("1.500"))).isEqualTo(150);
+  }
+
+  @Test
+  void toMinorUnits_with_more_than_2_decimals_then_exception() {
+    assertThatExceptionOfType(AccountInvalidAmountException.class)
+        .isThrownBy(() -> Money.toMinorUnits(new BigDecimal("0.001")));
+  }
+
+  @Test
+  void toTransferAmount_zero_or_negative_then_exception() {
+    assertThat(Money.toTransferAmount(new BigDecimal("0.01"))).isEqualTo(1);
+    assertThatExceptionOfType(AccountInvalidAmountException.class)
+        .isThrownBy(() -> Money.toTransferAmount(BigDecimal.ZERO));
+    assertThatExceptionOfType(AccountInvalidAmountException.class)
+        .isThrownBy(() -> Money.toTransferAmount(new BigDecimal("-0.01")))
+        .withMessage("Invalid amount '-0.01'. Transfer amounts must be greater than 0.");
+  }
+
+  @Test
+  void toMinorUnits_out_of_long_range_then_exception() {
+    assertThatExceptionOfType(AccountInvalidAmountException.class)
+        .isThrownBy(() -> Money.toMinorUnits(new BigDecimal("1E+17")));
+  }
+
+  @Test
+  void toBigDecimal_then_requested_scale_without_losing_decimals() {
+    assertThat(Money.toBigDecimal(100_000)).isEqualTo(new BigDecimal("1000.00"));
+    assertThat(Money.toBigDecimal(100_000, 0)).isEqualTo(new BigDecimal("1000"));
+    assertThat(Money.toBigDecimal(1234, 0)).isEqualTo(new BigDecimal("12.34"));
+    assertThat(Money.toBigDecimal(1250, 1)).isEqualTo(new BigDecimal("12.5"));
+  }
+
+  @Test
+  void add_and_subtract_on_overflow_then_exception() {
+    assertThat(Money.add(1234, 66)).isEqualTo(1300);
+    assertThat(Money.subtract(1234, 1300)).isEqualTo(-66);
+    assertThatExceptionOfType(ArithmeticException.class)
+        .isThrownBy(() -> Money.add(Long.MAX_VALUE, 1));
+    assertThatExceptionOfType(ArithmeticException.class)
+        .isThrownBy(() -> Money.subtract(Long.MIN_VALUE, 1));
+  }
+}
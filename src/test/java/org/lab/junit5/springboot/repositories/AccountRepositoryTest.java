@@ -11,6 +11,7 @@ import org.lab.junit5.springboot.models.entitites.Account;
 import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 
 @DataJpaTest
 class AccountRepositoryTest {
@@ -66,6 +67,57 @@ class AccountRepositoryTest {
     assertThat(allAccountsFromDB).containsExactlyInAnyOrderElementsOf(savedAccounts);
   }
 
+  @Test
+  void test_findByIdGreaterThan_then_next_accounts_in_id_order() {
+    List<Account> moreAccounts = addMoreAccounts();
+
+    List<Account> page =
+        accountRepository.findByIdGreaterThanOrderByIdAsc(savedAccount.getId(), Limit.of(2));
+
+    assertThat(page)
+        .extracting(Account::getId)
+        .containsExactly(moreAccounts.get(0).getId(), moreAccounts.get(1).getId());
+  }
+
+  @Test
+  void test_findByAccountNumberIn_then_existing_accounts() {
+    Account otherAccount = addMoreAccounts().getFirst();
+
+    List<Account> accounts =
+        accountRepository.findByAccountNumberIn(
+            List.of(
+                savedAccount.getAccountNumber(),
+                otherAccount.getAccountNumber(),
+                savedAccount.getAccountNumber() + "TEST"));
+
+    assertThat(accounts).containsExactlyInAnyOrder(savedAccount, otherAccount);
+  }
+
+  @Test
+  void test_findBalanceById_then_balance_in_minor_units() {
+    Optional<Long> balance = accountRepository.findBalanceById(savedAccount.getId());
+    assertThat(balance).contains(savedAccount.getBalanceInMinorUnits());
+  }
+
+  @Test
+  void test_findBalanceById_then_optional_empty() {
+    assertThat(accountRepository.findBalanceById(savedAccount.getId() * 2)).isEmpty();
+  }
+
+  @Test
+  void test_findBalancesByIdIn_then_id_and_balance_of_existing_accounts() {
+    Account otherAccount = addMoreAccounts().getFirst();
+
+    List<Object[]> rows =
+        accountRepository.findBalancesByIdIn(
+            List.of(savedAccount.getId(), otherAccount.getId(), otherAccount.getId() * 2));
+
+    assertThat(rows)
+        .containsExactlyInAnyOrder(
+            new Object[] {savedAccount.getId(), savedAccount.getBalanceInMinorUnits()},
+            new Object[] {otherAccount.getId(), otherAccount.getBalanceInMinorUnits()});
+  }
+
   @Test
   void test_update_then_ok() {
     Long accountId = savedAccount.getId();
@@ -0,0 +1,171 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.AccountCacheProperties;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+
+class AccountCacheTest {
+
+  private static final int CALLERS = 500;
+
+  private AccountCache accountCache;
+  private Account account;
+  private final AtomicInteger callers = new AtomicInteger();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @BeforeEach
+  void setUp() {
+    accountCache =
+        new AccountCache(
+            new AccountCacheProperties(100, Duration.ofMinutes(1)), new SimpleMeterRegistry());
+    account = AccountTestDataBuilder.random().build();
+  }
+
+  @Test
+  void concurrent_loads_of_same_number_then_one_query() throws Exception {
+    List<Future<Optional<Account>>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < CALLERS; i++) {
+        results.add(executor.submit(this::load));
+      }
+      // Se espera a que todas las llamadas esten en curso antes de terminar la consulta
+      while (callers.get() < CALLERS) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<Optional<Account>> result : results) {
+        assertThat(result.get()).contains(account);
+      }
+    }
+
+    assertThat(loads).hasValue(1);
+    assertThat(accountCache.getIdByNumber(account.getAccountNumber())).contains(account.getId());
+  }
+
+  @Test
+  void load_started_after_invalidation_then_not_coalesced() throws Exception {
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<Optional<Account>> first = executor.submit(this::load);
+      while (loads.get() == 0) {
+        Thread.onSpinWait();
+      }
+      accountCache.evictAfterCommit(account.getId());
+      Future<Optional<Account>> second = executor.submit(this::load);
+      while (loads.get() == 1) {
+        Thread.onSpinWait();
+      }
+      release.countDown();
+
+      assertThat(first.get()).contains(account);
+      assertThat(second.get()).contains(account);
+    }
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void concurrent_loads_of_same_id_then_one_query() throws Exception {
+    List<Future<Optional<Account>>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < CALLERS; i++) {
+        results.add(executor.submit(this::loadById));
+      }
+      while (callers.get() < CALLERS) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<Optional<Account>> result : results) {
+        assertThat(result.get()).contains(account);
+      }
+    }
+
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void invalidation_during_load_by_id_then_result_not_cached() throws Exception {
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<Optional<Account>> first = executor.submit(this::loadById);
+      while (loads.get() == 0) {
+        Thread.onSpinWait();
+      }
+      accountCache.evictAfterCommit(account.getId());
+      release.countDown();
+
+      assertThat(first.get()).contains(account);
+    }
+
+    // La lectura invalidada no quedo en la cache: se vuelve a consultar
+    assertThat(loadById()).contains(account);
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void caller_modifies_cached_account_then_other_callers_not_affected() {
+    release.countDown();
+    String owner = account.getOwner();
+    BigDecimal balance = account.getBalance();
+    // El primero recibe lo que devolvio el loader; la cache guardo una copia
+    loadById().orElseThrow().setOwner("Changed Owner").setBalance(BigDecimal.ZERO);
+    Account cached = loadById().orElseThrow();
+    cached.setOwner("Changed Again");
+
+    assertThat(loadById())
+        .hasValueSatisfying(
+            found -> {
+              assertThat(found).isNotSameAs(cached);
+              assertThat(found.getOwner()).isEqualTo(owner);
+              assertThat(found.getBalance()).isEqualByComparingTo(balance);
+            });
+    assertThat(loads).hasValue(1);
+  }
+
+  private Optional<Account> loadById() {
+    callers.incrementAndGet();
+    return accountCache.getById(
+        account.getId(),
+        id -> {
+          loads.incrementAndGet();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Optional.of(account);
+        });
+  }
+
+  private Optional<Account> load() {
+    callers.incrementAndGet();
+    return accountCache.loadByNumber(
+        account.getAccountNumber(),
+        number -> {
+          loads.incrementAndGet();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Optional.of(account);
+        });
+  }
+}
@@ -0,0 +1,199 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.models.dtos.AccountImportErrorDTO;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+import org.lab.junit5.springboot.models.entitites.AccountImport;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "accounts.import.chunk-size=2")
+@AutoConfigureMockMvc
+class AccountImportServiceTest {
+
+  private static final String HEADER = "accountNumber,owner,balance\n";
+
+  @Autowired private AccountImportService accountImportService;
+  @Autowired private AccountService accountService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private EntityManager entityManager;
+  @SpyBean private AccountNumberFilter accountNumberFilter;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("delete from accounts where account_number like 'imp-%'");
+  }
+
+  @Test
+  void valid_and_invalid_rows_then_valid_imported_and_errors_reported() {
+    String csv =
+        HEADER
+            + "imp-1,Ana,10.50\n"
+            + "imp-2,,5\n"
+            + "imp-3,\"Perez, Juan\",abc\n"
+            + "\n"
+            + "imp-4,Luis,-1\n"
+            + "imp-1,Ana otra vez,1\n"
+            + "imp-5,Eva,0.001\n"
+            + "imp-6,Sara,7\n";
+
+    AccountImportResultDTO result = accountImportService.importAccounts(reader(csv), null);
+
+    assertThat(result.status()).isEqualTo(AccountImport.Status.COMPLETED);
+    assertThat(result.importedRows()).isEqualTo(2);
+    assertThat(result.failedRows()).isEqualTo(5);
+    assertThat(result.lastCommittedLine()).isEqualTo(9);
+    assertThat(result.chunksCommitted()).isEqualTo(4);
+    assertThat(result.errors())
+        .extracting(AccountImportErrorDTO::line)
+        .containsExactly(3L, 4L, 6L, 7L, 8L);
+    assertThat(result.errors().get(0).message()).isEqualTo("Owner is required");
+    assertThat(result.errors().get(3).message()).isEqualTo("Account number already exists");
+    assertThat(accountService.findAccountByAccountNumber("imp-1").getBalance())
+        .isEqualByComparingTo(new BigDecimal("10.50"));
+    assertThat(accountService.findAccountByAccountNumber("imp-6").getOwner()).isEqualTo("Sara");
+  }
+
+  @Test
+  void duplicated_number_in_same_chunk_then_second_row_fails() {
+    AccountImportResultDTO result =
+        accountImportService.importAccounts(reader(HEADER + "imp-1,Ana,1\nimp-1,Eva,2\n"), null);
+
+    assertThat(result.importedRows()).isEqualTo(1);
+    assertThat(result.errors())
+        .containsExactly(new AccountImportErrorDTO(3, "Duplicate account number in file"));
+  }
+
+  @Test
+  void existing_account_number_then_row_fails() {
+    accountService.save(
+        AccountTestDataBuilder.random().withId(null).withAccountNumber("imp-1").build());
+
+    AccountImportResultDTO result =
+        accountImportService.importAccounts(reader(HEADER + "imp-1,Ana,1\nimp-2,Eva,2\n"), null);
+
+    assertThat(result.importedRows()).isEqualTo(1);
+    assertThat(result.errors())
+        .containsExactly(new AccountImportErrorDTO(2, "Account number already exists"));
+  }
+
+  @Test
+  void read_error_then_failed_and_resume_continues_after_last_chunk() {
+    String csv = HEADER + "imp-1,Ana,1\nimp-2,Eva,2\nimp-3,Luis,3\nimp-4,Sara,4\n";
+    // Falla al leer despues del primer chunk (lineas 2 y 3)
+    Reader failing = new FailingReader(csv, csv.indexOf("imp-3"));
+
+    AccountImportResultDTO failed = accountImportService.importAccounts(failing, null);
+
+    assertThat(failed.status()).isEqualTo(AccountImport.Status.FAILED);
+    assertThat(failed.failure()).isEqualTo("connection reset");
+    assertThat(failed.lastCommittedLine()).isEqualTo(3);
+    assertThat(failed.importedRows()).isEqualTo(2);
+
+    AccountImportResultDTO resumed =
+        accountImportService.importAccounts(reader(csv), failed.importId());
+
+    assertThat(resumed.importId()).isEqualTo(failed.importId());
+    assertThat(resumed.status()).isEqualTo(AccountImport.Status.COMPLETED);
+    assertThat(resumed.importedRows()).isEqualTo(4);
+    assertThat(resumed.failedRows()).isZero();
+    assertThat(resumed.lastCommittedLine()).isEqualTo(5);
+    assertThat(accountImportService.findImport(failed.importId())).contains(resumed);
+  }
+
+  @Test
+  void resume_completed_import_then_exception() {
+    AccountImportResultDTO result =
+        accountImportService.importAccounts(reader(HEADER + "imp-1,Ana,1\n"), null);
+
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountImportService.importAccounts(reader(HEADER), result.importId()))
+        .withMessage("Import %d is already completed".formatted(result.importId()));
+  }
+
+  @Test
+  void import_through_http_then_persistence_context_bounded_by_chunk() throws Exception {
+    StringBuilder csv = new StringBuilder(HEADER);
+    for (int i = 0; i < 1000; i++) {
+      csv.append("imp-").append(i).append(",Owner ").append(i).append(",1\n");
+    }
+    // Se mide dentro de cada chunk, con el contexto de persistencia de la peticion (open-in-view)
+    AtomicInteger maxManagedEntities = new AtomicInteger();
+    doAnswer(
+            invocation -> {
+              int managed = entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+              maxManagedEntities.accumulateAndGet(managed, Math::max);
+              return invocation.callRealMethod();
+            })
+        .when(accountNumberFilter)
+        .add(anyString());
+
+    mockMvc
+        .perform(post("/api/accounts/import").contentType("text/csv").content(csv.toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.importedRows").value(1000));
+
+    // Cuentas del chunk en curso y la fila de la importacion, no las 1000 cuentas
+    assertThat(maxManagedEntities.get()).isPositive().isLessThanOrEqualTo(5);
+  }
+
+  @Test
+  void invalid_header_then_exception() {
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountImportService.importAccounts(reader("number,owner\n"), null))
+        .withMessage("Invalid CSV header, expected accountNumber,owner,balance");
+  }
+
+  private static Reader reader(String csv) {
+    return new StringReader(csv);
+  }
+
+  // Devuelve los primeros failAt caracteres y despues falla, como una subida cortada
+  private static final class FailingReader extends Reader {
+    private final String content;
+    private final int failAt;
+    private int position;
+
+    FailingReader(String content, int failAt) {
+      this.content = content;
+      this.failAt = failAt;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      if (position >= failAt) {
+        throw new IOException("connection reset");
+      }
+      int count = Math.min(length, failAt - position);
+      content.getChars(position, position + count, buffer, offset);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,113 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.AccountNumberFilterProperties;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByNumberException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class AccountNumberFilterTest {
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private AccountNumberFilter accountNumberFilter;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private AccountNumberFilterProperties filterProperties;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private final List<Long> createdAccountIds = new ArrayList<>();
+  private Account existingAccount;
+
+  @BeforeEach
+  void setUp() {
+    // Creada sin pasar por el servicio: solo la ve el filtro despues de reconstruirlo
+    existingAccount = accountRepository.save(AccountTestDataBuilder.random().withId(null).build());
+    createdAccountIds.add(existingAccount.getId());
+    accountNumberFilter.rebuild();
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(createdAccountIds);
+  }
+
+  @Test
+  void existing_number_then_found() {
+    assertThat(accountService.findAccountByAccountNumber(existingAccount.getAccountNumber()))
+        .extracting(Account::getId)
+        .isEqualTo(existingAccount.getId());
+  }
+
+  @Test
+  void unknown_number_then_rejected_by_filter() {
+    double rejectedBefore = checks("rejected");
+
+    assertThatExceptionOfType(AccountNotFoundByNumberException.class)
+        .isThrownBy(() -> accountService.findAccountByAccountNumber("unknown-number"));
+
+    assertThat(checks("rejected")).isEqualTo(rejectedBefore + 1);
+  }
+
+  @Test
+  void account_saved_after_rebuild_then_found_without_rebuild() {
+    Account account = accountService.save(AccountTestDataBuilder.random().withId(null).build());
+    createdAccountIds.add(account.getId());
+
+    assertThat(accountService.findAccountByAccountNumber(account.getAccountNumber()).getId())
+        .isEqualTo(account.getId());
+    assertThat(accountService.findAccountsByAccountNumbers(List.of(account.getAccountNumber())))
+        .extracting(Account::getId)
+        .containsExactly(account.getId());
+  }
+
+  @Test
+  void account_inserted_by_sql_after_rebuild_then_found_after_max_staleness() throws Exception {
+    // Como si la creara otra instancia: no pasa por add
+    jdbcTemplate.update(
+        "insert into accounts (id, account_number, owner, owner_normalized, balance)"
+            + " values (next value for accounts_seq, 'sql-filter-1', 'Sql', 'sql', 10)");
+    try {
+      Thread.sleep(filterProperties.maxStaleness().toMillis() + 100);
+
+      assertThat(accountService.findAccountByAccountNumber("sql-filter-1").getOwner())
+          .isEqualTo("Sql");
+      assertThat(accountService.findAccountsByAccountNumbers(List.of("sql-filter-1")))
+          .extracting(Account::getAccountNumber)
+          .containsExactly("sql-filter-1");
+      // La puesta al dia no deja pasar los numeros que siguen sin existir
+      assertThatExceptionOfType(AccountNotFoundByNumberException.class)
+          .isThrownBy(() -> accountService.findAccountByAccountNumber("unknown-number"));
+    } finally {
+      jdbcTemplate.update("delete from accounts where account_number = 'sql-filter-1'");
+    }
+  }
+
+  @Test
+  void filter_metrics_then_published() {
+    assertThat(meterRegistry.get("accounts.number-filter.bytes").gauge().value()).isPositive();
+    assertThat(meterRegistry.get("accounts.number-filter.false-positive-rate").gauge().value())
+        .isLessThan(0.01);
+    assertThat(meterRegistry.get("accounts.number-filter.rebuild").timer().count()).isPositive();
+  }
+
+  private double checks(String result) {
+    return meterRegistry
+        .get("accounts.number-filter.checks")
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+}
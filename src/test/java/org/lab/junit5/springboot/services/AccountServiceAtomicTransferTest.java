@@ -0,0 +1,166 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.exceptions.AccountInvalidAmountException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "accounts.transfer.mode=atomic")
+class AccountServiceAtomicTransferTest {
+
+  private static final int THREADS = 32;
+  private static final int TRANSFERS = 2000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private BankService bankService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    sourceAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    targetAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfer_then_balances_updated() {
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(750));
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(250));
+  }
+
+  @Test
+  void transfer_with_negative_amount_then_exception_and_nothing_changes() {
+    // Con -500 el UPDATE condicional del origen sumaria y el destino quedaria en negativo
+    assertThatExceptionOfType(AccountInvalidAmountException.class)
+        .isThrownBy(
+            () ->
+                accountService.transfer(
+                    sourceAccount.getId(),
+                    targetAccount.getId(),
+                    BigDecimal.valueOf(-500),
+                    bank.getId()));
+    assertThatExceptionOfType(AccountInvalidAmountException.class)
+        .isThrownBy(
+            () ->
+                accountService.transfer(
+                    sourceAccount.getId(), targetAccount.getId(), BigDecimal.ZERO, bank.getId()));
+
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(START_BALANCE);
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.ZERO);
+  }
+
+  @Test
+  void transfer_without_enough_money_then_exception_and_nothing_changes() {
+    BigDecimal amount = START_BALANCE.add(BigDecimal.ONE);
+
+    assertThatExceptionOfType(AccountInsufficientMoneyException.class)
+        .isThrownBy(
+            () ->
+                accountService.transfer(
+                    sourceAccount.getId(), targetAccount.getId(), amount, bank.getId()));
+
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(START_BALANCE);
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.ZERO);
+  }
+
+  @Test
+  void transfer_to_unknown_account_then_exception_and_debit_rolled_back() {
+    Long unknownAccountId = targetAccount.getId() * 1000;
+
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(
+            () ->
+                accountService.transfer(
+                    sourceAccount.getId(), unknownAccountId, BigDecimal.TEN, bank.getId()));
+
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(START_BALANCE);
+  }
+
+  @Test
+  void concurrent_transfers_on_same_account_then_no_lost_updates() throws Exception {
+    // Se lanzan el doble de transferencias de las que el saldo permite: exactamente la mitad debe
+    // fallar por saldo insuficiente y ningun debito o credito se puede perder
+    List<Callable<Boolean>> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      transfers.add(this::transferOne);
+    }
+
+    int successful = 0;
+    int rejected = 0;
+    try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+      for (Future<Boolean> result : executor.invokeAll(transfers)) {
+        if (result.get()) {
+          successful++;
+        } else {
+          rejected++;
+        }
+      }
+    }
+
+    assertThat(successful).isEqualTo(START_BALANCE.intValue());
+    assertThat(rejected).isEqualTo(TRANSFERS - START_BALANCE.intValue());
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.ZERO);
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(START_BALANCE);
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(successful);
+  }
+
+  private boolean transferOne() {
+    try {
+      accountService.transfer(
+          sourceAccount.getId(), targetAccount.getId(), BigDecimal.ONE, bank.getId());
+      return true;
+    } catch (AccountInsufficientMoneyException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.dtos.TransferResultDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "accounts.transfer.batch.chunk-size=7")
+class AccountServiceBatchTransferTest {
+
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(10);
+
+  @Autowired private AccountService accountService;
+  @Autowired private BankService bankService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    sourceAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    targetAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfers_over_several_chunks_then_applied_in_order_until_no_money_left() {
+    // 15 transferencias de 1 con saldo 10 repartidas en 3 chunks: las 5 ultimas fallan
+    List<TransferDetailDTO> transfers = new ArrayList<>();
+    for (int i = 0; i < 15; i++) {
+      transfers.add(transferOf(BigDecimal.ONE));
+    }
+
+    List<TransferResultDTO> results = accountService.transferAll(transfers);
+
+    assertThat(results).hasSize(15);
+    assertThat(results).extracting(TransferResultDTO::index).containsExactly(range(15));
+    assertThat(results.subList(0, 10)).allMatch(TransferResultDTO::isSuccessful);
+    assertThat(results.subList(10, 15)).noneMatch(TransferResultDTO::isSuccessful);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.ZERO);
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(START_BALANCE);
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(10);
+  }
+
+  @Test
+  void invalid_transfers_then_only_those_fail() {
+    List<TransferDetailDTO> transfers =
+        List.of(
+            transferOf(BigDecimal.ONE),
+            new TransferDetailDTO(sourceAccount.getId(), null, bank.getId(), BigDecimal.ONE),
+            new TransferDetailDTO(
+                sourceAccount.getId(), targetAccount.getId(), bank.getId() * 1000, BigDecimal.ONE),
+            new TransferDetailDTO(
+                sourceAccount.getId(), targetAccount.getId() * 1000, bank.getId(), BigDecimal.ONE),
+            transferOf(BigDecimal.valueOf(-5)),
+            transferOf(BigDecimal.TWO));
+
+    List<TransferResultDTO> results = accountService.transferAll(transfers);
+
+    assertThat(results)
+        .extracting(TransferResultDTO::isSuccessful)
+        .containsExactly(true, false, false, false, false, true);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(7));
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(3));
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(2);
+  }
+
+  private TransferDetailDTO transferOf(BigDecimal amount) {
+    return new TransferDetailDTO(
+        sourceAccount.getId(), targetAccount.getId(), bank.getId(), amount);
+  }
+
+  private Integer[] range(int size) {
+    Integer[] values = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = i;
+    }
+    return values;
+  }
+}
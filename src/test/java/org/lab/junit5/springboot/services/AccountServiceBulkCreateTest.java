@@ -0,0 +1,74 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class AccountServiceBulkCreateTest {
+
+  // Mas que accounts.bulk.flush-size, para pasar por el flush y clear intermedio
+  private static final int ACCOUNTS = 2500;
+
+  @Autowired private AccountService accountService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("delete from accounts where account_number like 'bulk-%'");
+  }
+
+  @Test
+  void create_accounts_then_all_saved_with_distinct_ids() {
+    List<Account> accounts =
+        IntStream.range(0, ACCOUNTS).mapToObj(i -> account("bulk-" + i)).toList();
+
+    int created = accountService.createAccounts(accounts);
+
+    assertThat(created).isEqualTo(ACCOUNTS);
+    assertThat(accounts).extracting(Account::getId).doesNotContainNull().doesNotHaveDuplicates();
+    assertThat(countBulkAccounts()).isEqualTo(ACCOUNTS);
+    assertThat(accountService.findAccountByAccountNumber("bulk-" + (ACCOUNTS - 1)).getId())
+        .isEqualTo(accounts.getLast().getId());
+  }
+
+  @Test
+  void account_with_id_then_exception_and_nothing_created() {
+    List<Account> accounts = List.of(account("bulk-1"), account("bulk-2").setId(1L));
+
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.createAccounts(accounts))
+        .withMessage("Accounts to create must not have an id");
+    assertThat(countBulkAccounts()).isZero();
+  }
+
+  @Test
+  void duplicated_account_number_then_exception_and_nothing_created() {
+    List<Account> accounts =
+        IntStream.range(0, ACCOUNTS).mapToObj(i -> account("bulk-" + (i % 2000))).toList();
+
+    assertThatExceptionOfType(DataIntegrityViolationException.class)
+        .isThrownBy(() -> accountService.createAccounts(accounts));
+    assertThat(countBulkAccounts()).isZero();
+  }
+
+  private long countBulkAccounts() {
+    return jdbcTemplate.queryForObject(
+        "select count(*) from accounts where account_number like 'bulk-%'", Long.class);
+  }
+
+  private static Account account(String accountNumber) {
+    return AccountTestDataBuilder.random().withId(null).withAccountNumber(accountNumber).build();
+  }
+}
@@ -0,0 +1,172 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByNumberException;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Las cuentas se crean con el repositorio, como si las creara otra instancia: el filtro de numeros
+// de cuenta se pone al dia antes de rechazar un numero
+@SpringBootTest(properties = "accounts.number-filter.max-staleness=0s")
+class AccountServiceCacheTest {
+
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+  private final List<Long> createdAccountIds = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    sourceAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    targetAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+    createdAccountIds.add(sourceAccount.getId());
+    createdAccountIds.add(targetAccount.getId());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(
+        createdAccountIds.stream().filter(accountRepository::existsById).toList());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void repeated_lookups_by_number_then_served_from_cache() {
+    double hitsBefore = cacheHits("accounts-by-id");
+
+    accountService.findAccountByAccountNumber(sourceAccount.getAccountNumber());
+    Account cached = accountService.findAccountByAccountNumber(sourceAccount.getAccountNumber());
+
+    assertThat(cached.getId()).isEqualTo(sourceAccount.getId());
+    assertThat(cacheHits("accounts-by-id")).isEqualTo(hitsBefore + 1);
+  }
+
+  @Test
+  void transfer_then_cached_accounts_have_new_balances() {
+    accountService.findAccountById(sourceAccount.getId());
+    accountService.findAccountByAccountNumber(targetAccount.getAccountNumber());
+
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(100), bank.getId());
+
+    assertThat(accountService.findAccountById(sourceAccount.getId()).getBalance())
+        .isEqualByComparingTo(BigDecimal.valueOf(900));
+    String targetNumber = targetAccount.getAccountNumber();
+    assertThat(accountService.findAccountByAccountNumber(targetNumber).getBalance())
+        .isEqualByComparingTo(BigDecimal.valueOf(100));
+  }
+
+  @Test
+  void batch_transfer_then_cached_accounts_have_new_balances() {
+    accountService.findAccountById(sourceAccount.getId());
+
+    accountService.transferAll(
+        List.of(
+            new TransferDetailDTO(
+                sourceAccount.getId(), targetAccount.getId(), bank.getId(), BigDecimal.TEN)));
+
+    assertThat(accountService.findAccountById(sourceAccount.getId()).getBalance())
+        .isEqualByComparingTo(BigDecimal.valueOf(990));
+  }
+
+  @Test
+  void save_with_new_number_then_old_number_not_found_and_new_number_found() {
+    String oldNumber = sourceAccount.getAccountNumber();
+    accountService.findAccountByAccountNumber(oldNumber);
+
+    Account account = accountRepository.findById(sourceAccount.getId()).orElseThrow();
+    accountService.save(account.setAccountNumber(oldNumber + "-new"));
+
+    assertThatExceptionOfType(AccountNotFoundByNumberException.class)
+        .isThrownBy(() -> accountService.findAccountByAccountNumber(oldNumber));
+    assertThat(accountService.findAccountByAccountNumber(oldNumber + "-new").getId())
+        .isEqualTo(sourceAccount.getId());
+  }
+
+  @Test
+  void delete_then_cached_account_not_found() {
+    accountService.findAccountById(targetAccount.getId());
+
+    accountService.delete(targetAccount.getId());
+
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(() -> accountService.findAccountById(targetAccount.getId()));
+  }
+
+  @Test
+  void etag_matches_loaded_account_and_changes_after_transfer() {
+    String number = sourceAccount.getAccountNumber();
+    String eTag = accountService.findAccountETag(number).orElseThrow();
+    assertThat(eTag).isEqualTo(AccountETags.of(accountService.findAccountByAccountNumber(number)));
+    // Ahora la cuenta esta en cache: misma ETag
+    assertThat(accountService.findAccountETag(number)).contains(eTag);
+
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.TEN, bank.getId());
+
+    String newETag = accountService.findAccountETag(number).orElseThrow();
+    Account updated = accountService.findAccountByAccountNumber(number);
+    assertThat(newETag).isNotEqualTo(eTag).isEqualTo(AccountETags.of(updated));
+    assertThat(accountService.findAccountETag(number + "-unknown")).isEmpty();
+  }
+
+  @Test
+  void page_etag_matches_loaded_page_and_changes_after_transfer() {
+    String cursor = encodeCursor(sourceAccount.getId() - 1);
+    String eTag = accountService.findAccountsETag(cursor, 1);
+    assertThat(eTag).isEqualTo(AccountETags.of(accountService.findAccounts(cursor, 1)));
+
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.TEN, bank.getId());
+
+    assertThat(accountService.findAccountsETag(cursor, 1)).isNotEqualTo(eTag);
+  }
+
+  private static String encodeCursor(long afterId) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(Long.toString(afterId).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private double cacheHits(String cache) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", cache)
+        .tag("result", "hit")
+        .functionCounter()
+        .count();
+  }
+}
@@ -0,0 +1,111 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class AccountServiceChangesTest {
+
+  private static final int LIMIT = 1000;
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    sourceAccount =
+        accountService.save(
+            AccountTestDataBuilder.random()
+                .withId(null)
+                .withBalance(BigDecimal.valueOf(1000))
+                .build());
+    targetAccount =
+        accountService.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void new_accounts_then_listed_only_after_stamp() {
+    assertThat(changedIds(0)).doesNotContain(sourceAccount.getId(), targetAccount.getId());
+
+    accountService.stampChanges();
+
+    assertThat(changedIds(0)).contains(sourceAccount.getId(), targetAccount.getId());
+  }
+
+  @Test
+  void transfer_then_accounts_listed_again_after_last_seen_change() {
+    accountService.stampChanges();
+    long since = lastChangeSeq();
+    assertThat(changedIds(since)).isEmpty();
+
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+    assertThat(changedIds(since)).isEmpty();
+    accountService.stampChanges();
+
+    List<Account> changes = accountService.findChanges(since, LIMIT);
+    assertThat(changes)
+        .extracting(Account::getId)
+        .containsExactlyInAnyOrder(sourceAccount.getId(), targetAccount.getId());
+    assertThat(changes)
+        .allSatisfy(account -> assertThat(account.getChangeSeq()).isGreaterThan(since));
+    assertThat(changes.getFirst().getChangeSeq()).isLessThan(changes.getLast().getChangeSeq());
+  }
+
+  @Test
+  void stamp_without_pending_changes_then_nothing_stamped() {
+    accountService.stampChanges();
+
+    assertThat(accountService.stampChanges()).isZero();
+  }
+
+  @Test
+  void negative_since_then_exception() {
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.findChanges(-1, LIMIT));
+  }
+
+  // Recorre todos los cambios como lo haria un cliente, pagina a pagina
+  private long lastChangeSeq() {
+    long since = 0;
+    List<Account> changes;
+    while (!(changes = accountService.findChanges(since, LIMIT)).isEmpty()) {
+      since = changes.getLast().getChangeSeq();
+    }
+    return since;
+  }
+
+  private List<Long> changedIds(long since) {
+    return accountService.findChanges(since, LIMIT).stream().map(Account::getId).toList();
+  }
+}
@@ -0,0 +1,145 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByNumberException;
+import org.lab.junit5.springboot.models.dtos.AccountImportErrorDTO;
+import org.lab.junit5.springboot.models.dtos.AccountImportResultDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@SpringBootTest(
+    properties = {"accounts.closing.purge-batch-size=2", "accounts.closing.chunk-size=2"})
+class AccountServiceCloseTest {
+
+  private static final int ACCOUNTS = 5;
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountImportService accountImportService;
+  @Autowired private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+  private final List<Account> accounts = new ArrayList<>();
+  private List<Long> accountIds;
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accounts.add(
+          accountService.save(
+              AccountTestDataBuilder.random()
+                  .withId(null)
+                  .withOwner("Qzc Cerrada " + i)
+                  .withBalance(BigDecimal.TEN)
+                  .build()));
+    }
+    accountIds = accounts.stream().map(Account::getId).toList();
+  }
+
+  @AfterEach
+  void tearDown() {
+    // Por SQL: las cuentas cerradas no se ven con el repositorio
+    namedJdbcTemplate.update(
+        "delete from accounts where id in (:ids)", new MapSqlParameterSource("ids", accountIds));
+  }
+
+  @Test
+  void close_accounts_then_hidden_from_reads_but_row_kept() {
+    Account account = accounts.getFirst();
+    // Deja la cuenta en la cache
+    accountService.findAccountById(account.getId());
+
+    assertThat(accountService.closeAccounts(accountIds)).isEqualTo(ACCOUNTS);
+
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(() -> accountService.findAccountById(account.getId()));
+    assertThatExceptionOfType(AccountNotFoundByNumberException.class)
+        .isThrownBy(() -> accountService.findAccountByAccountNumber(account.getAccountNumber()));
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(() -> accountService.getBalance(account.getId()));
+    assertThat(accountService.getBalances(accountIds)).isEmpty();
+    assertThat(accountService.findAllAccounts())
+        .extracting(Account::getId)
+        .doesNotContainAnyElementsOf(accountIds);
+    assertThat(accountService.findAccountsByOwner("Qzc Cerrada", null, 100).accounts()).isEmpty();
+    assertThat(countRows()).isEqualTo(ACCOUNTS);
+  }
+
+  @Test
+  void close_twice_then_only_open_accounts_counted() {
+    accountService.closeAccounts(accountIds.subList(0, 2));
+
+    assertThat(accountService.closeAccounts(accountIds)).isEqualTo(ACCOUNTS - 2);
+  }
+
+  @Test
+  void too_many_ids_then_exception() {
+    List<Long> ids = LongStream.range(0, 10_001).boxed().toList();
+
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.closeAccounts(ids))
+        .withMessage("Too many account ids, the maximum is 10000");
+  }
+
+  @Test
+  void purge_then_only_accounts_closed_before_retention_deleted() {
+    accountService.closeAccounts(accountIds);
+    Instant longAgo = Instant.now().minus(Duration.ofDays(31));
+    // Todas menos la ultima pasaron ya accounts.closing.purge-after
+    namedJdbcTemplate.update(
+        "update accounts set closed_at = :closedAt where id in (:ids)",
+        new MapSqlParameterSource("closedAt", Timestamp.from(longAgo))
+            .addValue("ids", accountIds.subList(0, ACCOUNTS - 1)));
+
+    // En lotes de 2: el bucle sigue hasta un lote incompleto
+    assertThat(accountService.purgeClosedAccounts()).isEqualTo(ACCOUNTS - 1);
+    assertThat(countRows()).isEqualTo(1);
+  }
+
+  @Test
+  void delete_accounts_then_open_and_closed_rows_deleted() {
+    accountService.closeAccounts(accountIds.subList(0, 2));
+
+    assertThat(accountService.deleteAccounts(accountIds)).isEqualTo(ACCOUNTS);
+    assertThat(countRows()).isZero();
+  }
+
+  @Test
+  void import_number_of_closed_account_then_row_fails() {
+    Account account = accounts.getFirst();
+    accountService.closeAccounts(List.of(account.getId()));
+
+    AccountImportResultDTO result =
+        accountImportService.importAccounts(
+            new StringReader(
+                "accountNumber,owner,balance\n" + account.getAccountNumber() + ",Ana,1\n"),
+            null);
+
+    assertThat(result.errors())
+        .containsExactly(new AccountImportErrorDTO(2, "Account number already exists"));
+  }
+
+  private long countRows() {
+    return namedJdbcTemplate.queryForObject(
+        "select count(*) from accounts where id in (:ids)",
+        new MapSqlParameterSource("ids", accountIds),
+        Long.class);
+  }
+}
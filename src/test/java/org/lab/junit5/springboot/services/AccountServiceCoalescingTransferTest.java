@@ -0,0 +1,124 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(
+    properties = {
+      "accounts.transfer.engine=coalescing",
+      "accounts.transfer.coalescing.window=50ms"
+    })
+class AccountServiceCoalescingTransferTest {
+
+  private static final int CLIENTS = 8;
+  private static final int TRANSFERS = 2000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private BankService bankService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private Bank bank;
+  private Account merchant;
+  private List<Account> clients;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    merchant =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+    clients = new ArrayList<>();
+    for (int i = 0; i < CLIENTS; i++) {
+      clients.add(AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    }
+    clients = accountRepository.saveAll(clients);
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(clients.stream().map(Account::getId).toList());
+    accountRepository.deleteById(merchant.getId());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfer_without_enough_money_then_original_exception() {
+    Long sourceId = clients.get(0).getId();
+    BigDecimal amount = START_BALANCE.add(BigDecimal.ONE);
+
+    assertThatExceptionOfType(AccountInsufficientMoneyException.class)
+        .isThrownBy(
+            () -> accountService.transfer(sourceId, merchant.getId(), amount, bank.getId()));
+
+    assertThat(accountService.getBalance(sourceId)).isEqualByComparingTo(START_BALANCE);
+  }
+
+  @Test
+  void transfers_in_same_window_then_checked_in_order() {
+    // El comercio empieza sin saldo: el pago solo es posible si el abono anterior ya se aplico
+    CompletableFuture<Void> credit =
+        accountService.transferAsync(
+            clients.get(0).getId(), merchant.getId(), BigDecimal.TEN, bank.getId());
+    CompletableFuture<Void> payout =
+        accountService.transferAsync(
+            merchant.getId(), clients.get(1).getId(), BigDecimal.TEN, bank.getId());
+    CompletableFuture<Void> overdraft =
+        accountService.transferAsync(
+            merchant.getId(), clients.get(1).getId(), BigDecimal.ONE, bank.getId());
+
+    credit.join();
+    payout.join();
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(overdraft::join)
+        .withCauseInstanceOf(AccountInsufficientMoneyException.class);
+    assertThat(accountService.getBalance(merchant.getId())).isEqualByComparingTo(BigDecimal.ZERO);
+  }
+
+  @Test
+  void concurrent_credits_to_hot_account_then_netted_and_no_lost_updates() {
+    DistributionSummary batchSize =
+        meterRegistry.get("accounts.transfer.coalescing.batch.size").summary();
+    long commitsBefore = batchSize.count();
+
+    List<CompletableFuture<Void>> results = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      results.add(
+          accountService.transferAsync(
+              clients.get(i % CLIENTS).getId(), merchant.getId(), BigDecimal.ONE, bank.getId()));
+    }
+    CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+
+    assertThat(accountService.getBalance(merchant.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(TRANSFERS));
+    assertThat(accountService.getBalance(clients.get(0).getId()))
+        .isEqualByComparingTo(START_BALANCE.subtract(BigDecimal.valueOf(TRANSFERS / CLIENTS)));
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(TRANSFERS);
+    // Muchas menos transacciones que transferencias
+    assertThat(batchSize.count() - commitsBefore).isLessThan(TRANSFERS / 10);
+  }
+}
@@ -0,0 +1,62 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class AccountServiceExportTest {
+
+  private static final int ACCOUNTS = 20_000;
+
+  @Autowired private AccountService accountService;
+  @Autowired private EntityManager entityManager;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate.update(
+        "insert into accounts (id, account_number, owner, owner_normalized, balance)"
+            + " select next value for accounts_seq, 'export-' || x, 'Export', 'export', 10"
+            + " from system_range(1, ?)",
+        ACCOUNTS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("delete from accounts where account_number like 'export-%'");
+  }
+
+  @Test
+  void export_then_every_account_in_id_order_with_bounded_persistence_context() {
+    AtomicLong lastId = new AtomicLong();
+    AtomicInteger outOfOrder = new AtomicInteger();
+    AtomicInteger maxManagedEntities = new AtomicInteger();
+
+    long exported =
+        accountService.exportAccounts(
+            account -> {
+              if (account.getId() <= lastId.getAndSet(account.getId())) {
+                outOfOrder.incrementAndGet();
+              }
+              // Lo que crece con el numero de filas si no se vacia el contexto de persistencia
+              int managed =
+                  entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+              maxManagedEntities.accumulateAndGet(managed, Math::max);
+            });
+
+    assertThat(exported).isGreaterThanOrEqualTo(ACCOUNTS);
+    assertThat(outOfOrder).hasValue(0);
+    assertThat(maxManagedEntities.get()).isLessThanOrEqualTo(AccountRepository.EXPORT_FETCH_SIZE);
+  }
+}
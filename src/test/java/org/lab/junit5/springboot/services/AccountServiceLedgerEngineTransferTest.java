@@ -0,0 +1,149 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.repositories.LedgerEntryRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Modo ledger con los motores de transferencias: el saldo que se valida incluye los asientos sin
+// consolidar y cada transferencia deja sus asientos sin tocar accounts.balance
+class AccountServiceLedgerEngineTransferTest {
+
+  @Nested
+  @SpringBootTest(
+      properties = {
+        "accounts.transfer.mode=ledger",
+        "accounts.transfer.engine=sharded",
+        "accounts.transfer.sharded.shards=4"
+      })
+  class ShardedEngine extends LedgerScenarios {}
+
+  @Nested
+  @SpringBootTest(
+      properties = {
+        "accounts.transfer.mode=ledger",
+        "accounts.transfer.engine=coalescing",
+        "accounts.transfer.coalescing.window=5ms"
+      })
+  class CoalescingEngine extends LedgerScenarios {}
+
+  abstract static class LedgerScenarios {
+
+    private static final int TRANSFERS = 500;
+    private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+    @Autowired private AccountService accountService;
+    @Autowired private BankService bankService;
+    @Autowired private AccountRepository accountRepository;
+    @Autowired private BankRepository bankRepository;
+    @Autowired private LedgerEntryRepository ledgerEntryRepository;
+
+    private Bank bank;
+    private Account sourceAccount;
+    private Account targetAccount;
+
+    @BeforeEach
+    void setUp() {
+      bank =
+          bankRepository.save(
+              BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+      sourceAccount =
+          accountRepository.save(
+              AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+      targetAccount =
+          accountRepository.save(
+              AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+      ledgerEntryRepository.deleteAllInBatch();
+      accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+      bankRepository.deleteById(bank.getId());
+    }
+
+    @Test
+    void transfer_then_entries_appended_and_account_rows_untouched() {
+      accountService.transfer(
+          sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+
+      assertThat(ledgerEntryRepository.count()).isEqualTo(2);
+      assertThat(accountService.getBalance(sourceAccount.getId()))
+          .isEqualByComparingTo(BigDecimal.valueOf(750));
+      assertThat(accountService.getBalance(targetAccount.getId()))
+          .isEqualByComparingTo(BigDecimal.valueOf(250));
+      assertThat(accountRepository.findById(sourceAccount.getId()))
+          .hasValueSatisfying(
+              account -> assertThat(account.getBalance()).isEqualByComparingTo(START_BALANCE));
+    }
+
+    @Test
+    void transfer_without_enough_money_counting_pending_entries_then_exception() {
+      accountService.transfer(
+          sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(600), bank.getId());
+
+      assertThatExceptionOfType(AccountInsufficientMoneyException.class)
+          .isThrownBy(
+              () ->
+                  accountService.transfer(
+                      sourceAccount.getId(),
+                      targetAccount.getId(),
+                      BigDecimal.valueOf(600),
+                      bank.getId()));
+
+      assertThat(ledgerEntryRepository.count()).isEqualTo(2);
+      assertThat(accountService.getBalance(sourceAccount.getId()))
+          .isEqualByComparingTo(BigDecimal.valueOf(400));
+    }
+
+    @Test
+    void concurrent_transfers_then_no_overdraft_and_one_pair_of_entries_each() {
+      List<CompletableFuture<Void>> results = new ArrayList<>();
+      for (int i = 0; i < TRANSFERS; i++) {
+        results.add(
+            accountService.transferAsync(
+                sourceAccount.getId(),
+                targetAccount.getId(),
+                BigDecimal.valueOf(3),
+                bank.getId()));
+      }
+
+      long successful = 0;
+      for (CompletableFuture<Void> result : results) {
+        try {
+          result.join();
+          successful++;
+        } catch (CompletionException e) {
+          assertThat(e).hasCauseInstanceOf(AccountInsufficientMoneyException.class);
+        }
+      }
+
+      // 1000 / 3: la cuenta de origen se queda con 1 y nunca en negativo
+      assertThat(successful).isEqualTo(333);
+      assertThat(ledgerEntryRepository.count()).isEqualTo(2 * successful);
+      assertThat(accountService.getBalance(sourceAccount.getId()))
+          .isEqualByComparingTo(BigDecimal.ONE);
+      assertThat(accountService.getBalance(targetAccount.getId()))
+          .isEqualByComparingTo(BigDecimal.valueOf(999));
+      assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(successful);
+    }
+  }
+}
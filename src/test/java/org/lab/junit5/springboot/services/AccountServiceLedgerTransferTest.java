@@ -0,0 +1,294 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.controllers.AccountController;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.dtos.TransferResultDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.models.entitites.LedgerEntry;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.repositories.LedgerEntryRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+@SpringBootTest(
+    properties = {
+      "accounts.transfer.mode=ledger",
+      "accounts.transfer.ledger.settle-window=0s",
+      "accounts.number-filter.max-staleness=0s"
+    })
+class AccountServiceLedgerTransferTest {
+
+  private static final int THREADS = 32;
+  private static final int TRANSFERS = 2000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private BankService bankService;
+  @Autowired private LedgerSnapshotter ledgerSnapshotter;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+  @Autowired private LedgerEntryRepository ledgerEntryRepository;
+  @Autowired private AccountController accountController;
+  @Autowired private ObjectMapper objectMapper;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    sourceAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    targetAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    ledgerEntryRepository.deleteAllInBatch();
+    accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfer_then_entries_appended_and_account_rows_untouched() {
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+
+    assertThat(ledgerEntryRepository.count()).isEqualTo(2);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(750));
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(250));
+    assertThat(accountService.getBalances(List.of(sourceAccount.getId(), targetAccount.getId())))
+        .hasEntrySatisfying(
+            sourceAccount.getId(),
+            balance -> assertThat(balance).isEqualByComparingTo(BigDecimal.valueOf(750)))
+        .hasEntrySatisfying(
+            targetAccount.getId(),
+            balance -> assertThat(balance).isEqualByComparingTo(BigDecimal.valueOf(250)));
+    assertThat(accountRepository.findById(sourceAccount.getId()))
+        .hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualByComparingTo(START_BALANCE));
+  }
+
+  @Test
+  void entry_appended_elsewhere_then_reads_and_etag_include_it() {
+    String accountNumber = targetAccount.getAccountNumber();
+    ResponseEntity<Account> first =
+        accountController.getAccountByAccountNumber(accountNumber, null);
+    String eTag = first.getHeaders().getETag();
+    String pageETag = accountService.findAccountsETag(null, 1000);
+    // Asiento escrito sin pasar por esta instancia (otra instancia o SQL): no invalida la cache
+    ledgerEntryRepository.save(
+        new LedgerEntry()
+            .setAccountId(targetAccount.getId())
+            .setCounterpartyAccountId(sourceAccount.getId())
+            .setAmount(25_000)
+            .setCreatedAt(Instant.now()));
+
+    ResponseEntity<Account> second =
+        accountController.getAccountByAccountNumber(accountNumber, eTag);
+
+    assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(second.getHeaders().getETag()).isNotEqualTo(eTag);
+    assertThat(second.getBody().getBalance()).isEqualByComparingTo(BigDecimal.valueOf(250));
+    assertThat(accountService.findAccountById(targetAccount.getId()).getBalance())
+        .isEqualByComparingTo(BigDecimal.valueOf(250));
+    assertThat(accountService.findAccountsETag(null, 1000)).isNotEqualTo(pageETag);
+    assertThat(accountService.findAccounts(null, 1000).accounts())
+        .filteredOn(account -> account.getId().equals(targetAccount.getId()))
+        .singleElement()
+        .satisfies(
+            account ->
+                assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(250)));
+    List<Account> exported = new ArrayList<>();
+    accountService.exportAccounts(exported::add);
+    assertThat(exported)
+        .filteredOn(account -> account.getId().equals(targetAccount.getId()))
+        .singleElement()
+        .satisfies(
+            account ->
+                assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(250)));
+    // La fila sigue con el saldo consolidado
+    assertThat(accountRepository.findById(targetAccount.getId()))
+        .hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.ZERO));
+  }
+
+  @Test
+  void put_of_account_read_after_transfer_then_pending_entries_not_counted_twice()
+      throws Exception {
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+    // El cliente lee la cuenta (saldo con los asientos pendientes) y la devuelve con otro titular
+    Account read = accountService.findAccountById(sourceAccount.getId());
+    assertThat(read.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(750));
+    ObjectNode body = objectMapper.valueToTree(read);
+    body.put("owner", "Nuevo Titular");
+
+    ResponseEntity<?> response =
+        accountController.updateAccount(objectMapper.writeValueAsString(body));
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getBody())
+        .isInstanceOfSatisfying(
+            Account.class,
+            saved ->
+                assertThat(saved.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(750)));
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(750));
+    assertThat(accountRepository.findById(sourceAccount.getId()))
+        .hasValueSatisfying(
+            account -> {
+              assertThat(account.getOwner()).isEqualTo("Nuevo Titular");
+              assertThat(account.getBalance()).isEqualByComparingTo(START_BALANCE);
+            });
+
+    // Con la version vieja: otra transaccion cambio la cuenta entre medias
+    assertThat(
+            accountController.updateAccount(objectMapper.writeValueAsString(body)).getStatusCode())
+        .isEqualTo(HttpStatus.CONFLICT);
+  }
+
+  @Test
+  void snapshot_then_balances_materialized_and_entries_kept() {
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+    accountService.transfer(
+        targetAccount.getId(), sourceAccount.getId(), BigDecimal.valueOf(50), bank.getId());
+
+    ledgerSnapshotter.snapshot();
+
+    Account source = accountRepository.findById(sourceAccount.getId()).orElseThrow();
+    Account target = accountRepository.findById(targetAccount.getId()).orElseThrow();
+    assertThat(source.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(800));
+    assertThat(target.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(200));
+    assertThat(source.getLedgerSeq()).isPositive();
+    assertThat(ledgerEntryRepository.count()).isEqualTo(4);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(800));
+
+    // Un segundo snapshot sin asientos nuevos no cambia nada
+    ledgerSnapshotter.snapshot();
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(200));
+  }
+
+  @Test
+  void transfer_without_enough_money_counting_pending_entries_then_exception() {
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(600), bank.getId());
+
+    assertThatExceptionOfType(AccountInsufficientMoneyException.class)
+        .isThrownBy(
+            () ->
+                accountService.transfer(
+                    sourceAccount.getId(),
+                    targetAccount.getId(),
+                    BigDecimal.valueOf(600),
+                    bank.getId()));
+
+    assertThat(ledgerEntryRepository.count()).isEqualTo(2);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(400));
+  }
+
+  @Test
+  void transfer_to_unknown_account_then_exception_and_no_entries() {
+    Long unknownAccountId = targetAccount.getId() * 1000;
+
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(
+            () ->
+                accountService.transfer(
+                    sourceAccount.getId(), unknownAccountId, BigDecimal.TEN, bank.getId()));
+
+    assertThat(ledgerEntryRepository.count()).isZero();
+  }
+
+  @Test
+  void batch_transfers_then_appended_as_entries() {
+    List<TransferDetailDTO> transfers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      transfers.add(
+          new TransferDetailDTO(
+              sourceAccount.getId(), targetAccount.getId(), bank.getId(), BigDecimal.valueOf(400)));
+    }
+
+    List<TransferResultDTO> results = accountService.transferAll(transfers);
+
+    assertThat(results).extracting(TransferResultDTO::status).containsExactly("ok", "ok", "error");
+    assertThat(ledgerEntryRepository.count()).isEqualTo(4);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(200));
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(800));
+  }
+
+  @Test
+  void concurrent_transfers_on_same_account_then_no_lost_updates() throws Exception {
+    List<Callable<Boolean>> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      transfers.add(this::transferOne);
+    }
+
+    int successful = 0;
+    try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+      for (Future<Boolean> result : executor.invokeAll(transfers)) {
+        if (result.get()) {
+          successful++;
+        }
+      }
+    }
+    ledgerSnapshotter.snapshot();
+
+    assertThat(successful).isEqualTo(START_BALANCE.intValue());
+    assertThat(accountRepository.findById(sourceAccount.getId()))
+        .hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.ZERO));
+    assertThat(accountRepository.findById(targetAccount.getId()))
+        .hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualByComparingTo(START_BALANCE));
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(successful);
+  }
+
+  private boolean transferOne() {
+    try {
+      accountService.transfer(
+          sourceAccount.getId(), targetAccount.getId(), BigDecimal.ONE, bank.getId());
+      return true;
+    } catch (AccountInsufficientMoneyException e) {
+      return false;
+    }
+  }
+}
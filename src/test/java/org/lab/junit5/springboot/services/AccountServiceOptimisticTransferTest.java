@@ -0,0 +1,105 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(
+    properties = {"accounts.transfer.mode=entity", "accounts.transfer.retry.max-attempts=100"})
+class AccountServiceOptimisticTransferTest {
+
+  private static final int THREADS = 8;
+  private static final int TRANSFERS = 200;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+
+  @BeforeEach
+  void setUp() {
+    bank = bankRepository.save(BankTestDataBuilder.random().withId(null).build());
+    sourceAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    targetAccount =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfer_then_version_incremented() {
+    long initialVersion =
+        accountRepository.findById(sourceAccount.getId()).orElseThrow().getVersion();
+
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.TEN, bank.getId());
+
+    assertThat(accountRepository.findById(sourceAccount.getId()).orElseThrow().getVersion())
+        .isEqualTo(initialVersion + 1);
+  }
+
+  @Test
+  void concurrent_transfers_then_conflicts_retried_and_no_lost_updates() throws Exception {
+    List<Callable<Void>> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      transfers.add(
+          () -> {
+            accountService.transfer(
+                sourceAccount.getId(), targetAccount.getId(), BigDecimal.ONE, bank.getId());
+            return null;
+          });
+    }
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+      for (Future<Void> result : executor.invokeAll(transfers)) {
+        result.get();
+      }
+    }
+
+    BigDecimal transferred = BigDecimal.valueOf(TRANSFERS);
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(START_BALANCE.subtract(transferred));
+    assertThat(accountService.getBalance(targetAccount.getId()))
+        .isEqualByComparingTo(transferred);
+
+    // Con 8 hilos sobre las mismas dos filas los conflictos de version son inevitables
+    assertThat(
+            meterRegistry
+                .get("accounts.transfer.retries")
+                .tag("mode", "entity")
+                .tag("cause", "optimistic")
+                .counter()
+                .count())
+        .isPositive();
+  }
+}
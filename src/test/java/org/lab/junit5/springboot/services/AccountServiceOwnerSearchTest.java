@@ -0,0 +1,114 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.exceptions.AccountInvalidCursorException;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class AccountServiceOwnerSearchTest {
+
+  // Prefijo comun para no mezclarse con las cuentas de otros tests
+  private static final String PREFIX = "Qwz ";
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+
+  private List<Account> accounts;
+
+  @BeforeEach
+  void setUp() {
+    accounts =
+        accountRepository.saveAll(
+            List.of(
+                account(PREFIX + "María Núñez"),
+                account(PREFIX + "MARIO Pérez"),
+                account(PREFIX + "Mario Pérez"),
+                account(PREFIX + "Marta Gil"),
+                account(PREFIX + "Ana 100%")));
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(accounts.stream().map(Account::getId).toList());
+  }
+
+  @Test
+  void prefix_then_matches_ignoring_case_and_accents_ordered_by_owner() {
+    AccountPageDTO page = accountService.findAccountsByOwner("qwz mari", null, null);
+
+    assertThat(page.accounts())
+        .extracting(Account::getOwner)
+        .containsExactly(
+            PREFIX + "María Núñez", PREFIX + "MARIO Pérez", PREFIX + "Mario Pérez");
+    assertThat(page.hasNext()).isFalse();
+
+    assertThat(accountService.findAccountsByOwner("  QWZ MARÍA ", null, null).accounts())
+        .extracting(Account::getOwner)
+        .containsExactly(PREFIX + "María Núñez");
+  }
+
+  @Test
+  void pages_then_every_match_once_with_equal_owners() {
+    List<String> owners = new ArrayList<>();
+    String cursor = null;
+    do {
+      AccountPageDTO page = accountService.findAccountsByOwner(PREFIX + "ma", cursor, 1);
+      page.accounts().forEach(account -> owners.add(account.getOwner()));
+      cursor = page.nextCursor();
+    } while (cursor != null);
+
+    assertThat(owners)
+        .containsExactly(
+            PREFIX + "María Núñez",
+            PREFIX + "MARIO Pérez",
+            PREFIX + "Mario Pérez",
+            PREFIX + "Marta Gil");
+  }
+
+  @Test
+  void like_wildcards_then_matched_literally() {
+    assertThat(accountService.findAccountsByOwner(PREFIX + "_", null, null).accounts()).isEmpty();
+    assertThat(accountService.findAccountsByOwner(PREFIX + "ana 100%", null, null).accounts())
+        .extracting(Account::getOwner)
+        .containsExactly(PREFIX + "Ana 100%");
+  }
+
+  @Test
+  void updated_owner_then_found_by_new_prefix() {
+    Account account = accounts.getFirst();
+    accountService.save(account.setOwner(PREFIX + "Zoe Ruiz"));
+
+    assertThat(accountService.findAccountsByOwner(PREFIX + "zoe", null, null).accounts())
+        .extracting(Account::getId)
+        .containsExactly(account.getId());
+  }
+
+  @Test
+  void blank_prefix_then_exception() {
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.findAccountsByOwner(" ", null, null));
+  }
+
+  @Test
+  void invalid_cursor_then_exception() {
+    assertThatExceptionOfType(AccountInvalidCursorException.class)
+        .isThrownBy(() -> accountService.findAccountsByOwner(PREFIX, "x", null));
+  }
+
+  private static Account account(String owner) {
+    return AccountTestDataBuilder.random().withId(null).withOwner(owner).build();
+  }
+}
@@ -0,0 +1,102 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountException;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.models.dtos.AccountPatchDTO;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class AccountServicePatchTest {
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private Account sourceAccount;
+  private Account targetAccount;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    sourceAccount =
+        accountService.save(
+            AccountTestDataBuilder.random()
+                .withId(null)
+                .withBalance(BigDecimal.valueOf(1000))
+                .build());
+    targetAccount =
+        accountService.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(BigDecimal.ZERO).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(List.of(sourceAccount.getId(), targetAccount.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void patch_owner_then_owner_and_version_updated_and_cache_evicted() {
+    Long accountId = sourceAccount.getId();
+    // Deja la cuenta en la cache
+    accountService.findAccountById(accountId);
+
+    accountService.updateAccount(accountId, new AccountPatchDTO("  Sra. María Núñez "));
+
+    Account updated = accountRepository.findById(accountId).orElseThrow();
+    assertThat(updated.getOwner()).isEqualTo("Sra. María Núñez");
+    assertThat(updated.getOwnerNormalized()).isEqualTo("sra. maria nunez");
+    assertThat(updated.getVersion()).isEqualTo(sourceAccount.getVersion() + 1);
+    assertThat(updated.getChangeSeq()).isZero();
+    assertThat(accountService.findAccountById(accountId).getOwner())
+        .isEqualTo("Sra. María Núñez");
+  }
+
+  @Test
+  void patch_after_concurrent_transfer_then_balance_kept() {
+    accountService.transfer(
+        sourceAccount.getId(), targetAccount.getId(), BigDecimal.valueOf(250), bank.getId());
+
+    // Con save de la cuenta leida antes de la transferencia se perderia el cargo de 250
+    accountService.updateAccount(sourceAccount.getId(), new AccountPatchDTO("Nuevo Titular"));
+
+    assertThat(accountService.getBalance(sourceAccount.getId()))
+        .isEqualByComparingTo(BigDecimal.valueOf(750));
+  }
+
+  @Test
+  void unknown_account_then_not_found() {
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(() -> accountService.updateAccount(-1L, new AccountPatchDTO("Nadie")));
+  }
+
+  @Test
+  void empty_or_blank_patch_then_exception() {
+    Long accountId = sourceAccount.getId();
+
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.updateAccount(accountId, new AccountPatchDTO(null)))
+        .withMessage("No fields to update");
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.updateAccount(accountId, new AccountPatchDTO(" ")))
+        .withMessage("Owner must not be blank");
+  }
+}
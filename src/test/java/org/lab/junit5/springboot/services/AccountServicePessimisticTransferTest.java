@@ -0,0 +1,96 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "accounts.transfer.mode=pessimistic")
+class AccountServicePessimisticTransferTest {
+
+  private static final int THREADS = 16;
+  private static final int TRANSFERS = 1000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(500);
+
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private Account accountA;
+  private Account accountB;
+
+  @BeforeEach
+  void setUp() {
+    bank = bankRepository.save(BankTestDataBuilder.random().withId(null).build());
+    accountA =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    accountB =
+        accountRepository.save(
+            AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(List.of(accountA.getId(), accountB.getId()));
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfer_without_enough_money_then_exception_and_nothing_changes() {
+    BigDecimal amount = START_BALANCE.add(BigDecimal.ONE);
+
+    assertThatExceptionOfType(AccountInsufficientMoneyException.class)
+        .isThrownBy(
+            () -> accountService.transfer(accountB.getId(), accountA.getId(), amount, bank.getId()));
+
+    assertThat(accountService.getBalance(accountA.getId())).isEqualByComparingTo(START_BALANCE);
+    assertThat(accountService.getBalance(accountB.getId())).isEqualByComparingTo(START_BALANCE);
+  }
+
+  @Test
+  void concurrent_transfers_in_both_directions_then_no_deadlock_and_no_lost_updates()
+      throws Exception {
+    // A->B y B->A a la vez: sin el orden de bloqueo por id estas transferencias se bloquean
+    // mutuamente
+    List<Callable<Void>> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      boolean fromA = i % 2 == 0;
+      Long sourceId = fromA ? accountA.getId() : accountB.getId();
+      Long targetId = fromA ? accountB.getId() : accountA.getId();
+      transfers.add(
+          () -> {
+            accountService.transfer(sourceId, targetId, BigDecimal.ONE, bank.getId());
+            return null;
+          });
+    }
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+      for (Future<Void> result : executor.invokeAll(transfers)) {
+        result.get();
+      }
+    }
+
+    assertThat(accountService.getBalance(accountA.getId())).isEqualByComparingTo(START_BALANCE);
+    assertThat(accountService.getBalance(accountB.getId())).isEqualByComparingTo(START_BALANCE);
+  }
+}
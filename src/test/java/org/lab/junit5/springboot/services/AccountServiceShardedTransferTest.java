@@ -0,0 +1,109 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.models.entitites.Account;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.AccountRepository;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(
+    properties = {"accounts.transfer.engine=sharded", "accounts.transfer.sharded.shards=4"})
+class AccountServiceShardedTransferTest {
+
+  private static final int ACCOUNTS = 8;
+  private static final int TRANSFERS = 2000;
+  private static final BigDecimal START_BALANCE = BigDecimal.valueOf(1000);
+
+  @Autowired private AccountService accountService;
+  @Autowired private BankService bankService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private BankRepository bankRepository;
+
+  private Bank bank;
+  private List<Account> accounts;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankRepository.save(
+            BankTestDataBuilder.random().withId(null).withTotalOfTransfers(0).build());
+    accounts = new ArrayList<>();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accounts.add(
+          AccountTestDataBuilder.random().withId(null).withBalance(START_BALANCE).build());
+    }
+    accounts = accountRepository.saveAll(accounts);
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountRepository.deleteAllById(accounts.stream().map(Account::getId).toList());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void transfer_between_shards_without_enough_money_then_original_exception() {
+    // Ids consecutivos caen en shards distintos
+    Long sourceId = accounts.get(0).getId();
+    Long targetId = accounts.get(1).getId();
+    BigDecimal amount = START_BALANCE.add(BigDecimal.ONE);
+
+    assertThatExceptionOfType(AccountInsufficientMoneyException.class)
+        .isThrownBy(() -> accountService.transfer(sourceId, targetId, amount, bank.getId()));
+
+    assertThat(accountService.getBalance(sourceId)).isEqualByComparingTo(START_BALANCE);
+    assertThat(accountService.getBalance(targetId)).isEqualByComparingTo(START_BALANCE);
+  }
+
+  @Test
+  void concurrent_transfers_within_and_across_shards_then_no_lost_updates() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<CompletableFuture<Void>> results = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      int source = random.nextInt(ACCOUNTS);
+      int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+      results.add(
+          accountService.transferAsync(
+              accounts.get(source).getId(),
+              accounts.get(target).getId(),
+              BigDecimal.ONE,
+              bank.getId()));
+    }
+
+    long successful =
+        results.stream()
+            .filter(
+                result -> {
+                  try {
+                    result.join();
+                    return true;
+                  } catch (RuntimeException e) {
+                    return false;
+                  }
+                })
+            .count();
+
+    BigDecimal total =
+        accounts.stream()
+            .map(account -> accountService.getBalance(account.getId()))
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    assertThat(successful).isEqualTo(TRANSFERS);
+    assertThat(total).isEqualByComparingTo(START_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(TRANSFERS);
+  }
+}
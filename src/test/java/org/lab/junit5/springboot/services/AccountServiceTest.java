@@ -6,29 +6,39 @@ import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.lab.junit5.springboot.exceptions.AccountException;
 import org.lab.junit5.springboot.exceptions.AccountInsufficientMoneyException;
+import org.lab.junit5.springboot.exceptions.AccountInvalidCursorException;
 import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.lab.junit5.springboot.models.dtos.AccountPageDTO;
 import org.lab.junit5.springboot.models.entitites.Account;
 import org.lab.junit5.springboot.models.entitites.Bank;
 import org.lab.junit5.springboot.repositories.AccountRepository;
 import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.repositories.BankTransactionCounterRepository;
 import org.lab.junit5.springboot.testdata.AccountTestDataBuilder;
 import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
 import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
 
-@SpringBootTest
+// Con el repositorio simulado el filtro de numeros de cuenta se construiria vacio
+@SpringBootTest(properties = "accounts.number-filter.enabled=false")
 class AccountServiceTest {
 
   @MockBean private AccountRepository accountRepository;
   @MockBean private BankRepository bankRepository;
+  @MockBean private BankTransactionCounterRepository counterRepository;
 
   @Autowired private BankService bankService;
   @Autowired private AccountService accountService;
@@ -88,6 +98,118 @@ class AccountServiceTest {
     verify(accountRepository, times(1)).findById(anyLong());
   }
 
+  @Test
+  void find_accounts_with_more_rows_than_limit_then_page_and_cursor_to_continue() {
+    List<Account> rows =
+        List.of(
+            AccountTestDataBuilder.random().withId(11L).build(),
+            AccountTestDataBuilder.random().withId(12L).build(),
+            AccountTestDataBuilder.random().withId(13L).build());
+    when(accountRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(rows);
+
+    AccountPageDTO page = accountService.findAccounts(null, 2);
+
+    assertThat(page.accounts()).containsExactly(rows.get(0), rows.get(1));
+    assertThat(page.hasNext()).isTrue();
+
+    when(accountRepository.findByIdGreaterThanOrderByIdAsc(12L, Limit.of(3)))
+        .thenReturn(List.of(rows.get(2)));
+
+    AccountPageDTO nextPage = accountService.findAccounts(page.nextCursor(), 2);
+
+    assertThat(nextPage.accounts()).containsExactly(rows.get(2));
+    assertThat(nextPage.hasNext()).isFalse();
+  }
+
+  @Test
+  void find_accounts_over_max_size_then_limit_capped() {
+    when(accountRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class)))
+        .thenReturn(List.of());
+
+    accountService.findAccounts(null, Integer.MAX_VALUE);
+
+    verify(accountRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1001));
+  }
+
+  @Test
+  void find_accounts_by_numbers_then_chunked_in_queries_in_requested_order() {
+    List<String> numbers = IntStream.rangeClosed(1, 2500).mapToObj(i -> "ACC-" + i).toList();
+    when(accountRepository.findByAccountNumberIn(anyCollection()))
+        .thenAnswer(
+            invocation -> {
+              Collection<String> chunk = invocation.getArgument(0);
+              return chunk.stream()
+                  .filter(number -> !number.equals("ACC-7"))
+                  .map(
+                      number ->
+                          // Ids negativos: quedan en AccountCache y AccountTestDataBuilder no los
+                          // genera, asi no se mezclan con las cuentas de los demas tests
+                          new Account()
+                              .setId(-Long.parseLong(number.substring(4)))
+                              .setAccountNumber(number))
+                  .toList()
+                  .reversed();
+            });
+
+    List<Account> accounts =
+        accountService.findAccountsByAccountNumbers(List.of("ACC-9", "ACC-7", "ACC-2"));
+
+    assertThat(accounts).extracting(Account::getAccountNumber).containsExactly("ACC-9", "ACC-2");
+
+    accountService.findAccountsByAccountNumbers(numbers);
+
+    // La primera llamada es un chunk; la segunda tres, sin los numeros que ya estaban en cache
+    verify(accountRepository, times(4)).findByAccountNumberIn(anyCollection());
+    verify(accountRepository, never()).findByAccountNumber(anyString());
+  }
+
+  @Test
+  void find_accounts_by_numbers_over_max_then_exception() {
+    List<String> numbers = IntStream.rangeClosed(1, 10001).mapToObj(i -> "ACC-" + i).toList();
+
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.findAccountsByAccountNumbers(numbers))
+        .withMessage("Too many account numbers, the maximum is 10000");
+    verify(accountRepository, never()).findByAccountNumberIn(anyCollection());
+  }
+
+  @Test
+  void get_balances_then_chunked_in_queries_and_missing_ids_left_out() {
+    List<Long> accountIds = LongStream.rangeClosed(1, 2500).boxed().toList();
+    when(accountRepository.findBalancesByIdIn(anyCollection()))
+        .thenAnswer(
+            invocation -> {
+              Collection<Long> chunk = invocation.getArgument(0);
+              return chunk.stream()
+                  .filter(accountId -> accountId % 2 == 0)
+                  .map(accountId -> new Object[] {accountId, accountId * 100})
+                  .toList();
+            });
+
+    Map<Long, BigDecimal> balances = accountService.getBalances(accountIds);
+
+    assertThat(balances).hasSize(1250).containsEntry(2L, new BigDecimal("2.00"));
+    assertThat(balances).doesNotContainKey(1L);
+    verify(accountRepository, times(3)).findBalancesByIdIn(anyCollection());
+    verify(accountRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  void get_balances_over_max_ids_then_exception() {
+    List<Long> accountIds = LongStream.rangeClosed(1, 10001).boxed().toList();
+
+    assertThatExceptionOfType(AccountException.class)
+        .isThrownBy(() -> accountService.getBalances(accountIds))
+        .withMessage("Too many account ids, the maximum is 10000");
+    verify(accountRepository, never()).findBalancesByIdIn(anyCollection());
+  }
+
+  @Test
+  void find_accounts_with_invalid_cursor_then_exception() {
+    assertThatExceptionOfType(AccountInvalidCursorException.class)
+        .isThrownBy(() -> accountService.findAccounts("not a cursor", 10));
+  }
+
   @Test
   void save_account() {
     Long generatedId = 1L;
@@ -141,12 +263,12 @@ class AccountServiceTest {
     // get initial total of transactions - bank findById
     int initialTotalOfTransactions = bankService.getTotalOfTransactions(bank.getId());
 
-    // Get initial balances and check them -  Account findById (1 time for source and 1 time for
-    // target)
+    // Get initial balances and check them - Account findBalanceById (1 time for source and 1 time
+    // for target)
     BigDecimal initialSourceAccountBalance = accountService.getBalance(sourceAccount.getId());
-    assertThat(sourceAccount.getBalance()).isEqualTo(initialSourceAccountBalance);
+    assertThat(sourceAccount.getBalance()).isEqualByComparingTo(initialSourceAccountBalance);
     BigDecimal initialTargetAccountBalance = accountService.getBalance(targetAccount.getId());
-    assertThat(targetAccount.getBalance()).isEqualTo(initialTargetAccountBalance);
+    assertThat(targetAccount.getBalance()).isEqualByComparingTo(initialTargetAccountBalance);
 
     // Transfer Money - Account findById (1 time for source, 1 time for target and 1 time for bank)
     assertThatExceptionOfType(AccountException.class)
@@ -163,13 +285,13 @@ class AccountServiceTest {
                 sourceAccount, initialSourceAccountBalance.multiply(BigDecimal.TWO)));
 
     // Check Results
-    // Account 1 has 0 balance - account findById (1 time for source)
+    // Account 1 has 0 balance - account findBalanceById (1 time for source)
     assertBalanceAfterTransaction(sourceAccount.getId(), initialSourceAccountBalance);
 
-    // Account 2 has the sum of the initial balances - account findById (1 time for target)
+    // Account 2 has the sum of the initial balances - account findBalanceById (1 time for target)
     assertBalanceAfterTransaction(targetAccount.getId(), initialTargetAccountBalance);
 
-    // Bank has one more transfer - bank findById (1 time for bank)
+    // Bank has one more transfer - served from the in-memory total
     assertBankTotalOfTransactionsAfterTransaction(initialTotalOfTransactions);
 
     // Verify Mocks total of executions
@@ -185,9 +307,13 @@ class AccountServiceTest {
   }
 
   private void verifyMocksAfterFailedTransfer() {
-    verify(bankRepository, times(2)).findById(bank.getId());
-    verify(accountRepository, times(3)).findById(sourceAccount.getId());
-    verify(accountRepository, times(3)).findById(targetAccount.getId());
+    // el total se lee de la base de datos la primera vez y despues se sirve de memoria
+    verify(bankRepository, times(1)).findTotalOfTransactionsById(bank.getId());
+    verify(counterRepository, never()).increment(anyLong(), anyInt(), anyLong());
+    verify(accountRepository, times(2)).findBalanceById(sourceAccount.getId());
+    verify(accountRepository, times(2)).findBalanceById(targetAccount.getId());
+    verify(accountRepository, times(1)).findById(sourceAccount.getId());
+    verify(accountRepository, times(1)).findById(targetAccount.getId());
 
     verify(accountRepository, never()).save(sourceAccount);
     verify(accountRepository, never()).save(targetAccount);
@@ -197,50 +323,48 @@ class AccountServiceTest {
     InOrder inOrder = inOrder(bankRepository, accountRepository);
 
     // get initial values of transactions and balances
-    inOrder.verify(bankRepository).findById(bank.getId());
-    inOrder.verify(accountRepository).findById(sourceAccount.getId());
-    inOrder.verify(accountRepository).findById(targetAccount.getId());
+    inOrder.verify(bankRepository).findTotalOfTransactionsById(bank.getId());
+    inOrder.verify(accountRepository).findBalanceById(sourceAccount.getId());
+    inOrder.verify(accountRepository).findBalanceById(targetAccount.getId());
 
     // transfer money
     inOrder.verify(accountRepository).findById(sourceAccount.getId());
     inOrder.verify(accountRepository).findById(targetAccount.getId());
 
     // assert of final transactions and balances
-    inOrder.verify(accountRepository).findById(sourceAccount.getId());
-    inOrder.verify(accountRepository).findById(targetAccount.getId());
-    inOrder.verify(bankRepository).findById(bank.getId());
+    inOrder.verify(accountRepository).findBalanceById(sourceAccount.getId());
+    inOrder.verify(accountRepository).findBalanceById(targetAccount.getId());
   }
 
   @Test
   void test_transfer_source_account_has_enough_money_then_ok() {
     // Prepare Mocks
     prepareMocksForTransfer();
-
     // get initial total of transactions - bank findById
     int initialTotalOfTransactions = bankService.getTotalOfTransactions(bank.getId());
 
-    // Get initial balances and check them -  Account findById (1 time for source and 1 time for
-    // target)
+    // Get initial balances and check them - Account findBalanceById (1 time for source and 1 time
+    // for target)
     BigDecimal initialSourceAccountBalance = accountService.getBalance(sourceAccount.getId());
-    assertThat(sourceAccount.getBalance()).isEqualTo(initialSourceAccountBalance);
+    assertThat(sourceAccount.getBalance()).isEqualByComparingTo(initialSourceAccountBalance);
     BigDecimal initialTargetAccountBalance = accountService.getBalance(targetAccount.getId());
-    assertThat(targetAccount.getBalance()).isEqualTo(initialTargetAccountBalance);
+    assertThat(targetAccount.getBalance()).isEqualByComparingTo(initialTargetAccountBalance);
 
-    // Transfer Money - Account findById (1 time for source, 1 time for target and 1 time for bank)
-    // Transfer Money - Account save (1 time for source, 1 time for target and 1 time for bank)
+    // Transfer Money - Account findById (1 time for source, 1 time for target)
+    // Transfer Money - Account save (1 time for source, 1 time for target) and 1 counter increment
     accountService.transfer(
         sourceAccount.getId(), targetAccount.getId(), initialSourceAccountBalance, bank.getId());
 
     // Check Results
-    // Account 1 has 0 balance - account findById (1 time for source)
+    // Account 1 has 0 balance - account findBalanceById (1 time for source)
     assertBalanceAfterTransaction(sourceAccount.getId(), BigDecimal.ZERO);
 
-    // Account 2 has the sum of the initial balances - account findById (1 time for target)
+    // Account 2 has the sum of the initial balances - account findBalanceById (1 time for target)
     BigDecimal expectedTargetAccountBalance =
         initialTargetAccountBalance.add(initialSourceAccountBalance);
     assertBalanceAfterTransaction(targetAccount.getId(), expectedTargetAccountBalance);
 
-    // Bank has one more transfer - bank findById (1 time for bank)
+    // Bank has one more transfer - served from the in-memory total
     assertBankTotalOfTransactionsAfterTransaction(initialTotalOfTransactions + 1);
 
     // Verify Mocks total of executions
@@ -251,9 +375,16 @@ class AccountServiceTest {
   }
 
   private void prepareMocksForTransfer() {
-    when(bankRepository.findById(bank.getId())).thenReturn(Optional.of(bank));
+    when(bankRepository.findTotalOfTransactionsById(bank.getId()))
+        .thenReturn(Optional.of((long) bank.getTotalOfTransactions()));
+    when(counterRepository.increment(eq(bank.getId()), anyInt(), eq(1L))).thenReturn(1);
     when(accountRepository.findById(sourceAccount.getId())).thenReturn(Optional.of(sourceAccount));
     when(accountRepository.findById(targetAccount.getId())).thenReturn(Optional.of(targetAccount));
+    // el saldo se lee con una proyeccion: se devuelve el de la cuenta en ese momento
+    when(accountRepository.findBalanceById(sourceAccount.getId()))
+        .thenAnswer(invocation -> Optional.of(sourceAccount.getBalanceInMinorUnits()));
+    when(accountRepository.findBalanceById(targetAccount.getId()))
+        .thenAnswer(invocation -> Optional.of(targetAccount.getBalanceInMinorUnits()));
   }
 
   private void assertBalanceAfterTransaction(Long accountId, BigDecimal expectedBalance) {
@@ -269,34 +400,37 @@ class AccountServiceTest {
   }
 
   private void verifyMocksAfterSuccessfullyTransfer() {
-    verify(bankRepository, times(3)).findById(bank.getId());
-    verify(accountRepository, times(3)).findById(sourceAccount.getId());
-    verify(accountRepository, times(3)).findById(targetAccount.getId());
+    // el total se lee de la base de datos la primera vez y despues se sirve de memoria
+    verify(bankRepository, times(1)).findTotalOfTransactionsById(bank.getId());
+    verify(bankRepository, never()).findById(bank.getId());
+    verify(counterRepository, times(1)).increment(eq(bank.getId()), anyInt(), eq(1L));
+    verify(accountRepository, times(2)).findBalanceById(sourceAccount.getId());
+    verify(accountRepository, times(2)).findBalanceById(targetAccount.getId());
+    verify(accountRepository, times(1)).findById(sourceAccount.getId());
+    verify(accountRepository, times(1)).findById(targetAccount.getId());
 
     verify(accountRepository, times(1)).save(sourceAccount);
     verify(accountRepository, times(1)).save(targetAccount);
   }
 
   private void verifyOrderOfMocksExecutionAfterSuccessfullyTransfer() {
-    InOrder inOrder = inOrder(bankRepository, accountRepository);
+    InOrder inOrder = inOrder(bankRepository, counterRepository, accountRepository);
 
     // get initial values of transactions and balances
-    inOrder.verify(bankRepository).findById(bank.getId());
-    inOrder.verify(accountRepository).findById(sourceAccount.getId());
-    inOrder.verify(accountRepository).findById(targetAccount.getId());
+    inOrder.verify(bankRepository).findTotalOfTransactionsById(bank.getId());
+    inOrder.verify(accountRepository).findBalanceById(sourceAccount.getId());
+    inOrder.verify(accountRepository).findBalanceById(targetAccount.getId());
 
     // transfer money
     inOrder.verify(accountRepository).findById(sourceAccount.getId());
     inOrder.verify(accountRepository).findById(targetAccount.getId());
     inOrder.verify(accountRepository).save(sourceAccount);
     inOrder.verify(accountRepository).save(targetAccount);
-    inOrder.verify(bankRepository).findById(bank.getId());
-    inOrder.verify(bankRepository).save(bank);
+    inOrder.verify(counterRepository).increment(eq(bank.getId()), anyInt(), eq(1L));
 
     // assert of final transactions and balances
-    inOrder.verify(accountRepository).findById(sourceAccount.getId());
-    inOrder.verify(accountRepository).findById(targetAccount.getId());
-    inOrder.verify(bankRepository).findById(bank.getId());
+    inOrder.verify(accountRepository).findBalanceById(sourceAccount.getId());
+    inOrder.verify(accountRepository).findBalanceById(targetAccount.getId());
   }
 
   private Account cloneAccount(Account account) {
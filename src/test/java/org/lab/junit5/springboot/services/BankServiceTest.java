@@ -0,0 +1,259 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.exceptions.BankNotFoundByIdException;
+import org.lab.junit5.springboot.models.entitites.Bank;
+import org.lab.junit5.springboot.repositories.BankRepository;
+import org.lab.junit5.springboot.testdata.BankTestDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class BankServiceTest {
+
+  private static final int THREADS = 16;
+  private static final int TRANSACTIONS = 500;
+  private static final int INITIAL_TRANSACTIONS = 10;
+
+  @Autowired private BankService bankService;
+  @Autowired private BankRepository bankRepository;
+  @Autowired private TransferExecutor transferExecutor;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private BankTransactionTotalsReconciler bankTransactionTotalsReconciler;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private Bank bank;
+
+  @BeforeEach
+  void setUp() {
+    bank =
+        bankService.save(
+            BankTestDataBuilder.random()
+                .withId(null)
+                .withTotalOfTransfers(INITIAL_TRANSACTIONS)
+                .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    bankService.compactTotalOfTransactions(bank.getId());
+    bankRepository.deleteById(bank.getId());
+  }
+
+  @Test
+  void update_total_of_transactions_unknown_bank_then_exception() {
+    Long unknownBankId = bank.getId() * 1000;
+
+    assertThatExceptionOfType(BankNotFoundByIdException.class)
+        .isThrownBy(() -> bankService.updateTotalOfTransactions(unknownBankId));
+  }
+
+  @Test
+  void bank_deleted_after_its_slots_exist_then_slots_deleted_and_next_update_fails()
+      throws Exception {
+    incrementConcurrently();
+
+    bankRepository.deleteById(bank.getId());
+
+    // ON DELETE CASCADE: el UPDATE del siguiente incremento no encuentra ningun slot
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "select count(*) from bank_transaction_counters where bank_id = ?",
+                Long.class,
+                bank.getId()))
+        .isZero();
+    assertThatExceptionOfType(BankNotFoundByIdException.class)
+        .isThrownBy(
+            () ->
+                transferExecutor.execute(
+                    () -> bankService.updateTotalOfTransactions(bank.getId())));
+  }
+
+  @Test
+  void concurrent_updates_then_every_transaction_counted() throws Exception {
+    incrementConcurrently();
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + TRANSACTIONS);
+    // Todavia no se compacto: la fila del banco no se toco
+    assertThat(bankRepository.findById(bank.getId()).orElseThrow().getTotalOfTransactions())
+        .isEqualTo(INITIAL_TRANSACTIONS);
+  }
+
+  @Test
+  void compact_then_slots_folded_into_bank_and_total_unchanged() throws Exception {
+    incrementConcurrently();
+
+    bankService.compactTotalOfTransactions(bank.getId());
+
+    assertThat(bankRepository.findById(bank.getId()).orElseThrow().getTotalOfTransactions())
+        .isEqualTo(INITIAL_TRANSACTIONS + TRANSACTIONS);
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + TRANSACTIONS);
+    assertThat(bankService.findBankIdsWithPendingTransactions()).doesNotContain(bank.getId());
+  }
+
+  @Test
+  void find_bank_by_id_twice_then_second_served_from_cache() {
+    double hitsBefore = cacheHits();
+
+    bankService.findBankById(bank.getId());
+    Bank found = bankService.findBankById(bank.getId());
+
+    assertThat(found.getName()).isEqualTo(bank.getName());
+    assertThat(cacheHits()).isEqualTo(hitsBefore + 1);
+  }
+
+  @Test
+  void total_loaded_before_concurrent_updates_then_every_transaction_counted() throws Exception {
+    bankService.getTotalOfTransactions(bank.getId());
+
+    incrementConcurrently();
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + TRANSACTIONS);
+  }
+
+  @Test
+  void rolled_back_update_then_not_counted() {
+    bankService.getTotalOfTransactions(bank.getId());
+
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(
+            () ->
+                transferExecutor.execute(
+                    () -> {
+                      bankService.updateTotalOfTransactions(bank.getId());
+                      throw new IllegalStateException("rollback");
+                    }));
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(INITIAL_TRANSACTIONS);
+  }
+
+  @Test
+  void update_outside_service_then_visible_after_reconcile() {
+    bankService.getTotalOfTransactions(bank.getId());
+    // Otra instancia de la aplicacion que compacta su contador
+    transferExecutor.execute(() -> bankRepository.addToTotalOfTransactions(bank.getId(), 5));
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(INITIAL_TRANSACTIONS);
+
+    bankService.reconcileTotalOfTransactions(bank.getId());
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + 5);
+  }
+
+  @Test
+  void slot_written_by_another_instance_then_visible_after_scheduled_reconcile() {
+    bankService.getTotalOfTransactions(bank.getId());
+    // Otra instancia que cuenta 7 transferencias en un slot y todavia no compacto: aqui no se
+    // ejecuta ningun callback de commit
+    jdbcTemplate.update(
+        "insert into bank_transaction_counters (bank_id, slot, transactions) values (?, ?, ?)",
+        bank.getId(),
+        0,
+        7);
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId())).isEqualTo(INITIAL_TRANSACTIONS);
+
+    // Lo que hace cada banks.transaction-counter.reconcile-interval
+    bankTransactionTotalsReconciler.reconcile();
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + 7);
+  }
+
+  @Test
+  void reconcile_while_transaction_in_flight_then_total_cached_and_corrected_on_next_reconcile()
+      throws Exception {
+    CountDownLatch updated = new CountDownLatch(1);
+    CountDownLatch commit = new CountDownLatch(1);
+    // Transferencia continua: siempre hay una transaccion del banco sin terminar
+    try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+      Future<?> inFlight =
+          executor.submit(
+              () ->
+                  transferExecutor.execute(
+                      () -> {
+                        bankService.updateTotalOfTransactions(bank.getId());
+                        updated.countDown();
+                        awaitRelease(commit);
+                        return null;
+                      }));
+      assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+
+      bankTransactionTotalsReconciler.reconcile();
+      // Otra instancia que cuenta 3 transferencias: se lee de memoria, no de la base de datos
+      jdbcTemplate.update(
+          "insert into bank_transaction_counters (bank_id, slot, transactions) values (?, ?, ?)",
+          bank.getId(),
+          1000,
+          3);
+
+      assertThat(bankService.getTotalOfTransactions(bank.getId()))
+          .isEqualTo(INITIAL_TRANSACTIONS);
+
+      commit.countDown();
+      inFlight.get(10, TimeUnit.SECONDS);
+    }
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + 1);
+
+    bankTransactionTotalsReconciler.reconcile();
+
+    assertThat(bankService.getTotalOfTransactions(bank.getId()))
+        .isEqualTo(INITIAL_TRANSACTIONS + 4);
+  }
+
+  private static void awaitRelease(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private double cacheHits() {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "banks-by-id")
+        .tag("result", "hit")
+        .functionCounter()
+        .count();
+  }
+
+  private void incrementConcurrently() throws Exception {
+    // Igual que en una transferencia: TransferExecutor reintenta si dos hilos crean el mismo slot
+    List<Callable<Void>> updates = new ArrayList<>();
+    for (int i = 0; i < TRANSACTIONS; i++) {
+      updates.add(
+          () -> {
+            transferExecutor.execute(() -> bankService.updateTotalOfTransactions(bank.getId()));
+            return null;
+          });
+    }
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+      for (Future<Void> result : executor.invokeAll(updates)) {
+        result.get();
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+  private static final int NUMBERS = 100_000;
+
+  @Test
+  void added_values_then_always_might_contain() {
+    BloomFilter filter = BloomFilter.create(NUMBERS, 0.01);
+    IntStream.range(0, NUMBERS).mapToObj(i -> "ACC-" + i).forEach(filter::put);
+
+    assertThat(IntStream.range(0, NUMBERS).mapToObj(i -> "ACC-" + i))
+        .allMatch(filter::mightContain);
+  }
+
+  @Test
+  void filled_to_expected_size_then_false_positive_rate_close_to_configured() {
+    BloomFilter filter = BloomFilter.create(NUMBERS, 0.01);
+    IntStream.range(0, NUMBERS).mapToObj(i -> "ACC-" + i).forEach(filter::put);
+
+    long falsePositives =
+        IntStream.range(NUMBERS, 2 * NUMBERS)
+            .mapToObj(i -> "ACC-" + i)
+            .filter(filter::mightContain)
+            .count();
+
+    assertThat((double) falsePositives / NUMBERS).isLessThan(0.015);
+    assertThat(filter.currentFalsePositiveRate()).isBetween(0.005, 0.015);
+    // ~9.6 bits por valor con 1% de falsos positivos
+    assertThat(filter.sizeInBytes()).isBetween(110_000L, 130_000L);
+  }
+
+  @Test
+  void empty_filter_then_rejects_everything() {
+    BloomFilter filter = BloomFilter.create(NUMBERS, 0.01);
+
+    assertThat(filter.mightContain("ACC-1")).isFalse();
+    assertThat(filter.currentFalsePositiveRate()).isZero();
+  }
+}
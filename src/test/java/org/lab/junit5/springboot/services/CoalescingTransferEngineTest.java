@@ -0,0 +1,100 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+
+class CoalescingTransferEngineTest {
+
+  private final TransferExecutor transferExecutor = mock(TransferExecutor.class);
+  private final TransferBatchProcessor transferBatchProcessor = mock(TransferBatchProcessor.class);
+  private final CountDownLatch flushing = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private CoalescingTransferEngine engine;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    // Un hilo de commit y lotes de una transferencia: el primer lote ocupa el hilo hasta release
+    TransferProperties properties =
+        new TransferProperties(
+            TransferMode.ATOMIC,
+            new TransferProperties.Retry(1, Duration.ofMillis(1), Duration.ofMillis(1)),
+            new TransferProperties.Batch(500, 50000),
+            TransferEngineType.COALESCING,
+            new TransferProperties.Sharded(8, 500, 10000),
+            new TransferProperties.Ledger(
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10)),
+            new TransferProperties.Coalescing(Duration.ofMillis(1), 1, 1, 10000));
+    when(transferExecutor.execute(any(Supplier.class)))
+        .thenAnswer(
+            invocation -> {
+              flushing.countDown();
+              release.await(10, TimeUnit.SECONDS);
+              return ((Supplier<?>) invocation.getArgument(0)).get();
+            });
+    when(transferBatchProcessor.applyAsBalanceDeltas(anyList()))
+        .thenAnswer(
+            invocation ->
+                invocation.<List<TransferDetailDTO>>getArgument(0).stream()
+                    .map(TransferOutcome::successful)
+                    .toList());
+    engine =
+        new CoalescingTransferEngine(
+            transferExecutor, transferBatchProcessor, properties, new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    engine.shutdown();
+  }
+
+  @Test
+  void shutdown_then_collected_and_queued_transfers_fail_and_running_flush_completes()
+      throws Exception {
+    CompletableFuture<Void> flushed = engine.submit(transfer());
+    assertThat(flushing.await(10, TimeUnit.SECONDS)).isTrue();
+    // El colector se queda con esta esperando un hilo de commit; la siguiente queda en la cola
+    CompletableFuture<Void> collected = engine.submit(transfer());
+    CompletableFuture<Void> queued = engine.submit(transfer());
+
+    engine.shutdown();
+
+    assertStopped(collected);
+    assertStopped(queued);
+    assertStopped(engine.submit(transfer()));
+    assertThat(flushed).isNotDone();
+    release.countDown();
+    flushed.get(10, TimeUnit.SECONDS);
+  }
+
+  private static void assertStopped(CompletableFuture<Void> result) {
+    assertThat(result)
+        .failsWithin(Duration.ofSeconds(10))
+        .withThrowableOfType(Exception.class)
+        .havingCause()
+        .isInstanceOf(IllegalStateException.class)
+        .withMessage("Transfer engine stopped");
+  }
+
+  private static TransferDetailDTO transfer() {
+    return new TransferDetailDTO(1L, 2L, 1L, BigDecimal.ONE);
+  }
+}
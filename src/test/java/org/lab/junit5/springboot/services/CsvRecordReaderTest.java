@@ -0,0 +1,73 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CsvRecordReaderTest {
+
+  @Test
+  void simple_records_then_fields_and_line_numbers() throws IOException {
+    List<CsvRecordReader.CsvRecord> records = readAll("a,b,c\r\n1,2,3\n");
+
+    assertThat(records).hasSize(2);
+    assertThat(records.get(0).fields()).containsExactly("a", "b", "c");
+    assertThat(records.get(1).fields()).containsExactly("1", "2", "3");
+    assertThat(records).extracting(CsvRecordReader.CsvRecord::line).containsExactly(1L, 2L);
+  }
+
+  @Test
+  void quoted_fields_then_commas_quotes_and_newlines_kept() throws IOException {
+    List<CsvRecordReader.CsvRecord> records =
+        readAll("\"Perez, Juan\",\"dice \"\"hola\"\"\",\"dos\nlineas\"\nx,y,z");
+
+    assertThat(records.get(0).fields())
+        .containsExactly("Perez, Juan", "dice \"hola\"", "dos\nlineas");
+    // El segundo registro empieza en la linea 3: el primero ocupa dos
+    assertThat(records.get(1).line()).isEqualTo(3);
+    assertThat(records.get(1).fields()).containsExactly("x", "y", "z");
+  }
+
+  @Test
+  void blank_line_then_blank_record_with_its_line() throws IOException {
+    List<CsvRecordReader.CsvRecord> records = readAll("a\n\nb\n");
+
+    assertThat(records)
+        .extracting(CsvRecordReader.CsvRecord::isBlank)
+        .containsExactly(false, true, false);
+    assertThat(records).extracting(CsvRecordReader.CsvRecord::line).containsExactly(1L, 2L, 3L);
+  }
+
+  @Test
+  void record_too_long_then_error_and_next_record_read() throws IOException {
+    String longField = "x".repeat(CsvRecordReader.MAX_RECORD_LENGTH + 1);
+    List<CsvRecordReader.CsvRecord> records = readAll("a," + longField + "\nb,c\n");
+
+    assertThat(records.get(0).error()).startsWith("Record longer than");
+    assertThat(records.get(0).fields()).isEmpty();
+    assertThat(records.get(1).fields()).containsExactly("b", "c");
+    assertThat(records.get(1).line()).isEqualTo(2);
+  }
+
+  @Test
+  void unterminated_quote_then_error() throws IOException {
+    List<CsvRecordReader.CsvRecord> records = readAll("a,\"b\nc,d");
+
+    assertThat(records).hasSize(1);
+    assertThat(records.get(0).error()).isEqualTo("Unterminated quoted field");
+  }
+
+  private static List<CsvRecordReader.CsvRecord> readAll(String csv) throws IOException {
+    CsvRecordReader reader = new CsvRecordReader(new StringReader(csv));
+    List<CsvRecordReader.CsvRecord> records = new ArrayList<>();
+    CsvRecordReader.CsvRecord record;
+    while ((record = reader.next()) != null) {
+      records.add(record);
+    }
+    return records;
+  }
+}
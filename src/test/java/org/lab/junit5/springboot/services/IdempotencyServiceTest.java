@@ -0,0 +1,236 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.IdempotencyProperties;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+import org.lab.junit5.springboot.models.entitites.IdempotencyRecord;
+import org.lab.junit5.springboot.repositories.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+@SpringBootTest
+class IdempotencyServiceTest {
+
+  private static final TransferDetailDTO TRANSFER =
+      new TransferDetailDTO(1L, 2L, 1L, BigDecimal.TEN);
+
+  @Autowired private IdempotencyService idempotencyService;
+  @Autowired private IdempotencyRecordRepository idempotencyRecordRepository;
+  @Autowired private IdempotencyProperties idempotencyProperties;
+
+  private final List<String> usedKeys = new ArrayList<>();
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @AfterEach
+  void tearDown() {
+    idempotencyRecordRepository.deleteAllById(usedKeys);
+  }
+
+  @Test
+  void same_key_twice_then_action_executed_once_and_response_replayed() {
+    String key = newKey();
+
+    ResponseEntity<Map<String, Object>> first =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+    ResponseEntity<Map<String, Object>> second =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(1);
+    assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(second.getBody()).isEqualTo(first.getBody());
+    assertThat(idempotencyRecordRepository.findById(key))
+        .hasValueSatisfying(
+            idempotencyRecord -> assertThat(idempotencyRecord.getResponseStatus()).isEqualTo(200));
+  }
+
+  @Test
+  void same_key_with_different_request_then_unprocessable_entity() {
+    String key = newKey();
+    TransferDetailDTO otherTransfer = new TransferDetailDTO(1L, 2L, 1L, BigDecimal.ONE);
+
+    idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, otherTransfer, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(1);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    assertThat(response.getBody()).containsEntry("status", "error");
+  }
+
+  @Test
+  void client_error_then_stored_and_replayed() {
+    String key = newKey();
+
+    idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.BAD_REQUEST));
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(1);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  void server_error_then_not_stored_and_retry_executes_again() {
+    String key = newKey();
+
+    idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.INTERNAL_SERVER_ERROR));
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(2);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void key_stored_by_another_instance_then_replayed_from_database() {
+    String key = newKey();
+    String requestHash = hashOfFirstExecution();
+    Instant startedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    idempotencyRecordRepository.insertInProgress(key, requestHash, startedAt);
+    idempotencyRecordRepository.complete(key, startedAt, 200, "{\"status\":\"ok\"}");
+
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(1);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getBody()).containsExactlyEntriesOf(Map.of("status", "ok"));
+  }
+
+  @Test
+  void key_in_progress_in_another_instance_then_conflict() {
+    String key = newKey();
+    idempotencyRecordRepository.insertInProgress(key, hashOfFirstExecution(), Instant.now());
+
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(1);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+  }
+
+  @Test
+  void key_in_progress_longer_than_timeout_then_final_conflict_and_not_executed_again() {
+    String key = newKey();
+    // La instancia que la procesaba se cayo: la transferencia pudo hacer commit o no
+    idempotencyRecordRepository.insertInProgress(
+        key,
+        hashOfFirstExecution(),
+        Instant.now().minus(idempotencyProperties.inProgressTimeout()).minusSeconds(1));
+
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+    ResponseEntity<Map<String, Object>> replayed =
+        idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+
+    assertThat(executions).hasValue(1);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    assertThat(response.getBody()).containsEntry("status", "error");
+    assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    assertThat(replayed.getBody()).isEqualTo(response.getBody());
+    assertThat(idempotencyRecordRepository.findById(key))
+        .hasValueSatisfying(
+            idempotencyRecord -> assertThat(idempotencyRecord.getResponseStatus()).isEqualTo(409));
+  }
+
+  @Test
+  void key_abandoned_while_original_still_running_then_original_response_not_stored() {
+    String key = newKey();
+    Supplier<ResponseEntity<Map<String, Object>>> slowAction =
+        () -> {
+          // Otra instancia la da por abandonada mientras esta sigue ejecutandose
+          idempotencyRecordRepository.abandon(key, 409, "{}", Instant.now().plusSeconds(60));
+          return respondWith(HttpStatus.OK).get();
+        };
+
+    ResponseEntity<Map<String, Object>> response =
+        idempotencyService.execute(key, TRANSFER, slowAction);
+
+    assertThat(executions).hasValue(1);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(idempotencyRecordRepository.findById(key))
+        .hasValueSatisfying(
+            idempotencyRecord -> assertThat(idempotencyRecord.getResponseStatus()).isEqualTo(409));
+  }
+
+  @Test
+  void concurrent_requests_with_same_key_then_action_executed_once() throws Exception {
+    String key = newKey();
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<ResponseEntity<Map<String, Object>>> slowAction =
+        () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return respondWith(HttpStatus.OK).get();
+        };
+
+    List<Callable<ResponseEntity<Map<String, Object>>>> requests = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      requests.add(() -> idempotencyService.execute(key, TRANSFER, slowAction));
+    }
+
+    List<ResponseEntity<Map<String, Object>>> responses = new ArrayList<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(requests.size())) {
+      List<Future<ResponseEntity<Map<String, Object>>>> futures = new ArrayList<>();
+      for (Callable<ResponseEntity<Map<String, Object>>> request : requests) {
+        futures.add(executor.submit(request));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<ResponseEntity<Map<String, Object>>> future : futures) {
+        responses.add(future.get());
+      }
+    }
+
+    assertThat(executions).hasValue(1);
+    assertThat(responses).allMatch(response -> response.getStatusCode() == HttpStatus.OK);
+  }
+
+  // Guarda una respuesta con una clave auxiliar para obtener el hash real de TRANSFER
+  private String hashOfFirstExecution() {
+    String key = newKey();
+    idempotencyService.execute(key, TRANSFER, respondWith(HttpStatus.OK));
+    return idempotencyRecordRepository
+        .findById(key)
+        .map(IdempotencyRecord::getRequestHash)
+        .orElseThrow();
+  }
+
+  private String newKey() {
+    String key = UUID.randomUUID().toString();
+    usedKeys.add(key);
+    return key;
+  }
+
+  private Supplier<ResponseEntity<Map<String, Object>>> respondWith(HttpStatus status) {
+    return () -> {
+      Map<String, Object> response = new HashMap<>();
+      response.put("status", status.isError() ? "error" : "ok");
+      response.put("execution", executions.incrementAndGet());
+      return ResponseEntity.status(status).body(response);
+    };
+  }
+}
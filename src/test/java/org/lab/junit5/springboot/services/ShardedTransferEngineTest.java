@@ -0,0 +1,112 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.models.dtos.TransferDetailDTO;
+
+class ShardedTransferEngineTest {
+
+  private final TransferExecutor transferExecutor = mock(TransferExecutor.class);
+  private final TransferBatchProcessor transferBatchProcessor = mock(TransferBatchProcessor.class);
+  private final CountDownLatch flushing = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private ShardedTransferEngine engine;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    // Un shard y grupos de una transferencia: el primer grupo ocupa al escritor hasta release
+    TransferProperties properties =
+        new TransferProperties(
+            TransferMode.ATOMIC,
+            new TransferProperties.Retry(1, Duration.ofMillis(1), Duration.ofMillis(1)),
+            new TransferProperties.Batch(500, 50000),
+            TransferEngineType.SHARDED,
+            new TransferProperties.Sharded(1, 1, 10000),
+            new TransferProperties.Ledger(
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10)),
+            new TransferProperties.Coalescing(Duration.ofMillis(2), 500, 2, 10000));
+    when(transferExecutor.execute(any(Supplier.class)))
+        .thenAnswer(
+            invocation -> {
+              flushing.countDown();
+              awaitRelease();
+              return ((Supplier<?>) invocation.getArgument(0)).get();
+            });
+    when(transferBatchProcessor.applyAsBalanceDeltas(anyList()))
+        .thenAnswer(
+            invocation ->
+                invocation.<List<TransferDetailDTO>>getArgument(0).stream()
+                    .map(TransferOutcome::successful)
+                    .toList());
+    engine = new ShardedTransferEngine(transferExecutor, transferBatchProcessor, properties);
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    engine.shutdown();
+  }
+
+  @Test
+  void shutdown_then_queued_and_later_transfers_fail_and_running_group_completes()
+      throws Exception {
+    CompletableFuture<Void> flushed = engine.submit(transfer());
+    assertThat(flushing.await(10, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Void> queued = engine.submit(transfer());
+
+    // El apagado espera al commit en curso: se lanza aparte para comprobar que no bloquea al resto
+    CompletableFuture<Void> shutdown = CompletableFuture.runAsync(engine::shutdown);
+
+    assertStopped(queued);
+    assertStopped(engine.submit(transfer()));
+    assertThat(flushed).isNotDone();
+    release.countDown();
+    flushed.get(10, TimeUnit.SECONDS);
+    shutdown.get(10, TimeUnit.SECONDS);
+  }
+
+  // Como un commit real: la interrupcion del apagado no corta el grupo que se esta aplicando
+  private void awaitRelease() {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        release.await(10, TimeUnit.SECONDS);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void assertStopped(CompletableFuture<Void> result) {
+    assertThat(result)
+        .failsWithin(Duration.ofSeconds(10))
+        .withThrowableOfType(Exception.class)
+        .havingCause()
+        .isInstanceOf(IllegalStateException.class)
+        .withMessage("Transfer engine stopped");
+  }
+
+  private static TransferDetailDTO transfer() {
+    return new TransferDetailDTO(1L, 2L, 1L, BigDecimal.ONE);
+  }
+}
@@ -0,0 +1,108 @@
+package org.lab.junit5.springboot.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lab.junit5.springboot.config.TransferProperties;
+import org.lab.junit5.springboot.exceptions.AccountNotFoundByIdException;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class TransferExecutorTest {
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private TransferExecutor transferExecutor;
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    TransferProperties properties =
+        new TransferProperties(
+            TransferMode.PESSIMISTIC,
+            new TransferProperties.Retry(MAX_ATTEMPTS, Duration.ofMillis(1), Duration.ofMillis(2)),
+            new TransferProperties.Batch(500, 50000),
+            TransferEngineType.DIRECT,
+            new TransferProperties.Sharded(8, 500, 10000),
+            new TransferProperties.Ledger(
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10)),
+            new TransferProperties.Coalescing(Duration.ofMillis(2), 500, 2, 10000));
+    transferExecutor =
+        new TransferExecutor(mock(PlatformTransactionManager.class), properties, meterRegistry);
+  }
+
+  @Test
+  void optimistic_failure_then_retried_and_counted() {
+    transferExecutor.execute(
+        () -> {
+          if (attempts.incrementAndGet() == 1) {
+            throw new ObjectOptimisticLockingFailureException("Account", 1L);
+          }
+        });
+
+    assertThat(attempts).hasValue(2);
+    assertThat(retries("optimistic")).isEqualTo(1);
+    assertThat(retries("lock")).isZero();
+    assertThat(meterRegistry.get("accounts.transfer.attempts").summary().totalAmount())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void lock_failure_then_retried_until_success() {
+    String result =
+        transferExecutor.execute(
+            () -> {
+              if (attempts.incrementAndGet() < MAX_ATTEMPTS) {
+                throw new CannotAcquireLockException("lock timeout");
+              }
+              return "ok";
+            });
+
+    assertThat(result).isEqualTo("ok");
+    assertThat(attempts).hasValue(MAX_ATTEMPTS);
+    assertThat(retries("lock")).isEqualTo(MAX_ATTEMPTS - 1);
+  }
+
+  @Test
+  void lock_failure_on_every_attempt_then_exception_after_max_attempts() {
+    assertThatExceptionOfType(CannotAcquireLockException.class)
+        .isThrownBy(
+            () ->
+                transferExecutor.execute(
+                    () -> {
+                      attempts.incrementAndGet();
+                      throw new CannotAcquireLockException("lock timeout");
+                    }));
+
+    assertThat(attempts).hasValue(MAX_ATTEMPTS);
+    assertThat(meterRegistry.get("accounts.transfer.retries.exhausted").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void business_exception_then_not_retried() {
+    assertThatExceptionOfType(AccountNotFoundByIdException.class)
+        .isThrownBy(
+            () ->
+                transferExecutor.execute(
+                    () -> {
+                      attempts.incrementAndGet();
+                      throw new AccountNotFoundByIdException(1L);
+                    }));
+
+    assertThat(attempts).hasValue(1);
+  }
+
+  private double retries(String cause) {
+    return meterRegistry.get("accounts.transfer.retries").tag("cause", cause).counter().count();
+  }
+}
@@ -6,6 +6,7 @@ import net.datafaker.Faker;
 import org.lab.junit5.springboot.models.entitites.Account;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Locale;
 
 @With
@@ -17,7 +18,9 @@ public class AccountTestDataBuilder {
   private Long id = faker.number().randomNumber();
   private String accountNumber = faker.finance().iban();
   private String owner = faker.name().fullName();
-  private BigDecimal balance = BigDecimal.valueOf(faker.number().randomDouble(2, 0, 1000));
+  // Siempre con escala 2, la de los saldos leidos de la base de datos
+  private BigDecimal balance =
+      BigDecimal.valueOf(faker.number().randomDouble(2, 0, 1000)).setScale(2, RoundingMode.HALF_UP);
 
   private AccountTestDataBuilder() {}
 